@@ -0,0 +1,297 @@
+package bguspl.set;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.TimeZone;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * An asynchronous log for the game's hot-path events (ui updates and key presses).
+ * Game threads only store the event type and its numeric arguments in a preallocated ring buffer; the messages are
+ * formatted and written in batches by a background writer thread, which rotates the log file when it gets too big.
+ * When the buffer is full, events are dropped (and counted) rather than blocking the game.
+ */
+public class AsyncLog {
+
+    /**
+     * The types of logged events. The message of an event is its parts with the event arguments in between.
+     */
+    public enum Event {
+        PLACE_CARD("placing card ", " in slot ", ""),
+        REMOVE_CARD("removing card from slot ", ""),
+        PLACE_TOKEN("player ", " placing token on slot ", ""),
+        REMOVE_TOKENS("removing all tokens"),
+        REMOVE_SLOT_TOKENS("removing tokens from slot ", ""),
+        REMOVE_TOKEN("removing player ", " token from slot ", ""),
+        SET_COUNTDOWN("updating countdown to ", ""),
+        SET_ELAPSED("updating elapsed time to ", ""),
+        SET_FREEZE("setting player ", " freeze to ", ""),
+        SET_SCORE("setting player ", " score to ", ""),
+        KEY_PRESSED("key ", " was pressed by player ", "");
+
+        private final String[] parts;
+
+        Event(String... parts) {
+            this.parts = parts;
+        }
+    }
+
+    /**
+     * The maximal number of events written at once.
+     */
+    private static final int BATCH_SIZE = 1024;
+
+    /**
+     * The number of nanoseconds the writer parks when there are no events.
+     */
+    private static final long IDLE_PARK_NANOS = 1000000;
+
+    private final Logger logger;
+    private final Level level;
+
+    /**
+     * The ring buffer: event i is stored at index i & mask of each array.
+     */
+    private final int mask;
+    private final Event[] events;
+    private final long[] times;
+    private final long[] firsts;
+    private final long[] seconds;
+
+    /**
+     * The sequence number of the event stored at each index (the event is ready once it is published here).
+     */
+    private final AtomicLongArray published;
+
+    /**
+     * The sequence number of the next event to store, and of the next event to write.
+     */
+    private final AtomicLong next = new AtomicLong();
+    private volatile long consumed;
+
+    private final LongAdder dropped = new LongAdder();
+
+    /**
+     * The log file, its size limit and the number of rotated files to keep.
+     */
+    private final Path path;
+    private final long maxFileBytes;
+    private final int fileCount;
+    private Writer out;
+    private long fileBytes;
+
+    private final TimeZone timeZone = TimeZone.getDefault();
+
+    private final Thread writerThread;
+    private volatile boolean terminate;
+
+    /**
+     * @param logger   - the game logger (events are written only if it logs their level).
+     * @param config   - the game configuration.
+     * @param filename - the log file to write the events to.
+     */
+    public AsyncLog(Logger logger, Config config, String filename) {
+        this.logger = logger;
+        this.level = Level.SEVERE;
+        int capacity = Integer.highestOneBit(Math.max(2, config.asyncLogBufferSize - 1)) << 1;
+        mask = capacity - 1;
+        events = new Event[capacity];
+        times = new long[capacity];
+        firsts = new long[capacity];
+        seconds = new long[capacity];
+        published = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++)
+            published.set(i, -1);
+
+        path = Paths.get(filename);
+        maxFileBytes = config.asyncLogMaxFileBytes;
+        fileCount = config.asyncLogFileCount;
+        try {
+            open();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
+        writerThread = new Thread(this::writeLoop, "async-log");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * @return - true iff events are currently logged (checked before doing any work for an event).
+     */
+    public boolean isLoggable() {
+        return logger.isLoggable(level);
+    }
+
+    public void log(Event event) {
+        log(event, 0, 0);
+    }
+
+    public void log(Event event, long first) {
+        log(event, first, 0);
+    }
+
+    /**
+     * Stores an event in the ring buffer, to be formatted and written by the writer thread.
+     *
+     * @param event  - the event type.
+     * @param first  - the first argument of the event message.
+     * @param second - the second argument of the event message.
+     */
+    public void log(Event event, long first, long second) {
+        if (!isLoggable())
+            return;
+        long sequence;
+        do {
+            sequence = next.get();
+            if (sequence - consumed > mask) {
+                dropped.increment();
+                return;
+            }
+        } while (!next.compareAndSet(sequence, sequence + 1));
+
+        int i = (int) sequence & mask;
+        events[i] = event;
+        times[i] = System.currentTimeMillis();
+        firsts[i] = first;
+        seconds[i] = second;
+        published.lazySet(i, sequence);
+    }
+
+    /**
+     * @return - the number of events dropped because the buffer was full.
+     */
+    public long dropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * Writes the remaining events and stops the writer thread.
+     */
+    public void close() {
+        terminate = true;
+        LockSupport.unpark(writerThread);
+        try {
+            writerThread.join();
+        } catch (InterruptedException ignored) {
+        }
+    }
+
+    private void writeLoop() {
+        StringBuilder batch = new StringBuilder(BATCH_SIZE * 64);
+        boolean dirty = false;
+        try {
+            while (true) {
+                long sequence = consumed;
+                int count = 0;
+                while (count < BATCH_SIZE) {
+                    int i = (int) sequence & mask;
+                    if (published.get(i) != sequence)
+                        break;
+                    format(batch, events[i], times[i], firsts[i], seconds[i]);
+                    ++sequence;
+                    ++count;
+                }
+                consumed = sequence;
+
+                if (count > 0) {
+                    write(batch);
+                    batch.setLength(0);
+                    dirty = true;
+                } else {
+                    if (dirty) {
+                        out.flush();
+                        dirty = false;
+                    }
+                    if (terminate)
+                        break;
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                }
+            }
+            out.close();
+        } catch (IOException e) {
+            logger.severe("async log writer failed: " + e.getMessage());
+        }
+    }
+
+    private void format(StringBuilder sb, Event event, long millis, long first, long second) {
+        // same as the default log format: [HH:mm:ss.SSS] [SEVERE ] message
+        long day = (millis + timeZone.getOffset(millis)) % 86400000L;
+        sb.append('[');
+        pad(sb, day / 3600000L, 2).append(':');
+        pad(sb, day / 60000L % 60, 2).append(':');
+        pad(sb, day / 1000L % 60, 2).append('.');
+        pad(sb, day % 1000L, 3).append("] [SEVERE ] ");
+
+        appendMessage(sb, event, first, second).append(System.lineSeparator());
+    }
+
+    private static StringBuilder appendMessage(StringBuilder sb, Event event, long first, long second) {
+        String[] parts = event.parts;
+        sb.append(parts[0]);
+        if (parts.length > 1)
+            sb.append(first).append(parts[1]);
+        if (parts.length > 2)
+            sb.append(second).append(parts[2]);
+        return sb;
+    }
+
+    /**
+     * Formats the message of an event (for logging it synchronously).
+     *
+     * @param event  - the event type.
+     * @param first  - the first argument of the event message.
+     * @param second - the second argument of the event message.
+     * @return - the event message.
+     */
+    public static String message(Event event, long first, long second) {
+        return appendMessage(new StringBuilder(), event, first, second).toString();
+    }
+
+    private static StringBuilder pad(StringBuilder sb, long value, int digits) {
+        for (long limit = 10; digits > 1; --digits, limit *= 10)
+            if (value < limit)
+                sb.append('0');
+        return sb.append(value);
+    }
+
+    private void write(StringBuilder batch) throws IOException {
+        if (fileBytes + batch.length() > maxFileBytes && fileBytes > 0)
+            rotate();
+        out.append(batch);
+        fileBytes += batch.length();
+    }
+
+    private void open() throws IOException {
+        out = Files.newBufferedWriter(path, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        fileBytes = 0;
+    }
+
+    /**
+     * Renames log to log.1, log.1 to log.2 etc. (dropping the oldest file) and starts a new log file.
+     */
+    private void rotate() throws IOException {
+        out.close();
+        for (int i = fileCount - 1; i >= 1; --i) {
+            Path older = Paths.get(path + "." + i);
+            if (Files.exists(older))
+                Files.move(older, Paths.get(path + "." + (i + 1)), StandardCopyOption.REPLACE_EXISTING);
+        }
+        if (fileCount > 0)
+            Files.move(path, Paths.get(path + ".1"), StandardCopyOption.REPLACE_EXISTING);
+        open();
+    }
+}
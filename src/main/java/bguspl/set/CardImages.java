@@ -0,0 +1,154 @@
+package bguspl.set;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.URL;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.logging.Logger;
+
+/**
+ * The card images, decoded and scaled to the cell size once, so painting a card is a plain (accelerated) image copy.
+ * <p>
+ * The images are decoded in parallel in the background (if preloading is enabled), and any image that is needed
+ * before it is ready is decoded on demand by the thread that needs it. Images are converted to the screen's
+ * compatible format when there is a screen, which lets Java2D cache them in video memory.
+ * <p>
+ * Decks that have no image files (e.g. more features, or feature sizes of 10 and up) are drawn by a CardRenderer.
+ */
+class CardImages {
+
+    private final Logger logger;
+    private final Config config;
+    private final int width;
+    private final int height;
+
+    /**
+     * The scaled image of each card, and of the empty card (at index deckSize). Null until the image is loaded.
+     */
+    private final AtomicReferenceArray<Image> images;
+
+    /**
+     * Draws the cards when there are no image files for the deck (null if there are).
+     */
+    private final CardRenderer renderer;
+    private final Image renderedEmptyCard;
+
+    private final long startNanos = System.nanoTime();
+    private final AtomicInteger loaded = new AtomicInteger();
+    private volatile long warmupNanos = -1;
+
+    /**
+     * @param logger - the game logger.
+     * @param config - the game configuration (the card images are scaled to its cell size).
+     * @param util   - converts cards to features (for drawing them).
+     */
+    CardImages(Logger logger, Config config, Util util) {
+        this.logger = logger;
+        this.config = config;
+        this.width = config.cellWidth;
+        this.height = config.cellHeight;
+
+        // the file names are the features in base featureSize, so they only work for single digit feature sizes
+        if (config.proceduralCards || config.featureSize >= 10
+                || getClass().getClassLoader().getResource(filename(0)) == null) {
+            images = null;
+            renderer = new CardRenderer(config, util);
+            renderedEmptyCard = renderer.emptyCard();
+            warmupNanos = System.nanoTime() - startNanos;
+            return;
+        }
+        images = new AtomicReferenceArray<>(config.deckSize + 1);
+        renderer = null;
+        renderedEmptyCard = null;
+
+        if (config.preloadCardImages) {
+            int threads = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), 8));
+            ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+                Thread thread = new Thread(r, "card-images");
+                thread.setDaemon(true);
+                return thread;
+            });
+            for (int i = 0; i <= config.deckSize; ++i) {
+                int index = i;
+                executor.execute(() -> get(index));
+            }
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * @param card - the card id.
+     * @return - the card image, scaled to the cell size (decoded now if it is not ready yet).
+     */
+    Image card(int card) {
+        return get(card);
+    }
+
+    /**
+     * @return - the empty card image, scaled to the cell size.
+     */
+    Image emptyCard() {
+        return get(config.deckSize);
+    }
+
+    /**
+     * @return - the number of nanoseconds it took to have all the images ready (-1 if they are not all ready yet).
+     */
+    long warmupNanos() {
+        return warmupNanos;
+    }
+
+    private String filename(int index) {
+        return index == config.deckSize ? "cards/empty_card.png"
+                : "cards/" + UserInterfaceSwing.intInBaseToPaddedString(index, config.featureCount, config.featureSize)
+                + ".png";
+    }
+
+    private Image get(int index) {
+        if (renderer != null)
+            return index == config.deckSize ? renderedEmptyCard : renderer.card(index);
+        Image image = images.get(index);
+        if (image != null)
+            return image;
+        image = load(filename(index));
+        if (images.compareAndSet(index, null, image) && loaded.incrementAndGet() == images.length()) {
+            warmupNanos = System.nanoTime() - startNanos;
+            logger.info("card images ready after " + warmupNanos / 1000000 + " ms");
+        }
+        return images.get(index);
+    }
+
+    private Image load(String filename) {
+        URL resource = getClass().getClassLoader().getResource(filename);
+        if (resource == null)
+            throw new RuntimeException(new FileNotFoundException(filename));
+        BufferedImage source;
+        try {
+            source = ImageIO.read(resource);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
+        BufferedImage image = createImage(source.getColorModel().getTransparency());
+        Graphics2D g = image.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        g.drawImage(source, 0, 0, width, height, null);
+        g.dispose();
+        return image;
+    }
+
+    private BufferedImage createImage(int transparency) {
+        if (!GraphicsEnvironment.isHeadless())
+            return GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice()
+                    .getDefaultConfiguration().createCompatibleImage(width, height, transparency);
+        return new BufferedImage(width, height,
+                transparency == Transparency.OPAQUE ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB);
+    }
+}
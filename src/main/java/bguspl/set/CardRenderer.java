@@ -0,0 +1,204 @@
+package bguspl.set;
+
+import java.awt.*;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Path2D;
+import java.awt.geom.RoundRectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Draws card images from the cards' features, for decks that have no image files (any feature count and size).
+ * <p>
+ * The first four features are drawn as in the classic deck: the number of symbols, their color, their shape and
+ * their shading. Any further features are drawn as a background tint and a code in the card's corner. Drawn images
+ * are kept in a bounded LRU cache, so memory does not grow with the deck size.
+ */
+class CardRenderer {
+
+    private static final Color BACKGROUND = Color.WHITE;
+    private static final Color BORDER = new Color(0x60, 0x60, 0x60);
+
+    private final Config config;
+    private final Util util;
+    private final int width;
+    private final int height;
+    private final Map<Integer, Image> cache;
+
+    /**
+     * @param config - the game configuration (the cards are drawn in its cell size).
+     * @param util   - converts cards to features.
+     */
+    CardRenderer(Config config, Util util) {
+        this.config = config;
+        this.util = util;
+        this.width = config.cellWidth;
+        this.height = config.cellHeight;
+        int capacity = Math.max(1, config.cardRenderCacheSize);
+        cache = new LinkedHashMap<Integer, Image>(capacity * 4 / 3 + 1, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Image> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * @param card - the card id.
+     * @return - the card image (drawn now if it is not cached).
+     */
+    Image card(int card) {
+        synchronized (cache) {
+            Image image = cache.get(card);
+            if (image != null)
+                return image;
+        }
+        Image image = draw(util.cardToFeatures(card));
+        synchronized (cache) {
+            cache.put(card, image);
+        }
+        return image;
+    }
+
+    /**
+     * @return - an empty card image.
+     */
+    Image emptyCard() {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        drawFrame(g, new Color(0xf0, 0xf0, 0xf0));
+        g.dispose();
+        return image;
+    }
+
+    private Image draw(int[] features) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+
+        drawFrame(g, features.length > 4 ? tint(features[4]) : BACKGROUND);
+
+        int count = features.length > 0 ? features[0] + 1 : 1;
+        Color color = features.length > 1 ? color(features[1]) : Color.BLACK;
+        int shape = features.length > 2 ? features[2] : 0;
+        int shading = features.length > 3 ? features[3] : 0;
+
+        // the symbols are laid out in a row, centered in the card
+        int margin = width / 12;
+        double slot = (width - 2.0 * margin) / Math.max(3, count);
+        double symbolWidth = slot * 0.8;
+        double symbolHeight = Math.min(height * 0.6, symbolWidth * 2);
+        double left = (width - slot * count) / 2 + (slot - symbolWidth) / 2;
+        double top = (height - symbolHeight) / 2;
+        g.setStroke(new BasicStroke(Math.max(1.5f, width / 100f)));
+        for (int i = 0; i < count; ++i) {
+            Shape symbol = shape(shape, left + i * slot, top, symbolWidth, symbolHeight);
+            shade(g, symbol, color, shading);
+            g.setColor(color);
+            g.draw(symbol);
+        }
+
+        if (features.length > 4)
+            drawCode(g, features);
+        g.dispose();
+        return image;
+    }
+
+    private void drawFrame(Graphics2D g, Color background) {
+        int arc = Math.min(width, height) / 8;
+        RoundRectangle2D frame = new RoundRectangle2D.Double(2, 2, width - 5, height - 5, arc, arc);
+        g.setColor(background);
+        g.fill(frame);
+        g.setColor(BORDER);
+        g.setStroke(new BasicStroke(2));
+        g.draw(frame);
+    }
+
+    /**
+     * Writes the features past the fourth (e.g. "2.0") in the card's corner.
+     */
+    private void drawCode(Graphics2D g, int[] features) {
+        StringBuilder code = new StringBuilder();
+        for (int i = 4; i < features.length; ++i)
+            code.append(i > 4 ? "." : "").append(features[i]);
+        g.setColor(BORDER);
+        g.setFont(new Font("SansSerif", Font.BOLD, Math.max(10, height / 10)));
+        g.drawString(code.toString(), width / 20 + 4, height / 10 + 8);
+    }
+
+    /**
+     * @return - the value's color: evenly spread hues (red, green and purple for the classic three).
+     */
+    private Color color(int value) {
+        float hue = (float) value / config.featureSize + 0.97f;
+        return Color.getHSBColor(hue - (int) hue, 0.85f, 0.75f);
+    }
+
+    private Color tint(int value) {
+        float hue = (float) value / config.featureSize + 0.15f;
+        return Color.getHSBColor(hue - (int) hue, 0.08f, 1f);
+    }
+
+    /**
+     * @return - the value's shape: an oval, a diamond, a wave, a triangle, and then polygons of 5, 6, 7... sides.
+     */
+    private static Shape shape(int value, double x, double y, double w, double h) {
+        switch (value) {
+            case 0:
+                return new Ellipse2D.Double(x, y, w, h);
+            case 1:
+                return polygon(4, x, y, w, h);
+            case 2: {
+                Path2D.Double wave = new Path2D.Double();
+                wave.moveTo(x + w * 0.2, y);
+                wave.curveTo(x + w * 1.2, y + h * 0.1, x + w * 0.3, y + h * 0.6, x + w, y + h);
+                wave.curveTo(x - w * 0.2, y + h * 0.9, x + w * 0.7, y + h * 0.4, x + w * 0.2, y);
+                wave.closePath();
+                return wave;
+            }
+            case 3:
+                return polygon(3, x, y, w, h);
+            default:
+                return polygon(value + 1, x, y, w, h); // 4 sides is the diamond
+        }
+    }
+
+    private static Shape polygon(int sides, double x, double y, double w, double h) {
+        Path2D.Double polygon = new Path2D.Double();
+        for (int i = 0; i < sides; ++i) {
+            double angle = -Math.PI / 2 + 2 * Math.PI * i / sides;
+            double px = x + w / 2 + w / 2 * Math.cos(angle);
+            double py = y + h / 2 + h / 2 * Math.sin(angle);
+            if (i == 0)
+                polygon.moveTo(px, py);
+            else
+                polygon.lineTo(px, py);
+        }
+        polygon.closePath();
+        return polygon;
+    }
+
+    /**
+     * Fills a symbol by the shading value: solid, empty, striped, and then sparser and sparser stripes.
+     */
+    private static void shade(Graphics2D g, Shape symbol, Color color, int value) {
+        if (value == 0) {
+            g.setColor(color);
+            g.fill(symbol);
+        } else if (value >= 2) {
+            Shape clip = g.getClip();
+            Stroke stroke = g.getStroke();
+            g.clip(symbol);
+            g.setColor(color);
+            g.setStroke(new BasicStroke(1));
+            Rectangle bounds = symbol.getBounds();
+            int gap = 2 + 2 * (value - 2);
+            for (int y = bounds.y; y <= bounds.y + bounds.height; y += gap + 1)
+                g.drawLine(bounds.x, y, bounds.x + bounds.width, y);
+            g.setClip(clip);
+            g.setStroke(stroke);
+        }
+    }
+}
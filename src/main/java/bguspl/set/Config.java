@@ -47,7 +47,12 @@ public class Config {
     public final int computerPlayers;
 
     /**
-     * The total number of players (human + computer) in the game
+     * The number of remote players (i.e. input arrives from clients of the game server)
+     */
+    public final int remotePlayers;
+
+    /**
+     * The total number of players (human + remote + computer) in the game
      */
     public final int players;
 
@@ -62,6 +67,18 @@ public class Config {
      */
     public final long turnTimeoutMillis;
 
+    /**
+     * Whether to adapt the turn timeout to the time it takes to find sets (and reshuffle early when the table has no
+     * set)
+     */
+    public final boolean adaptiveTurnTimeout;
+
+    /**
+     * The bounds (in milliseconds) of the adaptive turn timeout
+     */
+    public final long turnTimeoutMinMillis;
+    public final long turnTimeoutMaxMillis;
+
     /**
      * The number of milliseconds the turn countdown warning should be displayed
      */
@@ -83,11 +100,119 @@ public class Config {
      */
     public final long tableDelayMillis;
 
+    /**
+     * Whether to swap a card in right after dealing when the cards on the table contain no legal set
+     */
+    public final boolean redealDeadTable;
+
+    /**
+     * The number of legal sets the dealer makes sure every deal leaves on the table (0 deals random cards)
+     */
+    public final int dealTargetSets;
+
+    /**
+     * The seed of the dealer's random choices of cards and slots (0 for a different game every time)
+     */
+    public final long dealerSeed;
+
     /**
      * The number of milliseconds to pause at the end of the game before closing
      */
     public final long endGamePauseMillies;
 
+    /**
+     * Whether to log ui updates and key presses asynchronously (to a separate events log file)
+     */
+    public final boolean asyncLogging;
+
+    /**
+     * The number of events the asynchronous log can buffer before dropping events
+     */
+    public final int asyncLogBufferSize;
+
+    /**
+     * The size (in bytes) at which the events log file is rotated, and the number of rotated files to keep
+     */
+    public final long asyncLogMaxFileBytes;
+    public final int asyncLogFileCount;
+
+    /**
+     * Whether to update the user interface (and log its updates) on consumer threads of an event bus, rather than on
+     * the game threads
+     */
+    public final boolean eventBus;
+
+    /**
+     * The number of events the event bus holds before the game threads wait for a consumer that falls behind
+     */
+    public final int eventBusBufferSize;
+
+    /**
+     * The port of the game server for remote players (0 for no server)
+     */
+    public final int serverPort;
+
+    /**
+     * The number of bytes the game server buffers for a client before disconnecting it as too slow
+     */
+    public final int serverClientBufferBytes;
+
+    /**
+     * The port spectators can watch the table on (0 for no spectators)
+     */
+    public final int spectatorPort;
+
+    /**
+     * The number of recent frames the spectator broadcast keeps, the number of frames a spectator may lag behind
+     * before it skips to the latest keyframe, and the number of milliseconds between keyframes
+     */
+    public final int spectatorRingSize;
+    public final int spectatorMaxLag;
+    public final long spectatorKeyframeMillis;
+
+    /**
+     * The file to write the binary game events journal to (empty for no journal)
+     */
+    public final String journalFile;
+
+    /**
+     * The size (in bytes) of each memory-mapped segment of the journal file
+     */
+    public final long journalSegmentBytes;
+
+    /**
+     * The file to periodically save the game state to (empty for no checkpoints)
+     */
+    public final String checkpointFile;
+
+    /**
+     * The number of milliseconds between checkpoints
+     */
+    public final long checkpointIntervalMillis;
+
+    /**
+     * Whether to resume the game saved in the checkpoint file (if there is one)
+     */
+    public final boolean resumeFromCheckpoint;
+
+    /**
+     * Whether to register the game metrics as JMX MBeans (and time the user interface calls)
+     */
+    public final boolean jmxMetrics;
+
+    /**
+     * The port of the Prometheus metrics endpoint (0 for no endpoint), and the path it serves the metrics on
+     */
+    public final int metricsPort;
+    public final String metricsPath;
+
+    /**
+     * The number of milliseconds between the samples of the game threads' CPU time and contention (0 for no
+     * sampling), and the number of threads each report lists
+     */
+    public final long threadMonitorMillis;
+    public final int threadMonitorTop;
+
     /**
      * The names of the players to display on the screen
      * Note: if there are more players than names, the remaining players will be
@@ -135,6 +260,35 @@ public class Config {
      */
     public final int fontSize;
 
+    /**
+     * The number of milliseconds between screen refreshes (the updates in between are merged into one repaint)
+     */
+    public final int screenRefreshMillis;
+
+    /**
+     * Whether to show the game in the terminal instead of a window (the terminal is also used when no window can be
+     * opened), and the number of terminal refreshes per second
+     */
+    public final boolean terminalUi;
+    public final int terminalRefreshRate;
+
+    /**
+     * Whether to decode all the card images in the background at startup (otherwise each image is decoded when its
+     * card is first placed on the table)
+     */
+    public final boolean preloadCardImages;
+
+    /**
+     * Whether to draw the cards from their features even if the deck has image files (decks without image files are
+     * always drawn)
+     */
+    public final boolean proceduralCards;
+
+    /**
+     * The maximal number of drawn card images to keep
+     */
+    public final int cardRenderCacheSize;
+
     /**
      * The scancodes of the keyboard input data for each player
      * Notes:
@@ -147,6 +301,22 @@ public class Config {
      */
     private final int[][] playerKeys;
 
+    /**
+     * The think time of each computer player between key presses (see bguspl.set.ex.ThinkTime), the seed of the
+     * computer players' random choices (0 for a different game every time) and the number of threads that run the key
+     * presses of all the computer players
+     */
+    private final String[] computerThinkTimes;
+    public final long computerSeed;
+    public final int computerSchedulerThreads;
+
+    /**
+     * The strategy each computer player uses to choose its key presses (see bguspl.set.ex.AiStrategy), and the
+     * time a strategy may spend on choosing a key press
+     */
+    private final String[] computerStrategies;
+    public final long computerDecisionBudgetNanos;
+
     /**
      * The default scan codes data (this is the same as in the default
      * config.properties file)
@@ -214,17 +384,58 @@ public class Config {
         // "0"));
         humanPlayers = 0;
         computerPlayers = 04;
-        players = humanPlayers + computerPlayers;
+        remotePlayers = Integer.parseInt(properties.getProperty("RemotePlayers", "0"));
+        players = humanPlayers + remotePlayers + computerPlayers;
 
         hints = Boolean.parseBoolean(properties.getProperty("Hints", "False"));
         turnTimeoutMillis = (long) (Double.parseDouble(properties.getProperty("TurnTimeoutSeconds", "60")) * 1000.0);
+        adaptiveTurnTimeout = Boolean.parseBoolean(properties.getProperty("AdaptiveTurnTimeout", "False"));
+        turnTimeoutMinMillis = (long) (Double.parseDouble(properties.getProperty("TurnTimeoutMinSeconds", "5"))
+                * 1000.0);
+        turnTimeoutMaxMillis = (long) (Double.parseDouble(properties.getProperty("TurnTimeoutMaxSeconds", "120"))
+                * 1000.0);
         turnTimeoutWarningMillis = (long) (Double.parseDouble(properties.getProperty("TurnTimeoutWarningSeconds", "60"))
                 * 1000.0);
         pointFreezeMillis = (long) (Double.parseDouble(properties.getProperty("PointFreezeSeconds", "1")) * 1000.0);
         penaltyFreezeMillis = (long) (Double.parseDouble(properties.getProperty("PenaltyFreezeSeconds", "3")) * 1000.0);
         tableDelayMillis = (long) (Double.parseDouble(properties.getProperty("TableDelaySeconds", "0.1")) * 1000.0);
+        redealDeadTable = Boolean.parseBoolean(properties.getProperty("RedealDeadTable", "False"));
+        dealTargetSets = Integer.parseInt(properties.getProperty("DealTargetSets", "0"));
+        dealerSeed = Long.parseLong(properties.getProperty("DealerSeed", "0"));
         endGamePauseMillies = (long) (Double.parseDouble(properties.getProperty("EndGamePauseSeconds", "5")) * 1000.0);
 
+        // logging settings
+        asyncLogging = Boolean.parseBoolean(properties.getProperty("AsyncLogging", "False"));
+        asyncLogBufferSize = Integer.parseInt(properties.getProperty("AsyncLogBufferSize", "65536"));
+        asyncLogMaxFileBytes = Long.parseLong(properties.getProperty("AsyncLogMaxFileKB", "10240")) * 1024L;
+        asyncLogFileCount = Integer.parseInt(properties.getProperty("AsyncLogFileCount", "5"));
+
+        eventBus = Boolean.parseBoolean(properties.getProperty("EventBus", "False"));
+        eventBusBufferSize = Integer.parseInt(properties.getProperty("EventBusBufferSize", "65536"));
+
+        serverPort = Integer.parseInt(properties.getProperty("ServerPort", "0"));
+        serverClientBufferBytes = Integer.parseInt(properties.getProperty("ServerClientBufferKB", "64")) * 1024;
+
+        spectatorPort = Integer.parseInt(properties.getProperty("SpectatorPort", "0"));
+        spectatorRingSize = Integer.parseInt(properties.getProperty("SpectatorRingSize", "4096"));
+        spectatorMaxLag = Integer.parseInt(properties.getProperty("SpectatorMaxLag", "1024"));
+        spectatorKeyframeMillis = (long) (Double.parseDouble(properties.getProperty("SpectatorKeyframeSeconds", "1"))
+                * 1000.0);
+
+        journalFile = properties.getProperty("JournalFile", "").trim();
+        journalSegmentBytes = Long.parseLong(properties.getProperty("JournalSegmentMB", "64")) * 1024L * 1024L;
+
+        checkpointFile = properties.getProperty("CheckpointFile", "").trim();
+        checkpointIntervalMillis = (long) (Double.parseDouble(properties.getProperty("CheckpointIntervalSeconds", "1"))
+                * 1000.0);
+        resumeFromCheckpoint = Boolean.parseBoolean(properties.getProperty("ResumeFromCheckpoint", "False"));
+
+        jmxMetrics = Boolean.parseBoolean(properties.getProperty("JmxMetrics", "True"));
+        metricsPort = Integer.parseInt(properties.getProperty("MetricsPort", "0"));
+        metricsPath = properties.getProperty("MetricsPath", "/metrics").trim();
+        threadMonitorMillis = (long) (Double.parseDouble(properties.getProperty("ThreadMonitorSeconds", "0")) * 1000.0);
+        threadMonitorTop = Integer.parseInt(properties.getProperty("ThreadMonitorTop", "5"));
+
         // ui settings
         String[] names = properties.getProperty("PlayerNames", "Player 1, Player 2").split(",");
         playerNames = new String[players];
@@ -238,6 +449,24 @@ public class Config {
         playerCellWidth = Integer.parseInt(properties.getProperty("PlayerCellWidth", "300"));
         playerCellHeight = Integer.parseInt(properties.getProperty("PlayerCellHeight", "40"));
         fontSize = Integer.parseInt(properties.getProperty("FontSize", "40"));
+        preloadCardImages = Boolean.parseBoolean(properties.getProperty("PreloadCardImages", "True"));
+        proceduralCards = Boolean.parseBoolean(properties.getProperty("ProceduralCards", "False"));
+        cardRenderCacheSize = Integer.parseInt(properties.getProperty("CardRenderCacheSize", "256"));
+        terminalUi = Boolean.parseBoolean(properties.getProperty("TerminalUi", "False"));
+        terminalRefreshRate = Integer.parseInt(properties.getProperty("TerminalRefreshRate", "10"));
+        screenRefreshMillis = Math.max(1, 1000 / Integer.parseInt(properties.getProperty("ScreenRefreshRate", "60")));
+
+        // computer players
+        String thinkTime = properties.getProperty("ComputerThinkTime", "fixed:1");
+        computerThinkTimes = new String[players];
+        Arrays.setAll(computerThinkTimes, i -> properties.getProperty("ComputerThinkTime" + (i + 1), thinkTime));
+        computerSeed = Long.parseLong(properties.getProperty("ComputerSeed", "0"));
+        computerSchedulerThreads = Integer.parseInt(properties.getProperty("ComputerSchedulerThreads", "1"));
+        String strategy = properties.getProperty("ComputerStrategy", "random");
+        computerStrategies = new String[players];
+        Arrays.setAll(computerStrategies, i -> properties.getProperty("ComputerStrategy" + (i + 1), strategy));
+        computerDecisionBudgetNanos = (long) (Double.parseDouble(properties.getProperty("ComputerDecisionBudgetMicros",
+                "1000")) * 1000);
 
         // keyboard input data
         playerKeys = new int[players][rows * columns];
@@ -260,4 +489,12 @@ public class Config {
     public int[] playerKeys(int player) {
         return playerKeys[player];
     }
+
+    public String computerThinkTime(int player) {
+        return computerThinkTimes[player];
+    }
+
+    public String computerStrategy(int player) {
+        return computerStrategies[player];
+    }
 }
@@ -1,5 +1,7 @@
 package bguspl.set;
 
+import bguspl.set.journal.Journal;
+
 import java.util.logging.Logger;
 
 public class Env {
@@ -8,11 +10,17 @@ public class Env {
     public final Config config;
     public final UserInterface ui;
     public final Util util;
+    public final Journal journal;
 
     public Env(Logger logger, Config config, UserInterface ui, Util util) {
+        this(logger, config, ui, util, Journal.DISABLED);
+    }
+
+    public Env(Logger logger, Config config, UserInterface ui, Util util, Journal journal) {
         this.logger = logger;
         this.config = config;
         this.ui = ui;
         this.util = util;
+        this.journal = journal;
     }
 }
@@ -0,0 +1,319 @@
+package bguspl.set;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Logger;
+
+/**
+ * An in-process event bus that takes the user interface updates off the game threads.
+ * The table, the dealer and the players call it like any user interface; every call only stores the event in a
+ * preallocated ring buffer. Each subscribed consumer (e.g. the logging and Swing user interface chain) reads the ring
+ * on its own thread, in batches, and at its own pace.
+ * <p>
+ * Most consumers keep state built from the events (the cards and tokens on the screen, a spectator keyframe), so by
+ * default a consumer is lossless: publishing waits while the ring is full of events that consumer has not read yet.
+ * A lossy consumer (for updates that only show the latest value) never slows the game down: when it falls a whole
+ * ring behind it skips the events it lost, and counts them (see dropped).
+ */
+public class EventBus implements UserInterface {
+
+    /**
+     * The types of events (the ordinal is stored in the ring).
+     */
+    private enum Type {
+        PLACE_CARD, REMOVE_CARD, PLACE_TOKEN, REMOVE_TOKENS, REMOVE_SLOT_TOKENS, REMOVE_TOKEN, SET_COUNTDOWN,
+        SET_ELAPSED, SET_FREEZE, SET_SCORE, ANNOUNCE_WINNER
+    }
+
+    private static final Type[] TYPES = Type.values();
+
+    /**
+     * The maximal number of events a consumer handles before checking for termination.
+     */
+    private static final int BATCH_SIZE = 256;
+
+    /**
+     * The number of nanoseconds a consumer parks when there are no events.
+     */
+    private static final long IDLE_PARK_NANOS = 500000;
+
+    /**
+     * The number of nanoseconds a publisher parks while a lossless consumer is a whole ring behind.
+     */
+    private static final long FULL_PARK_NANOS = 50000;
+
+    private final Logger logger;
+
+    /**
+     * The ring buffer: event i is stored at index i & mask. The type and first argument are packed into one word, the
+     * second argument is in another (and the winners of an announcement in a third).
+     */
+    private final int mask;
+    private final AtomicLongArray heads;
+    private final AtomicLongArray arguments;
+    private final AtomicReferenceArray<int[]> winners;
+
+    /**
+     * The sequence number of the event stored at each index (-1 while an event is being stored).
+     */
+    private final AtomicLongArray published;
+
+    /**
+     * The sequence number of the next event to store.
+     */
+    private final AtomicLong next = new AtomicLong();
+
+    private final List<Consumer> consumers = new CopyOnWriteArrayList<>();
+    private final List<Consumer> lossless = new CopyOnWriteArrayList<>();
+    private volatile boolean terminate;
+
+    /**
+     * A subscribed user interface and the thread feeding it.
+     */
+    private final class Consumer implements Runnable {
+        final String name;
+        final UserInterface ui;
+        final boolean lossy;
+        final Thread thread;
+        volatile long sequence;
+        volatile long dropped;
+
+        Consumer(String name, UserInterface ui, boolean lossy) {
+            this.name = name;
+            this.ui = ui;
+            this.lossy = lossy;
+            this.sequence = next.get();
+            this.thread = new Thread(this, "event-bus-" + name);
+            thread.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                int count = 0;
+                while (count < BATCH_SIZE && poll())
+                    ++count;
+                if (count == 0) {
+                    if (terminate && sequence == next.get())
+                        break;
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                }
+            }
+            ui.dispose();
+        }
+
+        /**
+         * Delivers the next event to the consumer.
+         *
+         * @return - true iff there was an event (or events were skipped).
+         */
+        private boolean poll() {
+            long s = sequence;
+            int i = (int) s & mask;
+            long stored = published.get(i);
+            if (!lossy && (stored == -1 || stored < s))
+                return false; // not published yet (nothing overwrites an event a lossless consumer has not read)
+            if (stored < s && stored != -1 || stored == -1 && s >= next.get() - mask)
+                return false; // not published yet
+            if (stored == s) {
+                long head = heads.get(i);
+                long argument = arguments.get(i);
+                int[] players = winners.get(i);
+                if (published.get(i) == s) {
+                    sequence = s + 1;
+                    deliver(head, argument, players);
+                    return true;
+                }
+            }
+            // overwritten before it was read (a lossless consumer only once the bus is disposed): skip to the oldest
+            // event still in the ring
+            long oldest = Math.max(s + 1, next.get() - mask);
+            dropped += oldest - s;
+            sequence = oldest;
+            return true;
+        }
+
+        private void deliver(long head, long argument, int[] players) {
+            int first = (int) head;
+            try {
+                switch (TYPES[(int) (head >>> 32)]) {
+                    case PLACE_CARD:
+                        ui.placeCard(first, (int) argument);
+                        break;
+                    case REMOVE_CARD:
+                        ui.removeCard(first);
+                        break;
+                    case PLACE_TOKEN:
+                        ui.placeToken(first, (int) argument);
+                        break;
+                    case REMOVE_TOKENS:
+                        ui.removeTokens();
+                        break;
+                    case REMOVE_SLOT_TOKENS:
+                        ui.removeTokens(first);
+                        break;
+                    case REMOVE_TOKEN:
+                        ui.removeToken(first, (int) argument);
+                        break;
+                    case SET_COUNTDOWN:
+                        ui.setCountdown(argument, first != 0);
+                        break;
+                    case SET_ELAPSED:
+                        ui.setElapsed(argument);
+                        break;
+                    case SET_FREEZE:
+                        ui.setFreeze(first, argument);
+                        break;
+                    case SET_SCORE:
+                        ui.setScore(first, (int) argument);
+                        break;
+                    case ANNOUNCE_WINNER:
+                        ui.announceWinner(players);
+                        break;
+                }
+            } catch (RuntimeException e) {
+                logger.severe("event bus consumer " + name + " failed: " + e);
+            }
+        }
+    }
+
+    /**
+     * @param logger - the game logger.
+     * @param config - the game configuration.
+     */
+    public EventBus(Logger logger, Config config) {
+        this.logger = logger;
+        int capacity = Integer.highestOneBit(Math.max(2, config.eventBusBufferSize - 1)) << 1;
+        mask = capacity - 1;
+        heads = new AtomicLongArray(capacity);
+        arguments = new AtomicLongArray(capacity);
+        winners = new AtomicReferenceArray<>(capacity);
+        published = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++)
+            published.set(i, Long.MIN_VALUE);
+    }
+
+    /**
+     * Starts feeding the events published from now on to a user interface, on a thread of its own, without losing
+     * any of them.
+     *
+     * @param name - the consumer name (used for its thread name).
+     * @param ui   - the user interface.
+     */
+    public void subscribe(String name, UserInterface ui) {
+        subscribe(name, ui, false);
+    }
+
+    /**
+     * Starts feeding the events published from now on to a user interface, on a thread of its own.
+     *
+     * @param name  - the consumer name (used for its thread name).
+     * @param ui    - the user interface.
+     * @param lossy - true iff the user interface may miss events when it falls behind (so it never slows the game).
+     */
+    public void subscribe(String name, UserInterface ui, boolean lossy) {
+        Consumer consumer = new Consumer(name, ui, lossy);
+        consumers.add(consumer);
+        if (!lossy)
+            lossless.add(consumer);
+        consumer.thread.start();
+    }
+
+    /**
+     * @return - the number of events the lossy consumers skipped because they fell behind.
+     */
+    public long dropped() {
+        long dropped = 0;
+        for (Consumer consumer : consumers)
+            dropped += consumer.dropped;
+        return dropped;
+    }
+
+    private void publish(Type type, int first, long argument, int[] players) {
+        long sequence = next.getAndIncrement();
+        for (Consumer consumer : lossless)
+            while (sequence - consumer.sequence > mask && !terminate) // the event would overwrite one it has not read
+                LockSupport.parkNanos(FULL_PARK_NANOS);
+        int i = (int) sequence & mask;
+        published.set(i, -1); // lets a lagging consumer notice the event it is reading is being overwritten
+        heads.lazySet(i, (long) type.ordinal() << 32 | (first & 0xffffffffL));
+        arguments.lazySet(i, argument);
+        winners.lazySet(i, players);
+        published.set(i, sequence);
+    }
+
+    @Override
+    public void placeCard(int card, int slot) {
+        publish(Type.PLACE_CARD, card, slot, null);
+    }
+
+    @Override
+    public void removeCard(int slot) {
+        publish(Type.REMOVE_CARD, slot, 0, null);
+    }
+
+    @Override
+    public void placeToken(int player, int slot) {
+        publish(Type.PLACE_TOKEN, player, slot, null);
+    }
+
+    @Override
+    public void removeTokens() {
+        publish(Type.REMOVE_TOKENS, 0, 0, null);
+    }
+
+    @Override
+    public void removeTokens(int slot) {
+        publish(Type.REMOVE_SLOT_TOKENS, slot, 0, null);
+    }
+
+    @Override
+    public void removeToken(int player, int slot) {
+        publish(Type.REMOVE_TOKEN, player, slot, null);
+    }
+
+    @Override
+    public void setCountdown(long millies, boolean warn) {
+        publish(Type.SET_COUNTDOWN, warn ? 1 : 0, millies, null);
+    }
+
+    @Override
+    public void setElapsed(long millies) {
+        publish(Type.SET_ELAPSED, 0, millies, null);
+    }
+
+    @Override
+    public void setFreeze(int player, long millies) {
+        publish(Type.SET_FREEZE, player, millies, null);
+    }
+
+    @Override
+    public void setScore(int player, int score) {
+        publish(Type.SET_SCORE, player, score, null);
+    }
+
+    @Override
+    public void announceWinner(int[] players) {
+        publish(Type.ANNOUNCE_WINNER, 0, 0, players.clone());
+    }
+
+    /**
+     * Lets the consumers handle the remaining events, disposes of their user interfaces and stops their threads.
+     */
+    @Override
+    public void dispose() {
+        terminate = true;
+        for (Consumer consumer : consumers) {
+            LockSupport.unpark(consumer.thread);
+            try {
+                consumer.thread.join();
+            } catch (InterruptedException ignored) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
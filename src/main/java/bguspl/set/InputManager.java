@@ -5,6 +5,7 @@ import bguspl.set.ex.Player;
 import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
 import java.util.Arrays;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
@@ -17,10 +18,16 @@ class InputManager extends KeyAdapter {
     int[] keyMap = new int[MAX_KEY_CODE + 1];
     int[] keyToSlot = new int[MAX_KEY_CODE + 1];
     private final Logger logger;
+    private final AsyncLog asyncLog;
 
     public InputManager(Logger logger, Config config, Player[] players) {
+        this(logger, config, players, null);
+    }
+
+    public InputManager(Logger logger, Config config, Player[] players, AsyncLog asyncLog) {
         this.players = players;
         this.logger = logger;
+        this.asyncLog = asyncLog;
 
         // initialize the keys
         for (int player = 0; player < config.players; ++player)
@@ -39,12 +46,25 @@ class InputManager extends KeyAdapter {
 
     @Override
     public void keyPressed(KeyEvent e) {
-        // dispatch the key event to the player according to the key map
-        int keyCode = e.getKeyCode();
-        int player = keyMap[keyCode] - 1;
+        dispatch(e.getKeyCode());
+    }
+
+    /**
+     * Dispatches a key press to the player according to the key map.
+     *
+     * @param keyCode - the key code (as in java.awt.event.KeyEvent).
+     * @return - true iff the key belongs to a player.
+     */
+    boolean dispatch(int keyCode) {
+        int player = keyCode >= 0 && keyCode < keyMap.length ? keyMap[keyCode] - 1 : -1;
         if (player >= 0){
-            logger.severe("key " + keyCode + " was pressed by player " + (player + 1));
+            if (asyncLog != null)
+                asyncLog.log(AsyncLog.Event.KEY_PRESSED, keyCode, player + 1);
+            else if (logger.isLoggable(Level.SEVERE))
+                logger.severe("key " + keyCode + " was pressed by player " + (player + 1));
             players[player].keyPressed(keyToSlot[keyCode]);
+            return true;
         }
+        return false;
     }
 }
@@ -1,11 +1,20 @@
 package bguspl.set;
 
+import bguspl.set.ex.Checkpoint;
 import bguspl.set.ex.Dealer;
 import bguspl.set.ex.Player;
 import bguspl.set.ex.Table;
+import bguspl.set.journal.Journal;
+import bguspl.set.metrics.MeteredUserInterface;
+import bguspl.set.metrics.Metrics;
+import bguspl.set.metrics.PrometheusEndpoint;
+import bguspl.set.metrics.ThreadMonitor;
+import bguspl.set.net.GameServer;
+import bguspl.set.net.SpectatorBroadcaster;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Paths;
 import java.text.SimpleDateFormat;
 import java.util.Arrays;
 import java.util.Calendar;
@@ -22,6 +31,7 @@ public class Main {
 
     private static boolean xButtonPressed = false;
     private static Logger logger;
+    private static String logFilePrefix;
 
     public static void xButtonPressed() throws InterruptedException {
         if (logger != null)
@@ -48,25 +58,104 @@ public class Main {
         Config config = new Config(logger, "config.properties");
         Util util = new UtilImpl(config);
 
+        AsyncLog asyncLog = null;
+        if (config.asyncLogging)
+            asyncLog = new AsyncLog(logger, config, logFilePrefix + "-events.log");
+
+        Journal journal = Journal.DISABLED;
+        if (!config.journalFile.isEmpty())
+            try {
+                journal = new Journal(Paths.get(config.journalFile), config.journalSegmentBytes);
+            } catch (IOException e) {
+                logger.severe("cannot create journal " + config.journalFile + ": " + e.getMessage());
+            }
+
         Player[] players = new Player[config.players];
         UserInterface ui = null;
-        try {
-            ui = new UserInterfaceSwing(logger, config, players);
-        } catch (UnsupportedOperationException | IllegalArgumentException e) {
-            logger.severe("error creating swing user interface: " + e.getMessage());
+        if (!config.terminalUi)
+            try {
+                ui = new UserInterfaceSwing(logger, config, players, asyncLog);
+            } catch (UnsupportedOperationException | IllegalArgumentException e) {
+                logger.severe("error creating swing user interface: " + e.getMessage());
+            }
+        if (ui == null && (config.terminalUi || System.console() != null)) {
+            logger.severe("using the terminal user interface");
+            ui = new UserInterfaceTerminal(logger, config, players, asyncLog, System.out, System.in);
+        }
+        if (ui == null) {
             logger.severe("will try to run without user interface");
             if (config.humanPlayers > 0)
                 logger.severe("warning: running with human players with no user interface");
         }
-        ui = new UserInterfaceDecorator(logger, util, ui);
+        ui = new UserInterfaceDecorator(logger, util, ui, asyncLog);
+
+        EventBus eventBus = null;
+        if (config.eventBus || config.serverPort > 0 || config.spectatorPort > 0) {
+            eventBus = new EventBus(logger, config);
+            eventBus.subscribe("ui", ui);
+            ui = eventBus;
+        }
+
+        Metrics metrics = null;
+        PrometheusEndpoint metricsEndpoint = null;
+        if (config.jmxMetrics || config.metricsPort > 0) {
+            metrics = new Metrics(logger, config.jmxMetrics);
+            ui = new MeteredUserInterface(ui, metrics.uiLatency);
+        }
+        if (config.metricsPort > 0)
+            try {
+                metricsEndpoint = new PrometheusEndpoint(logger, metrics);
+                metricsEndpoint.start(config.metricsPort, config.metricsPath);
+            } catch (IOException e) {
+                logger.severe("cannot serve metrics on port " + config.metricsPort + ": " + e.getMessage());
+                metricsEndpoint = null;
+            }
 
-        Env env = new Env(logger, config, ui, util);
+        Env env = new Env(logger, config, ui, util, journal);
 
         // create the game entities
         Table table = new Table(env);
+        if (metrics != null)
+            metrics.register(table.metrics);
+        ThreadMonitor threadMonitor = null;
+        if (config.threadMonitorMillis > 0) {
+            threadMonitor = new ThreadMonitor(logger, metrics, config.threadMonitorMillis, config.threadMonitorTop);
+            threadMonitor.start();
+        }
         dealer = new Dealer(env, table, players);
         for (int i = 0; i < players.length; i++)
-            players[i] = new Player(env, dealer, table, i, i < env.config.humanPlayers);
+            players[i] = new Player(env, dealer, table, i, i < env.config.humanPlayers + env.config.remotePlayers);
+
+        if (config.spectatorPort > 0)
+            try {
+                SpectatorBroadcaster broadcaster = new SpectatorBroadcaster(logger, config);
+                broadcaster.listen(config.spectatorPort);
+                eventBus.subscribe("spectators", broadcaster);
+            } catch (IOException | IllegalArgumentException e) {
+                logger.severe("cannot broadcast to spectators on port " + config.spectatorPort + ": " + e.getMessage());
+            }
+
+        if (config.serverPort > 0)
+            try {
+                GameServer server = new GameServer(logger, config, table, players);
+                eventBus.subscribe("server", server);
+                server.start();
+            } catch (IOException e) {
+                logger.severe("cannot start the game server on port " + config.serverPort + ": " + e.getMessage());
+            }
+
+        if (!config.checkpointFile.isEmpty())
+            try {
+                Checkpoint checkpoint = new Checkpoint(Paths.get(config.checkpointFile), config);
+                Checkpoint.State state = config.resumeFromCheckpoint ? checkpoint.load() : null;
+                if (state != null) {
+                    logger.severe("resuming the game saved at " + new Date(state.savedAtMillis));
+                    dealer.resume(state);
+                }
+                dealer.enableCheckpoints(checkpoint);
+            } catch (IOException | IllegalArgumentException e) {
+                logger.severe("cannot use checkpoint file " + config.checkpointFile + ": " + e.getMessage());
+            }
 
         // start the dealer thread
         ThreadLogger dealerThread = new ThreadLogger(dealer, "dealer", logger);
@@ -84,6 +173,20 @@ public class Main {
             ThreadLogger.logStop(logger, Thread.currentThread().getName());
             if (!xButtonPressed)
                 env.ui.dispose();
+            if (eventBus != null && eventBus.dropped() > 0)
+                logger.severe("event bus consumers dropped " + eventBus.dropped() + " events");
+            journal.close();
+            if (threadMonitor != null)
+                threadMonitor.stop();
+            if (metricsEndpoint != null)
+                metricsEndpoint.stop();
+            if (metrics != null)
+                metrics.dispose();
+            if (asyncLog != null) {
+                asyncLog.close();
+                if (asyncLog.dropped() > 0)
+                    logger.severe("async log dropped " + asyncLog.dropped() + " events");
+            }
             for (Handler h : logger.getHandlers())
                 h.flush();
         }
@@ -97,7 +200,8 @@ public class Main {
         try {
             // noinspection ResultOfMethodCallIgnored
             new File("./logs/").mkdirs();
-            handler = new FileHandler("./logs/" + format.format(Calendar.getInstance().getTime()) + ".log");
+            logFilePrefix = "./logs/" + format.format(Calendar.getInstance().getTime());
+            handler = new FileHandler(logFilePrefix + ".log");
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
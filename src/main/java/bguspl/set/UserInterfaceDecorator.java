@@ -2,6 +2,7 @@ package bguspl.set;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
@@ -10,53 +11,59 @@ public class UserInterfaceDecorator implements UserInterface {
     private final Logger logger;
     private final Util util;
     private final UserInterface ui;
+    private final AsyncLog asyncLog;
 
     public UserInterfaceDecorator(Logger logger, Util util, UserInterface ui) {
+        this(logger, util, ui, null);
+    }
+
+    public UserInterfaceDecorator(Logger logger, Util util, UserInterface ui, AsyncLog asyncLog) {
         this.ui = ui;
         this.logger = logger;
         this.util = util;
+        this.asyncLog = asyncLog;
 
         if (ui == null) System.out.println("running without a user interface. Check logs.");
     }
 
     @Override
     public void placeCard(int card, int slot) {
-        logger.severe("placing card " + card + " in slot " + slot);
+        log(AsyncLog.Event.PLACE_CARD, card, slot);
         util.spin();
         if (ui != null) ui.placeCard(card, slot);
     }
 
     @Override
     public void removeCard(int slot) {
-        logger.severe("removing card from slot " + slot);
+        log(AsyncLog.Event.REMOVE_CARD, slot, 0);
         util.spin();
         if (ui != null) ui.removeCard(slot);
     }
 
     @Override
     public void placeToken(int player, int slot) {
-        logger.severe("player " + (player + 1) + " placing token on slot " + slot);
+        log(AsyncLog.Event.PLACE_TOKEN, player + 1, slot);
         util.spin();
         if (ui != null) ui.placeToken(player, slot);
     }
 
     @Override
     public void removeTokens() {
-        logger.severe("removing all tokens");
+        log(AsyncLog.Event.REMOVE_TOKENS, 0, 0);
         util.spin();
         if (ui != null) ui.removeTokens();
     }
 
     @Override
     public void removeTokens(int slot) {
-        logger.severe("removing tokens from slot " + slot);
+        log(AsyncLog.Event.REMOVE_SLOT_TOKENS, slot, 0);
         util.spin();
         if (ui != null) ui.removeTokens(slot);
     }
 
     @Override
     public void removeToken(int player, int slot) {
-        logger.severe("removing player " + (player + 1) + " token from slot " + slot);
+        log(AsyncLog.Event.REMOVE_TOKEN, player + 1, slot);
         util.spin();
         if (ui != null) ui.removeToken(player, slot);
     }
@@ -64,27 +71,27 @@ public class UserInterfaceDecorator implements UserInterface {
     @Override
     public void setCountdown(long millies, boolean warn) {
         if (!warn || millies % 1000L == 0L)
-            logger.severe("updating countdown to " + millies);
+            log(AsyncLog.Event.SET_COUNTDOWN, millies, 0);
         if (ui != null) ui.setCountdown(millies, warn);
     }
 
     @Override
     public void setElapsed(long millies) {
-        logger.severe("updating elapsed time to " + millies);
+        log(AsyncLog.Event.SET_ELAPSED, millies, 0);
         util.spin();
         if (ui != null) ui.setElapsed(millies);
     }
 
     @Override
     public void setFreeze(int player, long millies) {
-        logger.severe("setting player " + (player + 1) + " freeze to " + millies);
+        log(AsyncLog.Event.SET_FREEZE, player + 1, millies);
         util.spin();
         if (ui != null) ui.setFreeze(player, millies);
     }
 
     @Override
     public void setScore(int player, int score) {
-        logger.severe("setting player " + (player + 1) + " score to " + score);
+        log(AsyncLog.Event.SET_SCORE, player + 1, score);
         util.spin();
         if (ui != null) ui.setScore(player, score);
     }
@@ -96,6 +103,17 @@ public class UserInterfaceDecorator implements UserInterface {
         if (ui != null) ui.announceWinner(players);
     }
 
+    /**
+     * Logs a ui event, asynchronously if an asynchronous log is set.
+     * The level is checked before the message is built, so a disabled log costs nothing.
+     */
+    private void log(AsyncLog.Event event, long first, long second) {
+        if (asyncLog != null)
+            asyncLog.log(event, first, second);
+        else if (logger.isLoggable(Level.SEVERE))
+            logger.severe(AsyncLog.message(event, first, second));
+    }
+
     @Override
     public void dispose() {
         logger.severe("disposing of user interface elements");
@@ -4,10 +4,10 @@ import bguspl.set.ex.Player;
 
 import javax.swing.*;
 import java.awt.*;
-import java.io.FileNotFoundException;
-import java.net.URL;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
@@ -15,6 +15,11 @@ import static java.lang.String.format;
 
 /**
  * Java Swing implementation of the UserInterface interface.
+ * <p>
+ * The interface methods only record the latest state (and which cells changed); a fixed-rate Swing timer draws it on
+ * the event dispatch thread, repainting only the changed card cells. Many updates between two refreshes cost a single
+ * repaint, and the countdown and freeze times are kept as deadlines the timer renders by itself, so their display does
+ * not depend on how often the game threads update them.
  */
 public class UserInterfaceSwing extends JFrame implements UserInterface {
 
@@ -24,15 +29,50 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
     private final WinnerPanel winnerPanel;
     private final Config config;
 
+    /**
+     * The state set by the game threads and drawn by the refresh timer: the card in each slot (-1 for none), the
+     * tokens (at player * tableSize + slot) and the changed slots.
+     */
+    private final AtomicIntegerArray slotCards;
+    private final AtomicIntegerArray tokens;
+    private final AtomicIntegerArray dirtySlots;
+
+    /**
+     * The timer state: the countdown deadline, or the time the elapsed time is counted from (epoch milliseconds).
+     */
+    private static final int TIMER_NONE = 0, TIMER_COUNTDOWN = 1, TIMER_WARN = 2, TIMER_ELAPSED = 3;
+    private volatile int timerMode = TIMER_NONE;
+    private volatile long timerTime;
+
+    /**
+     * The end of each player's freeze (epoch milliseconds, 0 if not frozen) and the scores.
+     */
+    private final AtomicLongArray freezeDeadlines;
+    private final AtomicIntegerArray scores;
+
+    private final Timer refreshTimer;
+
     static String intInBaseToPaddedString(int n, int padding, int base) {
         return format("%" + padding + "s", Integer.toString(n, base)).replace(' ', '0');
     }
 
     public UserInterfaceSwing(Logger logger, Config config, Player[] players) {
+        this(logger, config, players, null);
+    }
+
+    public UserInterfaceSwing(Logger logger, Config config, Player[] players, AsyncLog asyncLog) {
 
         this.config = config;
+        slotCards = new AtomicIntegerArray(config.tableSize);
+        for (int slot = 0; slot < config.tableSize; ++slot)
+            slotCards.set(slot, -1);
+        tokens = new AtomicIntegerArray(config.players * config.tableSize);
+        dirtySlots = new AtomicIntegerArray(config.tableSize);
+        freezeDeadlines = new AtomicLongArray(config.players);
+        scores = new AtomicIntegerArray(config.players);
+
         timerPanel = new TimerPanel();
-        gamePanel = new GamePanel();
+        gamePanel = new GamePanel(logger);
         playersPanel = new PlayersPanel();
         winnerPanel = new WinnerPanel();
 
@@ -63,15 +103,39 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
         setLocationRelativeTo(null);
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
 
-        addKeyListener(new InputManager(logger, config, players));
+        addKeyListener(new InputManager(logger, config, players, asyncLog));
         addWindowListener(new WindowManager());
 
+        refreshTimer = new Timer(config.screenRefreshMillis, e -> refresh());
+        refreshTimer.setCoalesce(true);
+        refreshTimer.start();
+
         EventQueue.invokeLater(() -> setVisible(true));
     }
 
+    /**
+     * Draws the state recorded since the last refresh. Runs on the event dispatch thread.
+     */
+    private void refresh() {
+        long now = System.currentTimeMillis();
+        for (int slot = 0; slot < config.tableSize; ++slot)
+            if (dirtySlots.get(slot) != 0) {
+                dirtySlots.set(slot, 0);
+                gamePanel.refreshSlot(slot);
+            }
+        timerPanel.refresh(now);
+        playersPanel.refresh(now);
+    }
+
+    private void markDirty(int slot) {
+        dirtySlots.lazySet(slot, 1);
+    }
+
     private class TimerPanel extends JPanel {
 
         private final JLabel timerField;
+        private String text;
+        private boolean warned;
 
         private String generateTime(long millies, boolean warn) {
             if (warn)
@@ -90,43 +154,39 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
             add(timerField);
         }
 
-        private void setCountdown(long millies, boolean warn) {
-            timerField.setText(generateTime(millies, warn));
-            timerField.setForeground(warn ? Color.RED : Color.BLACK);
-        }
-
-        private void setElapsed(long millies) {
-            timerField.setText("Elapsed time: " + millies / 1000);
+        private void refresh(long now) {
+            int mode = timerMode;
+            if (mode == TIMER_NONE)
+                return;
+            boolean warn = mode == TIMER_WARN;
+            String newText = mode == TIMER_ELAPSED ? "Elapsed time: " + (now - timerTime) / 1000
+                    : generateTime(Math.max(0, timerTime - now), warn);
+            if (!newText.equals(text)) {
+                text = newText;
+                timerField.setText(newText);
+            }
+            if (warn != warned) {
+                warned = warn;
+                timerField.setForeground(warn ? Color.RED : Color.BLACK);
+            }
         }
     }
 
     private class GamePanel extends JLayeredPane {
 
+        private final CardImages cardImages;
         private final Image emptyCard;
-        private final Image[] deck;
         private final Image[][] grid;
         private final boolean[][][] playerTokens;
         private final JLabel[][] tokenText;
 
-        private Image loadImageResource(String filename) {
-            URL imageResource = getClass().getClassLoader().getResource(filename);
-            if (imageResource == null)
-                throw new RuntimeException(new FileNotFoundException(filename));
-            return new ImageIcon(imageResource).getImage();
-        }
-
-        private GamePanel() {
+        private GamePanel(Logger logger) {
 
             setPreferredSize(new Dimension(config.columns * config.cellWidth, config.rows * config.cellHeight));
 
-            // init deck and load all pictures from png files
-            assert config.featureSize < 10; // otherwise there will be naming conflicts
-
-            // load the image resources
-            deck = new Image[config.deckSize];
-            for (int i = 0; i < config.deckSize; ++i)
-                deck[i] = loadImageResource("cards/" + intInBaseToPaddedString(i, config.featureCount, config.featureSize) + ".png");
-            emptyCard = loadImageResource("cards/empty_card.png");
+            // the card images are decoded in the background, or when a card is first placed
+            cardImages = new CardImages(logger, config, new UtilImpl(config));
+            emptyCard = cardImages.emptyCard();
 
             grid = new Image[config.rows][config.columns];
             tokenText = new JLabel[config.rows][config.columns];
@@ -148,48 +208,24 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
             }
         }
 
-        private void placeCard(int slot, int card) {
-            int row = slot / config.columns;
-            int column = slot % config.columns;
-            grid[row][column] = deck[card];
-            validate();
-            repaint();
-        }
-
-        private void removeCard(int slot) {
-            int row = slot / config.columns;
-            int column = slot % config.columns;
-            grid[row][column] = emptyCard;
-            validate();
-            repaint();
-        }
-
-        private void placeToken(int player, int slot) {
-            int row = slot / config.columns;
-            int column = slot % config.columns;
-            playerTokens[player][row][column] = true;
-            tokenText[row][column].setText(generatePlayersTokenText(row, column));
-        }
-
-        private void removeTokens() {
-            for (int i = 0; i < config.tableSize; i++)
-                removeTokens(i);
-        }
-
-        private void removeTokens(int slot) {
+        private void refreshSlot(int slot) {
             int row = slot / config.columns;
             int column = slot % config.columns;
-            for (int player = 0; player < playerTokens.length; player++) {
-                playerTokens[player][row][column] = false;
-                tokenText[row][column].setText(generatePlayersTokenText(row, column));
+            int card = slotCards.get(slot);
+            Image image = card < 0 ? emptyCard : cardImages.card(card);
+            if (grid[row][column] != image) {
+                grid[row][column] = image;
+                repaint(column * config.cellWidth, row * config.cellHeight, config.cellWidth, config.cellHeight);
             }
-        }
 
-        private void removeToken(int player, int slot) {
-            int row = slot / config.columns;
-            int column = slot % config.columns;
-            playerTokens[player][row][column] = false;
-            tokenText[row][column].setText(generatePlayersTokenText(row, column));
+            boolean changed = false;
+            for (int player = 0; player < config.players; player++) {
+                boolean token = tokens.get(player * config.tableSize + slot) != 0;
+                changed |= playerTokens[player][row][column] != token;
+                playerTokens[player][row][column] = token;
+            }
+            if (changed)
+                tokenText[row][column].setText(generatePlayersTokenText(row, column));
         }
 
         private String generatePlayersTokenText(int row, int column) {
@@ -215,11 +251,15 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
     private class PlayersPanel extends JPanel {
 
         private final JLabel[][] playersTable;
+        private final long[] freezeSeconds;
+        private final int[] shownScores;
 
         private PlayersPanel() {
             this.setLayout(new GridLayout(2, config.players));
             this.setPreferredSize(new Dimension(config.players * config.playerCellWidth, config.rows * config.playerCellHeight));
             this.playersTable = new JLabel[2][config.players];
+            this.freezeSeconds = new long[config.players];
+            this.shownScores = new int[config.players];
             for (int i = 0; i < config.players; i++) {
                 this.playersTable[0][i] = new JLabel(config.playerNames[i]);
                 this.playersTable[0][i].setFont(new Font("Serif", Font.BOLD, config.fontSize));
@@ -235,19 +275,31 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
             }
         }
 
-        private void setFreeze(int player, long millies) {
-            if (millies > 0) {
-                this.playersTable[0][player].setText(config.playerNames[player] + " (" + millies / 1000 + ")");
+        private void refresh(long now) {
+            for (int player = 0; player < config.players; player++) {
+                long deadline = freezeDeadlines.get(player);
+                long seconds = deadline > now ? (deadline - now + 999) / 1000 : 0;
+                if (seconds != freezeSeconds[player]) {
+                    freezeSeconds[player] = seconds;
+                    setFreeze(player, seconds);
+                }
+                int score = scores.get(player);
+                if (score != shownScores[player]) {
+                    shownScores[player] = score;
+                    playersTable[1][player].setText(Integer.toString(score));
+                }
+            }
+        }
+
+        private void setFreeze(int player, long seconds) {
+            if (seconds > 0) {
+                this.playersTable[0][player].setText(config.playerNames[player] + " (" + seconds + ")");
                 this.playersTable[0][player].setForeground(Color.RED);
             } else {
                 this.playersTable[0][player].setText(config.playerNames[player]);
                 this.playersTable[0][player].setForeground(Color.BLACK);
             }
         }
-
-        private void setScore(int player, int score) {
-            playersTable[1][player].setText(Integer.toString(score));
-        }
     }
 
     private class WinnerPanel extends JPanel {
@@ -276,63 +328,76 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
 
     @Override
     public void placeCard(int card, int slot) {
-        gamePanel.placeCard(slot, card);
+        slotCards.set(slot, card);
+        markDirty(slot);
     }
 
     @Override
     public void removeCard(int slot) {
-        gamePanel.removeCard(slot);
+        slotCards.set(slot, -1);
+        markDirty(slot);
     }
 
     @Override
     public void placeToken(int player, int slot) {
-        gamePanel.placeToken(player, slot);
+        tokens.set(player * config.tableSize + slot, 1);
+        markDirty(slot);
     }
 
     @Override
     public void removeTokens() {
-        gamePanel.removeTokens();
+        for (int slot = 0; slot < config.tableSize; slot++)
+            removeTokens(slot);
     }
 
     @Override
     public void removeTokens(int slot) {
-        gamePanel.removeTokens(slot);
+        for (int player = 0; player < config.players; player++)
+            tokens.set(player * config.tableSize + slot, 0);
+        markDirty(slot);
     }
 
     @Override
     public void removeToken(int player, int slot) {
-        gamePanel.removeToken(player, slot);
+        tokens.set(player * config.tableSize + slot, 0);
+        markDirty(slot);
     }
 
     @Override
     public void setCountdown(long millies, boolean warn) {
-        timerPanel.setCountdown(millies, warn);
+        timerTime = System.currentTimeMillis() + millies;
+        timerMode = warn ? TIMER_WARN : TIMER_COUNTDOWN;
     }
 
     @Override
     public void setElapsed(long millies) {
-        timerPanel.setElapsed(millies);
+        timerTime = System.currentTimeMillis() - millies;
+        timerMode = TIMER_ELAPSED;
     }
 
     @Override
     public void setFreeze(int player, long millies) {
-        playersPanel.setFreeze(player, millies);
+        freezeDeadlines.set(player, millies > 0 ? System.currentTimeMillis() + millies : 0);
     }
 
     @Override
     public void setScore(int player, int score) {
-        playersPanel.setScore(player, score);
+        scores.set(player, score);
     }
 
     @Override
     public void announceWinner(int[] players) {
-        playersPanel.setVisible(false);
-        winnerPanel.announceWinner(players);
-        winnerPanel.setVisible(true);
+        int[] winners = players.clone();
+        EventQueue.invokeLater(() -> {
+            playersPanel.setVisible(false);
+            winnerPanel.announceWinner(winners);
+            winnerPanel.setVisible(true);
+        });
     }
 
     @Override
     public void dispose() {
+        refreshTimer.stop();
         super.dispose();
     }
 }
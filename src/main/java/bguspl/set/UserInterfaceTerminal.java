@@ -0,0 +1,361 @@
+package bguspl.set;
+
+import bguspl.set.ex.Player;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.logging.Logger;
+
+/**
+ * A text implementation of the UserInterface interface, for terminals that understand ANSI escape codes (e.g. when
+ * the game runs on a server with no display).
+ * <p>
+ * Like the Swing interface, the interface methods only record the latest state, and a render thread draws it at most
+ * TerminalRefreshRate times a second. Each frame is compared to the previous one line by line, and only the changed
+ * lines are rewritten, so an idle game writes nothing. Key presses are read from the standard input by a background
+ * thread and dispatched through the same key layout as the Swing interface (see InputManager).
+ */
+public class UserInterfaceTerminal implements UserInterface {
+
+    private static final String ESC = "\u001b[";
+    private static final String RESET = ESC + "0m";
+    private static final String RED = ESC + "31m";
+    private static final String[] FEATURE_COLORS = { ESC + "31m", ESC + "32m", ESC + "35m", ESC + "34m", ESC + "33m",
+            ESC + "36m" };
+
+    private static final int TIMER_NONE = 0, TIMER_COUNTDOWN = 1, TIMER_WARN = 2, TIMER_ELAPSED = 3;
+
+    /**
+     * The width of a card cell (in characters).
+     */
+    private static final int CELL_WIDTH = 18;
+
+    /**
+     * The number of milliseconds the input reader sleeps when there is no input.
+     */
+    private static final long INPUT_POLL_MILLIS = 10;
+
+    private final Logger logger;
+    private final Config config;
+    private final Util util;
+    private final PrintStream out;
+    private final InputStream in;
+    private final InputManager inputManager;
+
+    /**
+     * The state set by the game threads and drawn by the render thread (as in UserInterfaceSwing).
+     */
+    private final AtomicIntegerArray slotCards;
+    private final AtomicIntegerArray tokens;
+    private final AtomicLongArray freezeDeadlines;
+    private final AtomicIntegerArray scores;
+    private volatile long timerTime;
+    private volatile int timerMode = TIMER_NONE;
+    private volatile int[] winners;
+    private volatile boolean changed = true;
+
+    /**
+     * The lines currently on the screen.
+     */
+    private String[] screen = new String[0];
+
+    private final Thread renderThread;
+    private final Thread inputThread;
+    private volatile boolean terminate;
+    private final boolean rawTerminal;
+
+    public UserInterfaceTerminal(Logger logger, Config config, Player[] players) {
+        this(logger, config, players, null, System.out, System.in);
+    }
+
+    /**
+     * @param logger   - the game logger.
+     * @param config   - the game configuration.
+     * @param players  - the players (to dispatch key presses to).
+     * @param asyncLog - the asynchronous log for key presses (or null).
+     * @param out      - the terminal output.
+     * @param in       - the terminal input.
+     */
+    public UserInterfaceTerminal(Logger logger, Config config, Player[] players, AsyncLog asyncLog, PrintStream out,
+            InputStream in) {
+        this.logger = logger;
+        this.config = config;
+        this.util = new UtilImpl(config);
+        this.out = out;
+        this.in = in;
+        this.inputManager = new InputManager(logger, config, players, asyncLog);
+
+        slotCards = new AtomicIntegerArray(config.tableSize);
+        for (int slot = 0; slot < config.tableSize; ++slot)
+            slotCards.set(slot, -1);
+        tokens = new AtomicIntegerArray(config.players * config.tableSize);
+        freezeDeadlines = new AtomicLongArray(config.players);
+        scores = new AtomicIntegerArray(config.players);
+
+        // key presses should arrive one at a time, without echo (only possible on a real terminal)
+        rawTerminal = in == System.in && System.console() != null && stty("-icanon min 1 -echo");
+
+        out.print(ESC + "?25l" + ESC + "2J");
+        out.flush();
+
+        renderThread = new Thread(this::renderLoop, "terminal-ui");
+        renderThread.setDaemon(true);
+        renderThread.start();
+        inputThread = new Thread(this::inputLoop, "terminal-input");
+        inputThread.setDaemon(true);
+        inputThread.start();
+    }
+
+    private static boolean stty(String settings) {
+        try {
+            Process process = new ProcessBuilder("sh", "-c", "stty " + settings)
+                    .redirectInput(new File("/dev/tty")).start();
+            return process.waitFor() == 0;
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void renderLoop() {
+        long frameMillis = Math.max(1, 1000 / Math.max(1, config.terminalRefreshRate));
+        StringBuilder sb = new StringBuilder();
+        while (!terminate) {
+            // the timer and freeze displays change with time, the rest only when updated
+            if (changed || timerMode != TIMER_NONE || isAnyoneFrozen()) {
+                changed = false;
+                draw(frame(), sb);
+            }
+            try {
+                Thread.sleep(frameMillis);
+            } catch (InterruptedException ignored) {
+            }
+        }
+    }
+
+    private boolean isAnyoneFrozen() {
+        for (int player = 0; player < config.players; ++player)
+            if (freezeDeadlines.get(player) != 0)
+                return true;
+        return false;
+    }
+
+    /**
+     * Writes the lines that differ from the ones on the screen.
+     */
+    private void draw(String[] lines, StringBuilder sb) {
+        sb.setLength(0);
+        for (int i = 0; i < Math.max(lines.length, screen.length); ++i) {
+            String line = i < lines.length ? lines[i] : "";
+            if (i < screen.length && line.equals(screen[i]))
+                continue;
+            sb.append(ESC).append(i + 1).append(";1H").append(line).append(ESC).append('K');
+        }
+        screen = lines;
+        if (sb.length() > 0) {
+            out.print(sb);
+            out.flush();
+        }
+    }
+
+    private String[] frame() {
+        long now = System.currentTimeMillis();
+        String[] lines = new String[2 + 2 * config.rows + 2];
+        int line = 0;
+
+        int[] winners = this.winners;
+        if (winners != null) {
+            StringBuilder text = new StringBuilder(winners.length == 1 ? "THE WINNER IS: " : "IT IS A DRAW: ");
+            for (int i = 0; i < winners.length; ++i)
+                text.append(i > 0 ? " AND " : "").append(config.playerNames[winners[i]]);
+            lines[line++] = text.append(winners.length == 1 ? "!!!" : " WON!!!").toString();
+        } else
+            lines[line++] = timerText(now);
+        lines[line++] = "";
+
+        StringBuilder cards = new StringBuilder();
+        StringBuilder names = new StringBuilder();
+        for (int row = 0; row < config.rows; ++row) {
+            cards.setLength(0);
+            names.setLength(0);
+            for (int column = 0; column < config.columns; ++column) {
+                int slot = row * config.columns + column;
+                appendCard(cards, slotCards.get(slot));
+                appendTokens(names, slot);
+            }
+            lines[line++] = cards.toString();
+            lines[line++] = names.toString();
+        }
+
+        lines[line++] = "";
+        StringBuilder players = new StringBuilder();
+        for (int player = 0; player < config.players; ++player) {
+            long freeze = freezeDeadlines.get(player) - now;
+            String name = config.playerNames[player] + ": " + scores.get(player);
+            if (freeze > 0)
+                name = RED + name + " (" + (freeze + 999) / 1000 + ")" + RESET;
+            players.append(player > 0 ? "   " : "").append(name);
+        }
+        lines[line] = players.toString();
+        return lines;
+    }
+
+    private String timerText(long now) {
+        switch (timerMode) {
+            case TIMER_COUNTDOWN:
+                return "Remaining Time: " + Math.max(0, timerTime - now) / 1000;
+            case TIMER_WARN:
+                return RED + String.format("Remaining Time: %.2f", Math.max(0, timerTime - now) / 1000.0) + RESET;
+            case TIMER_ELAPSED:
+                return "Elapsed time: " + (now - timerTime) / 1000;
+            default:
+                return config.turnTimeoutMillis < 0 ? "PLAY" : "GET READY...";
+        }
+    }
+
+    /**
+     * Appends a card cell: the card's features (colored by the second feature), or dots for an empty slot.
+     */
+    private void appendCard(StringBuilder sb, int card) {
+        sb.append('[');
+        if (card < 0) {
+            for (int i = 0; i < config.featureCount; ++i)
+                sb.append('.');
+        } else {
+            int[] features = util.cardToFeatures(card);
+            if (features.length > 1)
+                sb.append(FEATURE_COLORS[features[1] % FEATURE_COLORS.length]);
+            for (int feature : features)
+                sb.append(Character.forDigit(feature, Character.MAX_RADIX));
+            sb.append(RESET);
+        }
+        sb.append(']');
+        pad(sb, CELL_WIDTH - config.featureCount - 2);
+    }
+
+    private void appendTokens(StringBuilder sb, int slot) {
+        int start = sb.length();
+        for (int player = 0; player < config.players; ++player)
+            if (tokens.get(player * config.tableSize + slot) != 0) {
+                if (sb.length() > start)
+                    sb.append(',');
+                sb.append(config.playerNames[player]);
+            }
+        if (sb.length() - start > CELL_WIDTH - 1)
+            sb.setLength(start + CELL_WIDTH - 1);
+        pad(sb, CELL_WIDTH - (sb.length() - start));
+    }
+
+    private static void pad(StringBuilder sb, int spaces) {
+        for (int i = 0; i < spaces; ++i)
+            sb.append(' ');
+    }
+
+    private void inputLoop() {
+        try {
+            while (!terminate) {
+                if (in.available() == 0) {
+                    Thread.sleep(INPUT_POLL_MILLIS);
+                    continue;
+                }
+                int c = in.read();
+                if (c < 0)
+                    break;
+                // the key codes of letters, digits and ,./; are their (upper case) characters
+                inputManager.dispatch(Character.toUpperCase(c));
+            }
+        } catch (IOException e) {
+            logger.severe("terminal input failed: " + e.getMessage());
+        } catch (InterruptedException ignored) {
+        }
+    }
+
+    @Override
+    public void placeCard(int card, int slot) {
+        slotCards.set(slot, card);
+        changed = true;
+    }
+
+    @Override
+    public void removeCard(int slot) {
+        slotCards.set(slot, -1);
+        changed = true;
+    }
+
+    @Override
+    public void placeToken(int player, int slot) {
+        tokens.set(player * config.tableSize + slot, 1);
+        changed = true;
+    }
+
+    @Override
+    public void removeTokens() {
+        for (int i = 0; i < tokens.length(); ++i)
+            tokens.set(i, 0);
+        changed = true;
+    }
+
+    @Override
+    public void removeTokens(int slot) {
+        for (int player = 0; player < config.players; ++player)
+            tokens.set(player * config.tableSize + slot, 0);
+        changed = true;
+    }
+
+    @Override
+    public void removeToken(int player, int slot) {
+        tokens.set(player * config.tableSize + slot, 0);
+        changed = true;
+    }
+
+    @Override
+    public void setCountdown(long millies, boolean warn) {
+        timerTime = System.currentTimeMillis() + millies;
+        timerMode = warn ? TIMER_WARN : TIMER_COUNTDOWN;
+    }
+
+    @Override
+    public void setElapsed(long millies) {
+        timerTime = System.currentTimeMillis() - millies;
+        timerMode = TIMER_ELAPSED;
+    }
+
+    @Override
+    public void setFreeze(int player, long millies) {
+        freezeDeadlines.set(player, millies > 0 ? System.currentTimeMillis() + millies : 0);
+        changed = true;
+    }
+
+    @Override
+    public void setScore(int player, int score) {
+        scores.set(player, score);
+        changed = true;
+    }
+
+    @Override
+    public void announceWinner(int[] players) {
+        winners = Arrays.copyOf(players, players.length);
+        changed = true;
+    }
+
+    @Override
+    public void dispose() {
+        terminate = true;
+        try {
+            renderThread.join(1000);
+        } catch (InterruptedException ignored) {
+        }
+        draw(frame(), new StringBuilder());
+        out.print(ESC + (screen.length + 1) + ";1H" + RESET + ESC + "?25h");
+        out.flush();
+        if (rawTerminal)
+            stty("icanon echo");
+    }
+}
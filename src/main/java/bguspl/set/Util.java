@@ -40,6 +40,14 @@ public interface Util {
      */
     List<int[]> findSets(List<Integer> deck, int count);
 
+    /**
+     * Finds the card that completes an array of config.featureSize - 1 cards to a legal set.
+     *
+     * @param cards - the array of cards.
+     * @return - the id of the completing card, or -1 if no single card completes the array to a legal set.
+     */
+    int completeSet(int[] cards);
+
     /**
      * Spin a random number of times (for debugging/testing).
      */
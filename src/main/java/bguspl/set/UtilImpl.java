@@ -90,6 +90,31 @@ public class UtilImpl implements Util {
         return sets;
     }
 
+    @Override
+    public int completeSet(int[] cards) {
+        if (cards.length < 2 || cards.length != config.featureSize - 1) return -1;
+        int[][] features = cardsToFeatures(cards);
+        int valuesSum = config.featureSize * (config.featureSize - 1) / 2;
+        int card = 0;
+        for (int i = 0; i < config.featureCount; ++i) {
+            boolean sameSame = true, butDifferent = true;
+            boolean[] seen = new boolean[config.featureSize];
+            int sum = 0;
+            for (int j = 0; j < features.length; ++j) {
+                if (features[j][i] != features[0][i]) sameSame = false;
+                if (seen[features[j][i]]) butDifferent = false;
+                seen[features[j][i]] = true;
+                sum += features[j][i];
+            }
+
+            // the missing card keeps a sameSame feature and completes a butDifferent one with the unused value
+            if (sameSame) card = card * config.featureSize + features[0][i];
+            else if (butDifferent) card = card * config.featureSize + valuesSum - sum;
+            else return -1;
+        }
+        return card;
+    }
+
     public void spin() {
         if (config.randomSpinMax <= 0) return;
         long cycles = ThreadLocalRandom.current().nextLong(config.randomSpinMin, config.randomSpinMax);
@@ -0,0 +1,45 @@
+package bguspl.set.ex;
+
+import bguspl.set.metrics.ThreadMonitor;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The scheduler that runs the key presses of all the computer players of the process, on a few shared daemon
+ * threads (instead of a thread per computer player). Each computer player schedules its next key press after its
+ * think time (see ThinkTime), so the load the computer players offer is set by the configuration rather than by how
+ * fast a thread can spin.
+ */
+final class AiScheduler {
+
+    private AiScheduler() {
+    }
+
+    private static ScheduledThreadPoolExecutor executor;
+
+    /**
+     * Returns the shared scheduler, creating it on first use and growing it when more threads are asked for than it
+     * has (e.g. by the games of a tournament, which share it).
+     *
+     * @param threads - the number of scheduler threads.
+     * @return - the scheduler.
+     */
+    static synchronized ScheduledExecutorService get(int threads) {
+        if (executor == null) {
+            AtomicInteger count = new AtomicInteger();
+            executor = new ScheduledThreadPoolExecutor(Math.max(1, threads), task -> {
+                Thread thread = new Thread(() -> {
+                    ThreadMonitor.attribute(-1, "computer-scheduler", -1);
+                    task.run();
+                }, "computer-scheduler-" + count.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            });
+            executor.setRemoveOnCancelPolicy(true);
+        } else if (threads > executor.getCorePoolSize())
+            executor.setCorePoolSize(threads);
+        return executor;
+    }
+}
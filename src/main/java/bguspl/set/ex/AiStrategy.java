@@ -0,0 +1,66 @@
+package bguspl.set.ex;
+
+import bguspl.set.Env;
+
+import java.util.Random;
+
+/**
+ * This interface chooses the key presses of a computer player.
+ * <p>
+ * Strategies (see parse):
+ * <ul>
+ * <li>random - any slot (the original computer player).</li>
+ * <li>greedy:T - picks a set on the table and presses its slots, after T milliseconds on average to spot it.</li>
+ * <li>skilled:R - like greedy, with a skill rating R between 0 and 1: a player rated 1 spots a set in half a second
+ * on average and never presses a wrong slot, a player rated 0 takes 5 seconds and presses a wrong slot 20% of the
+ * time.</li>
+ * </ul>
+ */
+public interface AiStrategy {
+
+    /**
+     * Chooses the computer player's next key press.
+     *
+     * @param table  - the latest snapshot of the table.
+     * @param player - the player id.
+     * @param random - the player's random generator.
+     * @return - the slot to press, or -1 to press nothing this time.
+     */
+    int nextSlot(TableSnapshot table, int player, Random random);
+
+    /**
+     * Parses a strategy specification.
+     *
+     * @param env   - the game environment object.
+     * @param hints - the hint service of the player's table.
+     * @param spec  - the specification.
+     * @return - a new strategy (strategies keep per player state, so every computer player needs its own).
+     * @throws IllegalArgumentException - if the specification is invalid.
+     */
+    static AiStrategy parse(Env env, HintService hints, String spec) {
+        int colon = spec.indexOf(':');
+        String kind = colon < 0 ? spec.trim() : spec.substring(0, colon).trim();
+        String argument = colon < 0 ? "" : spec.substring(colon + 1).trim();
+        try {
+            switch (kind) {
+                case "random":
+                    return new RandomAiStrategy();
+                case "greedy":
+                    double millis = Double.parseDouble(argument);
+                    if (millis < 0)
+                        break;
+                    return new GreedyAiStrategy(env, hints, (long) (millis * 1e6), 0);
+                case "skilled":
+                    double rating = Double.parseDouble(argument);
+                    if (rating < 0 || rating > 1)
+                        break;
+                    long spotNanos = (long) ((5000 - 4500 * rating) * 1e6);
+                    return new GreedyAiStrategy(env, hints, spotNanos, 0.2 * (1 - rating));
+                default:
+                    throw new IllegalArgumentException("unknown computer strategy " + spec);
+            }
+        } catch (NumberFormatException ignored) {
+        }
+        throw new IllegalArgumentException("invalid computer strategy " + spec);
+    }
+}
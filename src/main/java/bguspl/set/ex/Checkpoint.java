@@ -0,0 +1,185 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A checkpoint of the game state in a memory-mapped file, so a game can be resumed after a crash or a restart.
+ * <p>
+ * Saving a checkpoint only copies the state into the mapped memory (a few hundred bytes), the operating system writes
+ * it to the file, so the dealer can checkpoint from its own loop without stalling. The file holds two state regions
+ * that are written alternately. A region's generation is written last, so a checkpoint interrupted half-way leaves
+ * the other region as the last complete one.
+ * <p>
+ * File layout (little endian): a header (magic, version, deck size, table size, players) followed by two regions of:
+ * generation, save time, remaining reshuffle milliseconds, deck bitmask, slot to card array (-1 for an empty slot), a
+ * token bitmask (of players) per slot, and the players' scores.
+ */
+public class Checkpoint {
+
+    private static final int MAGIC = 0x4b434553; // "SECK"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 32;
+
+    /**
+     * The game state stored in a checkpoint.
+     */
+    public static class State {
+        public final long savedAtMillis;
+        public final long reshuffleRemainingMillis;
+        public final List<Integer> deck;
+        public final Integer[] slotToCard;
+        public final long[] tokens;
+        public final int[] scores;
+
+        State(long savedAtMillis, long reshuffleRemainingMillis, List<Integer> deck, Integer[] slotToCard,
+                long[] tokens, int[] scores) {
+            this.savedAtMillis = savedAtMillis;
+            this.reshuffleRemainingMillis = reshuffleRemainingMillis;
+            this.deck = deck;
+            this.slotToCard = slotToCard;
+            this.tokens = tokens;
+            this.scores = scores;
+        }
+    }
+
+    private final Config config;
+    private final MappedByteBuffer buffer;
+    private final int deckWords;
+    private final int regionBytes;
+    private final long[] deckMask;
+
+    /**
+     * Opens (or creates) a checkpoint file for the configured game dimensions.
+     *
+     * @param path   - the checkpoint file.
+     * @param config - the game configuration.
+     * @throws IOException - if the file cannot be opened or mapped.
+     */
+    public Checkpoint(Path path, Config config) throws IOException {
+        if (config.players > Long.SIZE)
+            throw new IllegalArgumentException("checkpoints support up to " + Long.SIZE + " players");
+        this.config = config;
+        deckWords = (config.deckSize + Long.SIZE - 1) / Long.SIZE;
+        deckMask = new long[deckWords];
+        regionBytes = 3 * Long.BYTES + deckWords * Long.BYTES + config.tableSize * (Integer.BYTES + Long.BYTES)
+                + config.players * Integer.BYTES;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES + 2L * regionBytes);
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (!matchesConfig()) {
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putInt(8, config.deckSize);
+            buffer.putInt(12, config.tableSize);
+            buffer.putInt(16, config.players);
+            buffer.putLong(HEADER_BYTES, 0);
+            buffer.putLong(HEADER_BYTES + regionBytes, 0);
+        }
+    }
+
+    private boolean matchesConfig() {
+        return buffer.getInt(0) == MAGIC && buffer.getInt(4) == VERSION && buffer.getInt(8) == config.deckSize
+                && buffer.getInt(12) == config.tableSize && buffer.getInt(16) == config.players;
+    }
+
+    /**
+     * Saves the game state into the region holding the older checkpoint.
+     * Should be called by the dealer thread only.
+     *
+     * @param deck                     - the cards in the dealer's deck.
+     * @param table                    - the table.
+     * @param players                  - the players.
+     * @param reshuffleRemainingMillis - the number of milliseconds left until the dealer reshuffles.
+     */
+    void save(List<Integer> deck, Table table, Player[] players, long reshuffleRemainingMillis) {
+        int latest = latestRegion();
+        long generation = buffer.getLong(latest) + 1;
+        int region = latest == HEADER_BYTES ? HEADER_BYTES + regionBytes : HEADER_BYTES;
+
+        buffer.putLong(region, 0); // incomplete until the generation is written last
+        buffer.putLong(region + 8, System.currentTimeMillis());
+        buffer.putLong(region + 16, reshuffleRemainingMillis);
+        int offset = region + 24;
+
+        Arrays.fill(deckMask, 0);
+        for (int card : deck)
+            deckMask[card / Long.SIZE] |= 1L << (card % Long.SIZE);
+        for (long word : deckMask) {
+            buffer.putLong(offset, word);
+            offset += Long.BYTES;
+        }
+        for (int slot = 0; slot < config.tableSize; ++slot) {
+            Integer card = table.slotToCard[slot];
+            buffer.putInt(offset, card == null ? -1 : card);
+            offset += Integer.BYTES;
+        }
+        for (int slot = 0; slot < config.tableSize; ++slot) {
+            long mask = 0;
+            for (int player = 0; player < players.length; ++player)
+                if (table.playersToken[slot][player])
+                    mask |= 1L << player;
+            buffer.putLong(offset, mask);
+            offset += Long.BYTES;
+        }
+        for (Player player : players) {
+            buffer.putInt(offset, player.score());
+            offset += Integer.BYTES;
+        }
+
+        buffer.putLong(region, generation);
+    }
+
+    /**
+     * @return - the offset of the region holding the last complete checkpoint.
+     */
+    private int latestRegion() {
+        return buffer.getLong(HEADER_BYTES) >= buffer.getLong(HEADER_BYTES + regionBytes) ? HEADER_BYTES
+                : HEADER_BYTES + regionBytes;
+    }
+
+    /**
+     * Loads the last complete checkpoint.
+     *
+     * @return - the saved game state, or null if the file holds no checkpoint of a game with these dimensions.
+     */
+    public State load() {
+        int region = latestRegion();
+        if (!matchesConfig() || buffer.getLong(region) == 0)
+            return null;
+
+        long savedAt = buffer.getLong(region + 8);
+        long reshuffleRemaining = buffer.getLong(region + 16);
+        int offset = region + 24;
+        List<Integer> deck = new ArrayList<>();
+        for (int word = 0; word < deckWords; ++word, offset += Long.BYTES) {
+            long bits = buffer.getLong(offset);
+            for (int bit = 0; bit < Long.SIZE; ++bit)
+                if ((bits & (1L << bit)) != 0)
+                    deck.add(word * Long.SIZE + bit);
+        }
+        Integer[] slotToCard = new Integer[config.tableSize];
+        for (int slot = 0; slot < config.tableSize; ++slot, offset += Integer.BYTES) {
+            int card = buffer.getInt(offset);
+            slotToCard[slot] = card < 0 ? null : card;
+        }
+        long[] tokens = new long[config.tableSize];
+        for (int slot = 0; slot < config.tableSize; ++slot, offset += Long.BYTES)
+            tokens[slot] = buffer.getLong(offset);
+        int[] scores = new int[config.players];
+        for (int player = 0; player < config.players; ++player, offset += Integer.BYTES)
+            scores[player] = buffer.getInt(offset);
+        return new State(savedAt, reshuffleRemaining, deck, slotToCard, tokens, scores);
+    }
+}
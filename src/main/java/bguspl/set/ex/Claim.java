@@ -0,0 +1,29 @@
+package bguspl.set.ex;
+
+/**
+ * A set claimed by a player, as taken by the dealer from the queue of players to check.
+ */
+class Claim {
+
+    /**
+     * The id of the claiming player.
+     */
+    final int player;
+
+    /**
+     * The slots the player placed tokens on and the cards in them (respectively).
+     */
+    final int[] slots;
+    final int[] cards;
+
+    /**
+     * True iff the claimed cards form a legal set.
+     */
+    boolean valid;
+
+    Claim(int player, int[] slots, int[] cards) {
+        this.player = player;
+        this.slots = slots;
+        this.cards = cards;
+    }
+}
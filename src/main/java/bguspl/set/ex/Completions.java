@@ -0,0 +1,54 @@
+package bguspl.set.ex;
+
+import bguspl.set.Env;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * Searches groups of cards for the card completing them to a legal set (see Util.completeSet).
+ */
+final class Completions {
+
+    private Completions() {
+    }
+
+    /**
+     * Looks for config.featureSize - 1 of the given cards whose completing card is accepted by a predicate.
+     *
+     * @param env    - the game environment object.
+     * @param cards  - the cards to search.
+     * @param accept - the predicate the completing card should satisfy.
+     * @return - the cards of the group followed by their completing card, or null if there is no such group.
+     */
+    static int[] find(Env env, int[] cards, IntPredicate accept) {
+        int n = cards.length;
+        int r = env.config.featureSize - 1;
+        if (r < 2 || n < r)
+            return null;
+
+        int[] combination = new int[r];
+        int[] group = new int[r + 1];
+        for (int i = 0; i < r; ++i)
+            combination[i] = i;
+
+        while (combination[r - 1] < n) {
+            for (int i = 0; i < r; ++i)
+                group[i] = cards[combination[i]];
+            int completing = env.util.completeSet(Arrays.copyOf(group, r));
+            if (completing >= 0 && accept.test(completing)) {
+                group[r] = completing;
+                return group;
+            }
+
+            // generate next combination in lexicographic order
+            int t = r - 1;
+            while (t != 0 && combination[t] == n - r + t)
+                --t;
+            combination[t]++;
+            for (int i = t + 1; i < r; i++)
+                combination[i] = combination[i - 1] + 1;
+        }
+        return null;
+    }
+}
@@ -1,6 +1,9 @@
 package bguspl.set.ex;
 
 import bguspl.set.Env;
+import bguspl.set.journal.Journal;
+import bguspl.set.metrics.ThreadMonitor;
+import bguspl.set.trace.Trace;
 import java.util.Random;
 import java.util.concurrent.Semaphore;
 import java.util.List;
@@ -30,6 +33,16 @@ public class Dealer implements Runnable {
      */
     private final List<Integer> deck;
 
+    /**
+     * The source of the dealer's random choices of cards and slots (seeded by Config.dealerSeed).
+     */
+    private final Random random;
+
+    /**
+     * Chooses the cards dealt from the deck to the table.
+     */
+    private final DealingStrategy dealingStrategy;
+
     /**
      * True iff game should be terminated due to an external event.
      */
@@ -39,13 +52,31 @@ public class Dealer implements Runnable {
      * The time when the dealer needs to reshuffle the deck due to turn timeout.
      */
     private long reshuffleTime = Long.MAX_VALUE;
+
+    /**
+     * The number of milliseconds from a deal or a found set until the dealer reshuffles.
+     */
+    private final ReshuffleTimeout reshuffleTimeout;
+
+    /**
+     * The checkpoint the game state is periodically saved to (null if none), and when to save it next.
+     */
+    private Checkpoint checkpoint;
+    private long nextCheckpointTime;
+
+    /**
+     * The number of milliseconds left of the turn a resumed game was saved in (-1 if the game was not resumed).
+     */
+    private long resumedTimeout = -1;
     public boolean setFound;
     protected Semaphore mainLock;
     protected volatile boolean tableLock;
     protected volatile Queue<Integer> playersToCheck;
-    protected int[] currentSetCards;
-    protected int[] currentSetSlots;
-    protected int setID;
+
+    /**
+     * The legal sets committed in the last batch of claims, in arrival order.
+     */
+    protected final List<Claim> foundSets;
     private int sleepTime;
 
     public Dealer(Env env, Table table, Player[] players) {
@@ -53,14 +84,15 @@ public class Dealer implements Runnable {
         this.table = table;
         this.players = players;
         deck = IntStream.range(0, env.config.deckSize).boxed().collect(Collectors.toList());
+        random = env.config.dealerSeed == 0 ? new Random() : new Random(env.config.dealerSeed);
+        dealingStrategy = DealingStrategy.create(env, random);
+        reshuffleTimeout = new ReshuffleTimeout(env.config);
         terminate = false;
         setFound = false;
         mainLock = new Semaphore(1, true);
         tableLock = false;
         playersToCheck = new LinkedList<Integer>();
-        currentSetCards = new int[env.config.featureSize];
-        currentSetSlots = new int[env.config.featureSize];
-        setID = -1;
+        foundSets = new ArrayList<>();
         sleepTime = 1000;
     }
 
@@ -70,11 +102,12 @@ public class Dealer implements Runnable {
     @Override
     public void run() {
         env.logger.log(Level.INFO, "Thread " + Thread.currentThread().getName() + " starting.");
+        ThreadMonitor.attribute(table.id, "dealer", -1);
         // System.out.println("DEALER is starting ");
         // Create a thread for each Runnable(palyer) object
         Thread[] threads = new Thread[players.length];
         for (int i = 0; i < threads.length; i++) {
-            threads[i] = new Thread(players[i]);
+            threads[i] = new Thread(players[i], "player-" + players[i].id);
         }
 
         // Start each thread
@@ -86,7 +119,8 @@ public class Dealer implements Runnable {
         updateTimerDisplay(true);
 
         while (!shouldFinish()) {
-            placeCardsOnTable(true);
+            if (resumedTimeout < 0)
+                placeCardsOnTable(true);
             timerLoop();
             updateTimerDisplay(true);
             // env.ui.setCountdown(reshuffleTime - System.currentTimeMillis(), false);
@@ -105,13 +139,82 @@ public class Dealer implements Runnable {
      * not time out.
      */
     private void timerLoop() {
-        reshuffleTime = System.currentTimeMillis() + env.config.turnTimeoutMillis;
+        reshuffleTimeout.start(System.currentTimeMillis());
+        reshuffleTime = System.currentTimeMillis() + (resumedTimeout < 0 ? reshuffleTimeout.millis() : resumedTimeout);
+        resumedTimeout = -1;
+        boolean tableChanged = true;
+        long dealtNanos = System.nanoTime();
         while (!terminate && System.currentTimeMillis() < reshuffleTime) {
+            if (tableChanged && env.config.adaptiveTurnTimeout && !table.hasSet()) {
+                env.logger.info("no legal set on the table, reshuffling early");
+                return;
+            }
+            long iterationNanos = System.nanoTime();
             sleepUntilWokenOrTimeout();
+            tableChanged = setFound;
+            if (setFound) {
+                reshuffleTimeout.setFound(System.currentTimeMillis());
+                table.metrics.timeToSet.recordSince(dealtNanos);
+                table.metrics.sets.add(foundSets.size());
+                dealtNanos = System.nanoTime();
+            }
             updateTimerDisplay(setFound);
             removeCardsFromTable();
             placeCardsOnTable(false);
+            checkpointIfDue();
+            table.metrics.dealerLoop.recordSince(iterationNanos);
+        }
+        if (!terminate)
+            reshuffleTimeout.timedOut(System.currentTimeMillis());
+    }
+
+    /**
+     * Periodically saves the game state to the checkpoint (every config.checkpointIntervalMillis).
+     *
+     * @param checkpoint - the checkpoint to save to.
+     */
+    public void enableCheckpoints(Checkpoint checkpoint) {
+        this.checkpoint = checkpoint;
+    }
+
+    private void checkpointIfDue() {
+        long now = System.currentTimeMillis();
+        if (checkpoint == null || now < nextCheckpointTime)
+            return;
+        checkpoint.save(deck, table, players, reshuffleTime - now);
+        nextCheckpointTime = now + env.config.checkpointIntervalMillis;
+    }
+
+    /**
+     * Restores a saved game state (before the dealer thread starts): the deck, the cards and tokens on the table,
+     * the scores and the time left until the reshuffle. A player saved with a full selection claims it again.
+     *
+     * @param state - the state loaded from a checkpoint.
+     */
+    public void resume(Checkpoint.State state) {
+        deck.clear();
+        deck.addAll(state.deck);
+        for (int slot = 0; slot < env.config.tableSize; slot++) {
+            Integer card = state.slotToCard[slot];
+            if (card != null)
+                table.restoreCard(card, slot);
         }
+        for (int slot = 0; slot < env.config.tableSize; slot++)
+            for (Player p : players)
+                if ((state.tokens[slot] & (1L << p.id)) != 0) {
+                    table.placeToken(p.id, slot);
+                    p.playerAction.add(slot);
+                }
+        for (Player p : players)
+            if (p.playerAction.size() == env.config.featureSize) { // a claim saved before it was verified
+                p.queueIsChecked = true;
+                p.block = true;
+                p.claimNanos = System.nanoTime();
+                playersToCheck.add(p.id);
+            }
+        for (Player p : players)
+            p.restoreScore(state.scores[p.id]);
+        resumedTimeout = Math.max(0, state.reshuffleRemainingMillis);
     }
 
     /**
@@ -142,76 +245,136 @@ public class Dealer implements Runnable {
     /**
      * Checks cards should be removed from the table and removes them.
      */
-    private void removeCardsFromTable() {
+    void removeCardsFromTable() {
         tableLock = true;
         if (setFound) {
-            for (Integer card : currentSetCards) {
-                deck.remove(card);
-            }
-            shuffleArray(currentSetSlots);
-            for (int slot : currentSetSlots) {
-                // System.out.println("remove token to player " + setID + " from slot " + slot);
-                table.removeToken(setID, slot);
-                table.removeCard(slot);
-                for (Player p : players) {
-                    int x = p.id;
-                    // System.out.println("enter for");
-                    if (x != setID && table.playersToken[slot][x]) {
-                        // System.out.println("enter if");
-                        table.removeToken(x, slot);
-                        players[x].playerAction.remove(slot);
-                        if (playersToCheck.remove(x)) {// found a player that have set waiting with the removed token
-                            players[x].block = false;
-                            players[x].queueIsChecked = false;
-                            if (!players[x].human)
-                                players[x].aiThread.interrupt();
-
-                        }
-                    }
+            for (Claim claim : foundSets) {
+                for (Integer card : claim.cards) {
+                    deck.remove(card);
+                }
+                shuffleArray(claim.slots);
+                for (int slot : claim.slots) {
+                    table.removeToken(claim.player, slot);
+                    table.removeCard(slot);
+                    removeOtherTokens(slot, claim.player);
                 }
-
             }
 
         }
         tableLock = false;
     }
 
+    /**
+     * Removes the tokens placed on a slot by all players except one, releasing players whose claim was waiting
+     * with one of these tokens.
+     *
+     * @param slot   - the slot to clear.
+     * @param except - the player whose token is kept (-1 for none).
+     */
+    private void removeOtherTokens(int slot, int except) {
+        for (Player p : players) {
+            int x = p.id;
+            if (x != except && table.playersToken[slot][x]) {
+                table.removeToken(x, slot);
+                players[x].playerAction.remove(slot);
+                if (playersToCheck.remove(x)) {// found a player that have set waiting with the removed token
+                    players[x].block = false;
+                    players[x].queueIsChecked = false;
+                    players[x].wake();
+
+                }
+            }
+        }
+    }
+
     /**
      * Check if any cards can be removed from the deck and placed on the table.
      */
     public void placeCardsOnTable(boolean allCards) {
         tableLock = true;
+        long start = Trace.TRACER.start();
         if (allCards) {
             int[] emptySlots = new int[env.config.tableSize];
             for (int j = 0; j < emptySlots.length; j++) {
                 emptySlots[j] = j;
             }
             shuffleArray(emptySlots);
-            for (int i = 0; i < emptySlots.length && !deck.isEmpty(); i++) { // maybe there arent cards on the deck
-                Random rnd = new Random();
-                int newCard = rnd.nextInt(deck.size());
-                table.placeCard(deck.remove(newCard), emptySlots[i]);
+            List<Integer> cards = dealingStrategy.deal(deck, tableCards(), emptySlots.length);
+            for (int i = 0; i < cards.size(); i++) { // maybe there arent cards on the deck
+                table.placeCard(cards.get(i), emptySlots[i]);
             }
-            // table.hints();
+            Trace.TRACER.cardsDealt(table.id, cards.size(), deck.size(), start);
+            if (env.config.redealDeadTable)
+                redealDeadTable();
+            if (env.config.hints)
+                table.hints();
         } else if (setFound) {
 
-            for (int i = 0; i < currentSetSlots.length && !deck.isEmpty(); i++) {
-                Random rnd = new Random();
-                int newCard = rnd.nextInt(deck.size());
-                table.placeCard(deck.remove(newCard), currentSetSlots[i]);
+            List<Integer> emptySlots = new ArrayList<>();
+            for (Claim claim : foundSets) {
+                for (int slot : claim.slots)
+                    emptySlots.add(slot);
+            }
+            List<Integer> cards = dealingStrategy.deal(deck, tableCards(), emptySlots.size());
+            for (int i = 0; i < cards.size(); i++) {
+                table.placeCard(cards.get(i), emptySlots.get(i));
             }
+            Trace.TRACER.cardsDealt(table.id, cards.size(), deck.size(), start);
 
+            foundSets.clear();
             setFound = false;
-            // table.hints();
+            if (env.config.redealDeadTable)
+                redealDeadTable();
+            if (env.config.hints)
+                table.hints();
         }
         tableLock = false;
 
     }
 
+    private int[] tableCards() {
+        return Arrays.stream(table.slotToCard).filter(Objects::nonNull).mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * If the cards on the table contain no legal set, swaps in a single deck card that completes a set with cards
+     * already on the table (into an empty slot if there is one), instead of waiting for the turn timeout.
+     */
+    private void redealDeadTable() {
+        if (table.hasSet())
+            return;
+        int[] group = table.findCompletion(card -> deck.contains(card));
+        if (group == null)
+            return; // no card in the deck can complete a set, the turn timeout will reshuffle
+        int completing = group[group.length - 1];
+
+        int slot = -1;
+        for (int i = 0; i < env.config.tableSize && slot < 0; i++)
+            if (table.slotToCard[i] == null)
+                slot = i;
+        for (int i = 0; i < env.config.tableSize && slot < 0; i++) {
+            boolean inGroup = false;
+            for (int j = 0; j < group.length - 1; j++)
+                inGroup |= table.slotToCard[i] == group[j];
+            if (!inGroup)
+                slot = i;
+        }
+        if (slot < 0)
+            return;
+
+        env.logger.info("no legal set on the table, swapping card " + completing + " into slot " + slot);
+        if (table.slotToCard[slot] != null) {
+            removeOtherTokens(slot, -1);
+            deck.add(table.slotToCard[slot]);
+            table.removeCard(slot);
+        }
+        deck.remove(Integer.valueOf(completing));
+        table.placeCard(completing, slot);
+    }
+
     // Implementing Fisher–Yates shuffle
-    private static void shuffleArray(int[] array) {
+    private void shuffleArray(int[] array) {
         int index, temp;
-        Random random = new Random();
         for (int i = array.length - 1; i > 0; i--) {
             index = random.nextInt(i + 1);
             temp = array[index];
@@ -226,7 +389,9 @@ public class Dealer implements Runnable {
      */
     private void sleepUntilWokenOrTimeout() {
 
+        long lockNanos = System.nanoTime();
         synchronized (mainLock) {
+            table.metrics.lockWait.recordSince(lockNanos);
             if (playersToCheck.isEmpty()) {
                 try {
                     mainLock.wait(sleepTime);
@@ -234,16 +399,7 @@ public class Dealer implements Runnable {
                 } catch (InterruptedException e) {
                 }
             } else {
-
-                setID = playersToCheck.remove();
-                currentSetCards = slotsQueueToArray(players[setID].playerAction);
-                setFound = env.util.testSet(currentSetCards);
-                // setFound = true;
-                if (setFound) {
-                    currentSetSlots = QueueToArray(players[setID].playerAction);
-                    players[setID].flag = 1;
-                } else
-                    players[setID].flag = -1;
+                checkClaims();
                 mainLock.notifyAll();
 
             }
@@ -251,6 +407,127 @@ public class Dealer implements Runnable {
 
     }
 
+    /**
+     * Takes the queued claims as one batch, checks them and commits the legal sets (called holding mainLock).
+     */
+    void checkClaims() {
+        List<Claim> batch = new ArrayList<>(playersToCheck.size());
+        while (!playersToCheck.isEmpty()) {
+            int id = playersToCheck.remove();
+            batch.add(new Claim(id, QueueToArray(players[id].playerAction),
+                    slotsQueueToArray(players[id].playerAction)));
+        }
+        long verifyStart = Trace.TRACER.start();
+        verifyClaims(batch);
+        commitClaims(batch, verifyStart);
+    }
+
+    /**
+     * Checks a batch of claims. Each check is a single comparison (or one testSet), far cheaper than handing the
+     * batch to other threads.
+     *
+     * @param batch - the claims taken from the queue of players to check.
+     */
+    private void verifyClaims(List<Claim> batch) {
+        for (Claim claim : batch)
+            claim.valid = verify(players[claim.player], claim.cards);
+    }
+
+    /**
+     * Commits the legal sets of a checked batch in arrival order. A legal set sharing a slot with a set committed
+     * before it is invalidated: its player is queued again and released without a penalty once the committed
+     * set's cards are removed from the table.
+     *
+     * @param batch       - the checked claims, in arrival order.
+     * @param verifyStart - the Trace.TRACER.start() reading taken before the batch was checked.
+     */
+    private void commitClaims(List<Claim> batch, long verifyStart) {
+        boolean[] takenSlots = new boolean[env.config.tableSize];
+        for (Claim claim : batch) {
+            if (!claim.valid) {
+                table.metrics.invalidClaims.increment();
+                table.metrics.claimLatency.recordSince(players[claim.player].claimNanos);
+                Trace.TRACER.claimVerified(table.id, claim.player, -1, players[claim.player].claimNanos, verifyStart);
+                env.journal.record(Journal.Type.VERDICT, table.id, claim.player, -1, -1, -1);
+                players[claim.player].flag = -1;
+                continue;
+            }
+            boolean conflict = false;
+            for (int slot : claim.slots)
+                conflict |= takenSlots[slot];
+            if (conflict) {
+                Trace.TRACER.claimVerified(table.id, claim.player, 0, players[claim.player].claimNanos, verifyStart);
+                env.journal.record(Journal.Type.VERDICT, table.id, claim.player, -1, -1, 0);
+                playersToCheck.add(claim.player);
+                continue;
+            }
+            for (int slot : claim.slots)
+                takenSlots[slot] = true;
+            foundSets.add(claim);
+            table.metrics.validClaims.increment();
+            table.metrics.claimLatency.recordSince(players[claim.player].claimNanos);
+            Trace.TRACER.claimVerified(table.id, claim.player, 1, players[claim.player].claimNanos, verifyStart);
+            env.journal.record(Journal.Type.VERDICT, table.id, claim.player, -1, -1, 1);
+            players[claim.player].flag = 1;
+        }
+        setFound = !foundSets.isEmpty();
+    }
+
+    /**
+     * Precomputes the card that completes the player's partial selection to a legal set, so the verdict for the
+     * final key press is a single comparison.
+     *
+     * @param player - the player holding config.featureSize - 1 tokens.
+     */
+    protected void speculate(Player player) {
+        int[] cards = new int[env.config.featureSize - 1];
+        int i = 0;
+        for (int slot : player.playerAction) {
+            Integer card = table.slotToCard[slot];
+            if (i == cards.length || card == null) {
+                player.partialCards = null;
+                return;
+            }
+            cards[i++] = card;
+        }
+        if (i < cards.length) {
+            player.partialCards = null;
+            return;
+        }
+        player.completingCard = env.util.completeSet(cards);
+        player.partialCards = cards;
+    }
+
+    /**
+     * Checks if the cards claimed by a player form a legal set, using the card precomputed by speculate when the
+     * claim extends the player's last partial selection.
+     *
+     * @param player - the claiming player.
+     * @param cards  - the claimed cards.
+     * @return - true iff the cards form a legal set.
+     */
+    private boolean verify(Player player, int[] cards) {
+        int[] partial = player.partialCards;
+        if (partial != null) {
+            int matched = 0, extra = -1;
+            for (int card : cards) {
+                boolean inPartial = false;
+                for (int p : partial)
+                    if (p == card) {
+                        inPartial = true;
+                        break;
+                    }
+                if (inPartial)
+                    matched++;
+                else
+                    extra = card;
+            }
+            if (matched == partial.length)
+                return extra == player.completingCard;
+        }
+        return env.util.testSet(cards);
+    }
+
     private int[] slotsQueueToArray(Queue<Integer> q) {
         int[] a = new int[env.config.featureSize];
         int temp;
@@ -280,17 +557,23 @@ public class Dealer implements Runnable {
         if (reset) {
             sleepTime = 1000;
             // System.out.println(" reset time");
-            env.ui.setCountdown(env.config.turnTimeoutMillis, false);
+            long timeout = reshuffleTimeout.millis();
+            Trace.TRACER.timerTick(table.id, timeout, false);
+            env.ui.setCountdown(timeout, false);
             // env.ui.setCountdown(10000, false);
-            reshuffleTime = System.currentTimeMillis() + env.config.turnTimeoutMillis;
+            reshuffleTime = System.currentTimeMillis() + timeout;
             // reshuffleTime = System.currentTimeMillis() + 10000;
             // System.out.println(" the time is 60");
 
         } else if (reshuffleTime - System.currentTimeMillis() < env.config.turnTimeoutWarningMillis) {
             sleepTime = 10;
-            env.ui.setCountdown(reshuffleTime - System.currentTimeMillis(), true);
+            long remaining = reshuffleTime - System.currentTimeMillis();
+            Trace.TRACER.timerTick(table.id, remaining, true);
+            env.ui.setCountdown(remaining, true);
         } else {
-            env.ui.setCountdown(reshuffleTime - System.currentTimeMillis(), false);
+            long remaining = reshuffleTime - System.currentTimeMillis();
+            Trace.TRACER.timerTick(table.id, remaining, false);
+            env.ui.setCountdown(remaining, false);
         }
     }
 
@@ -300,6 +583,9 @@ public class Dealer implements Runnable {
     public void removeAllCardsFromTable() {
         // System.out.println("removeAll");
         tableLock = true;
+        long start = Trace.TRACER.start();
+        env.journal.record(Journal.Type.RESHUFFLE, table.id, -1, -1, -1, deck.size());
+        table.metrics.reshuffles.increment();
         for (int i = 0; i < env.config.tableSize; i++) {
 
             for (Player p : players) {
@@ -313,15 +599,15 @@ public class Dealer implements Runnable {
                 table.removeCard(i);
             }
         }
+        for (int id : playersToCheck) // their claims are dropped with the cards
+            players[id].block = false;
         playersToCheck.clear();
+        Trace.TRACER.reshuffle(table.id, deck.size(), start);
         if (!shouldFinish())
             updateTimerDisplay(true);
         tableLock = false;
-        for (Player p : players) {
-            if (!p.human)
-                p.aiThread.interrupt();
-
-        }
+        for (Player p : players)
+            p.wake();
     }
 
     /**
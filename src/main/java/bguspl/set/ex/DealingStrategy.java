@@ -0,0 +1,35 @@
+package bguspl.set.ex;
+
+import bguspl.set.Env;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * This interface chooses the cards the dealer deals from the deck to the table.
+ */
+public interface DealingStrategy {
+
+    /**
+     * Removes cards from the deck to be placed on the table.
+     *
+     * @param deck       - the cards left in the dealer's deck.
+     * @param tableCards - the cards staying on the table.
+     * @param count      - the number of cards to deal.
+     * @return - the dealt cards (fewer than count iff the deck runs out).
+     */
+    List<Integer> deal(List<Integer> deck, int[] tableCards, int count);
+
+    /**
+     * Creates the dealing strategy selected in the configuration.
+     *
+     * @param env    - the game environment object.
+     * @param random - the source of the dealer's random choices.
+     * @return - the dealing strategy.
+     */
+    static DealingStrategy create(Env env, Random random) {
+        if (env.config.dealTargetSets > 0)
+            return new SetGuaranteeingDealingStrategy(env, env.config.dealTargetSets, random);
+        return new RandomDealingStrategy(random);
+    }
+}
@@ -0,0 +1,123 @@
+package bguspl.set.ex;
+
+import bguspl.set.Env;
+
+import java.util.Random;
+
+/**
+ * Picks a legal set on the table and presses its slots: first the slots holding the player's tokens that are not
+ * part of the set (to lift them), then the slots of the set. The player takes a while to spot each set (an
+ * exponentially distributed time), and may press a wrong slot now and then.
+ * <p>
+ * The sets come from the table's hint service, under the configured time budget (see
+ * Config.computerDecisionBudgetNanos). If the service cannot find the sets of a new table in time, the player passes,
+ * and its next search gets twice the time, until one completes.
+ */
+public class GreedyAiStrategy implements AiStrategy {
+
+    /**
+     * The game environment object.
+     */
+    private final Env env;
+
+    /**
+     * The mean time to spot a set, and the probability of pressing a random slot instead of following the set.
+     */
+    private final long spotMeanNanos;
+    private final double mistakeRate;
+
+    /**
+     * The sets on the table.
+     */
+    private final HintService hints;
+
+    /**
+     * The set the player goes for (its slots and cards, null if none), and when the player is done spotting it.
+     */
+    private int[] targetSlots;
+    private int[] targetCards;
+    private long spottedNanos;
+
+    /**
+     * The time the next search for sets may take: the configured budget, doubled after every search that ran out of
+     * time (the same search would run out of time again) and reset once a search completes.
+     */
+    private long budgetNanos;
+
+    /**
+     * @param env           - the game environment object.
+     * @param hints         - the hint service of the table.
+     * @param spotMeanNanos - the mean time to spot a set.
+     * @param mistakeRate   - the probability of pressing a random slot.
+     */
+    public GreedyAiStrategy(Env env, HintService hints, long spotMeanNanos, double mistakeRate) {
+        this.env = env;
+        this.hints = hints;
+        this.spotMeanNanos = spotMeanNanos;
+        this.mistakeRate = mistakeRate;
+        budgetNanos = configuredBudget();
+    }
+
+    private long configuredBudget() {
+        return env.config.computerDecisionBudgetNanos > 0 ? env.config.computerDecisionBudgetNanos : Long.MAX_VALUE;
+    }
+
+    @Override
+    public int nextSlot(TableSnapshot table, int player, Random random) {
+        long now = System.nanoTime();
+        if (!targetOnTable(table)) {
+            targetSlots = null;
+            if (!pickSet(table, random))
+                return -1;
+            spottedNanos = now + (long) (-Math.log(1 - random.nextDouble()) * spotMeanNanos);
+        }
+        if (now - spottedNanos < 0)
+            return -1;
+        if (mistakeRate > 0 && random.nextDouble() < mistakeRate)
+            return random.nextInt(table.size());
+
+        for (int slot = 0; slot < table.size(); ++slot)
+            if (table.hasToken(player, slot) && !isTarget(slot))
+                return slot;
+        for (int slot : targetSlots)
+            if (!table.hasToken(player, slot))
+                return slot;
+        return targetSlots[0]; // the claim was already judged (e.g. the table changed meanwhile), so press again
+    }
+
+    private boolean targetOnTable(TableSnapshot table) {
+        if (targetSlots == null)
+            return false;
+        for (int i = 0; i < targetSlots.length; ++i)
+            if (table.card(targetSlots[i]) != targetCards[i])
+                return false;
+        return true;
+    }
+
+    private boolean isTarget(int slot) {
+        for (int target : targetSlots)
+            if (target == slot)
+                return true;
+        return false;
+    }
+
+    /**
+     * Picks one of the sets on the table at random.
+     *
+     * @return - true iff there was a set (it becomes the target).
+     */
+    private boolean pickSet(TableSnapshot table, Random random) {
+        Hints sets = hints.hints(table, budgetNanos);
+        if (sets == null) {
+            budgetNanos = budgetNanos > Long.MAX_VALUE / 2 ? Long.MAX_VALUE : budgetNanos * 2;
+            return false;
+        }
+        budgetNanos = configuredBudget();
+        if (sets.count() == 0)
+            return false;
+        int set = random.nextInt(sets.count());
+        targetCards = sets.cards(set);
+        targetSlots = sets.slots(set);
+        return true;
+    }
+}
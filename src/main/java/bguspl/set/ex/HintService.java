@@ -0,0 +1,204 @@
+package bguspl.set.ex;
+
+import bguspl.set.Env;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Finds the legal sets on a table once per version of the table, and serves them to any number of readers (the
+ * computer players, the console hints and tools).
+ * <p>
+ * The latest hints are cached. A newer version of the table is compared with them slot by slot: a version that only
+ * moved tokens reuses them as they are, and a version that replaced some cards keeps the sets that do not use the
+ * replaced slots and looks only for the sets that use a new card.
+ */
+public class HintService {
+
+    /**
+     * The game environment object.
+     */
+    private final Env env;
+
+    /**
+     * The hints of the latest table version asked for so far.
+     */
+    private final AtomicReference<Hints> cached;
+
+    /**
+     * @param env       - the game environment object.
+     * @param tableSize - the number of slots of the table.
+     */
+    public HintService(Env env, int tableSize) {
+        this.env = env;
+        this.cached = new AtomicReference<>(Hints.empty(tableSize));
+    }
+
+    /**
+     * Returns the legal sets on a version of the table.
+     *
+     * @param table - a snapshot of the table.
+     * @return - the hints for the snapshot's version.
+     */
+    public Hints hints(TableSnapshot table) {
+        return hints(table, Long.MAX_VALUE);
+    }
+
+    /**
+     * Like hints(table), giving up after a time budget.
+     *
+     * @param table       - a snapshot of the table.
+     * @param budgetNanos - the time the search for new sets may take.
+     * @return - the hints for the snapshot's version, or null if they were not found in time.
+     */
+    public Hints hints(TableSnapshot table, long budgetNanos) {
+        Hints last = cached.get();
+        if (last.version == table.version)
+            return last;
+        Hints next = update(last, table, budgetNanos);
+        if (next == null)
+            return null;
+        while (next.version > last.version && !cached.compareAndSet(last, next))
+            last = cached.get();
+        return next;
+    }
+
+    private Hints update(Hints base, TableSnapshot table, long budgetNanos) {
+        int size = table.size();
+        int[] slotToCard = new int[size];
+        boolean[] replaced = new boolean[size];
+        boolean anyReplaced = false;
+        for (int slot = 0; slot < size; ++slot) {
+            slotToCard[slot] = table.card(slot);
+            replaced[slot] = slotToCard[slot] != base.card(slot);
+            anyReplaced |= replaced[slot];
+        }
+        if (!anyReplaced)
+            return base.at(table.version);
+
+        List<int[]> cards = new ArrayList<>();
+        List<int[]> slots = new ArrayList<>();
+        if (env.config.featureSize < 3) {
+            findAll(slotToCard, cards, slots);
+        } else {
+            for (int set = 0; set < base.count(); ++set) {
+                int[] setSlots = base.slots(set);
+                boolean kept = true;
+                for (int slot : setSlots)
+                    kept &= !replaced[slot];
+                if (kept) {
+                    cards.add(base.cards(set));
+                    slots.add(setSlots);
+                }
+            }
+            if (!findNew(slotToCard, replaced, cards, slots, budgetNanos))
+                return null;
+        }
+        return new Hints(table.version, slotToCard, cards.toArray(new int[0][]), slots.toArray(new int[0][]));
+    }
+
+    /**
+     * Finds the sets that use at least one card of a replaced slot. A set is found from its new card in the lowest
+     * slot, as the largest card completing the others, so it is found once.
+     *
+     * @return - false iff the search ran out of time.
+     */
+    private boolean findNew(int[] slotToCard, boolean[] replaced, List<int[]> cards, List<int[]> slots,
+                            long budgetNanos) {
+        boolean timed = budgetNanos != Long.MAX_VALUE;
+        long start = timed ? System.nanoTime() : 0;
+        int tried = 0;
+        int[] cardToSlot = new int[env.config.deckSize];
+        Arrays.fill(cardToSlot, -1);
+        int[] tableCards = new int[slotToCard.length];
+        int n = 0;
+        for (int slot = 0; slot < slotToCard.length; ++slot)
+            if (slotToCard[slot] >= 0) {
+                cardToSlot[slotToCard[slot]] = slot;
+                tableCards[n++] = slotToCard[slot];
+            }
+
+        int r = env.config.featureSize - 2; // the cards chosen besides the new card and the completing card
+        int[] combination = new int[r];
+        int[] group = new int[r + 1];
+        for (int slot = 0; slot < slotToCard.length; ++slot) {
+            int card = slotToCard[slot];
+            if (!replaced[slot] || card < 0)
+                continue;
+            group[0] = card;
+            for (int i = 0; i < r; ++i)
+                combination[i] = i;
+            while (r <= n - 1 && combination[r - 1] < n) {
+                if (accept(card, slot, combination, r, tableCards, cardToSlot, replaced)) {
+                    for (int i = 0; i < r; ++i)
+                        group[i + 1] = tableCards[combination[i]];
+                    int completing = env.util.completeSet(group.clone());
+                    if (completing >= 0 && cardToSlot[completing] >= 0 && completing > largest(group)
+                            && (!replaced[cardToSlot[completing]] || cardToSlot[completing] > slot)) {
+                        int[] set = Arrays.copyOf(group, r + 2);
+                        set[r + 1] = completing;
+                        Arrays.sort(set);
+                        int[] setSlots = new int[set.length];
+                        for (int i = 0; i < set.length; ++i)
+                            setSlots[i] = cardToSlot[set[i]];
+                        cards.add(set);
+                        slots.add(setSlots);
+                    }
+                }
+                if (timed && (++tried & 15) == 0 && System.nanoTime() - start > budgetNanos)
+                    return false;
+
+                // generate next combination in lexicographic order
+                int t = r - 1;
+                while (t != 0 && combination[t] == n - r + t)
+                    --t;
+                combination[t]++;
+                for (int i = t + 1; i < r; i++)
+                    combination[i] = combination[i - 1] + 1;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return - true iff the chosen cards exclude the new card and the new cards of lower slots.
+     */
+    private static boolean accept(int card, int slot, int[] combination, int r, int[] tableCards, int[] cardToSlot,
+                                  boolean[] replaced) {
+        for (int i = 0; i < r; ++i) {
+            int other = tableCards[combination[i]];
+            int otherSlot = cardToSlot[other];
+            if (other == card || replaced[otherSlot] && otherSlot < slot)
+                return false;
+        }
+        return true;
+    }
+
+    private static int largest(int[] group) {
+        int largest = group[1];
+        for (int i = 2; i < group.length; ++i)
+            largest = Math.max(largest, group[i]);
+        return largest;
+    }
+
+    private void findAll(int[] slotToCard, List<int[]> cards, List<int[]> slots) {
+        List<Integer> deck = new ArrayList<>();
+        int[] cardToSlot = new int[env.config.deckSize];
+        for (int slot = 0; slot < slotToCard.length; ++slot)
+            if (slotToCard[slot] >= 0) {
+                deck.add(slotToCard[slot]);
+                cardToSlot[slotToCard[slot]] = slot;
+            }
+        for (int[] set : env.util.findSets(deck, Integer.MAX_VALUE)) {
+            int[] sorted = set.clone();
+            Arrays.sort(sorted);
+            int[] setSlots = new int[sorted.length];
+            for (int i = 0; i < sorted.length; ++i)
+                setSlots[i] = cardToSlot[sorted[i]];
+            cards.add(sorted);
+            slots.add(setSlots);
+        }
+    }
+}
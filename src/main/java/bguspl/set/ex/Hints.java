@@ -0,0 +1,81 @@
+package bguspl.set.ex;
+
+import java.util.Arrays;
+
+/**
+ * An immutable list of the legal sets on a version of the table (see HintService).
+ */
+public final class Hints {
+
+    /**
+     * The version of the table the hints are for (-1 before the first table).
+     */
+    public final long version;
+
+    /**
+     * The card in each slot of that table (-1 for an empty slot).
+     */
+    private final int[] slotToCard;
+
+    /**
+     * The cards of each set (in ascending order) and their slots (in the same order).
+     */
+    private final int[][] cards;
+    private final int[][] slots;
+
+    Hints(long version, int[] slotToCard, int[][] cards, int[][] slots) {
+        this.version = version;
+        this.slotToCard = slotToCard;
+        this.cards = cards;
+        this.slots = slots;
+    }
+
+    /**
+     * @param tableSize - the number of slots.
+     * @return - the hints of an empty table.
+     */
+    static Hints empty(int tableSize) {
+        int[] slotToCard = new int[tableSize];
+        Arrays.fill(slotToCard, -1);
+        return new Hints(-1, slotToCard, new int[0][], new int[0][]);
+    }
+
+    /**
+     * @param version - a later version of the same cards (e.g. after a token was placed).
+     * @return - the same hints for that version.
+     */
+    Hints at(long version) {
+        return new Hints(version, slotToCard, cards, slots);
+    }
+
+    /**
+     * @param slot - the slot.
+     * @return - the card in the slot, or -1 if the slot is empty.
+     */
+    int card(int slot) {
+        return slotToCard[slot];
+    }
+
+    /**
+     * @return - the number of legal sets.
+     */
+    public int count() {
+        return cards.length;
+    }
+
+    /**
+     * @param set - the index of the set (from 0 to count() - 1).
+     * @return - the cards of the set, in ascending order.
+     */
+    public int[] cards(int set) {
+        return cards[set].clone();
+    }
+
+    /**
+     * @param set - the index of the set (from 0 to count() - 1).
+     * @return - the slots of the set (the slot of each card returned by cards(set), in the same order).
+     */
+    public int[] slots(int set) {
+        return slots[set].clone();
+    }
+}
@@ -2,7 +2,13 @@ package bguspl.set.ex;
 
 import java.util.logging.Level;
 import java.util.*;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import bguspl.set.Env;
+import bguspl.set.journal.Journal;
+import bguspl.set.metrics.ThreadMonitor;
+import bguspl.set.trace.Trace;
 
 /**
  * This class manages the players' threads and data
@@ -33,10 +39,14 @@ public class Player implements Runnable {
     private Thread playerThread;
 
     /**
-     * The thread of the AI (computer) player (an additional thread used to generate
-     * key presses).
+     * The strategy, think time, random generator and scheduler of the AI (computer) player, and whether its next key
+     * press is already scheduled (see AiScheduler).
      */
-    protected Thread aiThread;
+    private AiStrategy strategy;
+    private ThinkTime thinkTime;
+    private Random random;
+    private ScheduledExecutorService scheduler;
+    private final AtomicBoolean pressScheduled = new AtomicBoolean();
 
     /**
      * True iff the player is human (not a computer player).
@@ -61,6 +71,17 @@ public class Player implements Runnable {
     protected volatile boolean block;
     protected volatile boolean queueIsChecked;
 
+    /**
+     * The cards of the last partial selection (one card short of a set) and the card that completes it (-1 if none).
+     */
+    protected volatile int[] partialCards;
+    protected volatile int completingCard;
+
+    /**
+     * When the player's last claim was queued for the dealer (System.nanoTime).
+     */
+    protected volatile long claimNanos;
+
     /**
      * The class constructor.
      *
@@ -81,6 +102,7 @@ public class Player implements Runnable {
         block = false;
         queueIsChecked = false;
         flag = 0;
+        completingCard = -1;
     }
 
     /**
@@ -91,6 +113,7 @@ public class Player implements Runnable {
     public void run() {
         playerThread = Thread.currentThread();
         env.logger.log(Level.INFO, "Thread " + Thread.currentThread().getName() + "starting.");
+        ThreadMonitor.attribute(table.id, "player", id);
         if (!human)
             createArtificialIntelligence();
 
@@ -114,53 +137,64 @@ public class Player implements Runnable {
                 GivePointOrPenalty(flag);
                 block = false;
                 flag = 0;
-                synchronized (this) {
-                    notifyAll();
-                }
+                wake();
             }
         }
 
-        if (!human)
-            try {
-                // System.out.println("Player AI of " + id + " enter to try terminated." +
-                // terminate);
-                aiThread.join();
-            } catch (InterruptedException ignored) {
-            }
         env.logger.log(Level.INFO, "Thread " + Thread.currentThread().getName() + " terminated.");
     }
 
     /**
-     * Creates an additional thread for an AI (computer) player. The main loop of
-     * this thread repeatedly generates
-     * key presses. If the queue of key presses is full, the thread waits until it
-     * is not full.
+     * Sets up an AI (computer) player. Its key presses run on the shared scheduler, each after a think time drawn
+     * from the configured distribution, on the slot its strategy chooses. After a claim the player schedules no more
+     * presses until it is released (see wake).
      */
     private void createArtificialIntelligence() {
-        // note: this is a very very smart AI (!)
-        aiThread = new Thread(() -> {
-            env.logger.log(Level.INFO, "Thread " + Thread.currentThread().getName() + " starting.");
-            // System.out.println("AI THREAD is starting ");
-            while (!terminate) {
-                try {
-                    synchronized (this) {
-                        // System.out.println("enter to ai" + " " + Thread.currentThread().getName());
-                        Random rnd = new Random();
-                        int randomSlot = rnd.nextInt(env.config.tableSize);
-                        // System.out.println("the slot chosen by computr is " + randomSlot);
-                        keyPressed(randomSlot);
-                        if (block) {
-                            wait();
-                        }
-                    }
-                } catch (InterruptedException ignored) {
-                    // System.out.println("CATCHED");
-                    block = false;
+        try {
+            strategy = AiStrategy.parse(env, table.hintService, env.config.computerStrategy(id));
+        } catch (IllegalArgumentException e) {
+            env.logger.severe("player " + id + ": " + e.getMessage() + ", pressing random slots");
+            strategy = new RandomAiStrategy();
+        }
+        try {
+            thinkTime = ThinkTime.parse(env.config.computerThinkTime(id), id);
+        } catch (IllegalArgumentException e) {
+            env.logger.severe("player " + id + ": " + e.getMessage() + ", pressing a key every millisecond");
+            thinkTime = ThinkTime.fixed(1000000);
+        }
+        random = env.config.computerSeed == 0 ? new Random() : new Random(env.config.computerSeed * 31 + id);
+        scheduler = AiScheduler.get(env.config.computerSchedulerThreads);
+        wake();
+    }
+
+    /**
+     * Schedules the next key press of an AI (computer) player, unless one is already scheduled. Called when the
+     * player is released after a claim.
+     */
+    protected void wake() {
+        if (scheduler != null && !terminate && pressScheduled.compareAndSet(false, true))
+            scheduler.schedule(this::pressNextKey, thinkTime.nextNanos(random), TimeUnit.NANOSECONDS);
+    }
+
+    private void pressNextKey() {
+        pressScheduled.set(false);
+        if (terminate)
+            return;
+        long cpu = ThreadMonitor.cpuTime(); // the scheduler threads are shared, so charge the press to this table
+        try {
+            synchronized (this) {
+                if (!block) {
+                    int slot = strategy.nextSlot(table.snapshot(), id, random);
+                    if (slot >= 0)
+                        keyPressed(slot);
                 }
+                if (block)
+                    return;
             }
-            env.logger.log(Level.INFO, "Thread " + Thread.currentThread().getName() + " terminated.");
-        }, "computer-" + id);
-        aiThread.start();
+        } finally {
+            ThreadMonitor.charge(table.id, id, cpu);
+        }
+        wake();
     }
 
     /**
@@ -191,8 +225,10 @@ public class Player implements Runnable {
      * @param slot - the slot corresponding to the key pressed.
      */
     public void keyPressed(int slot) {
+        Trace.TRACER.keyPress(table.id, id, slot, !dealer.tableLock && !block);
         if (!dealer.tableLock) {
             if (!block) {
+                env.journal.record(Journal.Type.KEY, table.id, id, slot, -1, 0);
                 // System.out.println("entered keyPressed ");
                 if (playerAction.contains(slot)) {
                     playerAction.remove(slot);
@@ -205,12 +241,20 @@ public class Player implements Runnable {
                     // queueIsChecked);
                 }
 
+                if (playerAction.size() == env.config.featureSize - 1)
+                    dealer.speculate(this);
+
                 if (playerAction.size() == env.config.featureSize && !queueIsChecked) {
                     // System.out.println("enter ");
+                    long lockNanos = System.nanoTime();
                     synchronized (dealer.mainLock) {
+                        claimNanos = System.nanoTime();
+                        table.metrics.lockWait.record(claimNanos - lockNanos);
+                        table.metrics.claims.increment();
                         queueIsChecked = true;
                         block = true;
                         dealer.playersToCheck.add(id);
+                        env.journal.record(Journal.Type.CLAIM, table.id, id, -1, -1, 0);
                         dealer.mainLock.notifyAll();
                     }
                 }
@@ -240,8 +284,12 @@ public class Player implements Runnable {
         // System.out.println("giving point");
         int ignored = table.countCards(); // this part is just for demonstration in the unit tests
         env.ui.setScore(id, ++score);
+        env.journal.record(Journal.Type.SCORE, table.id, id, -1, -1, score);
         long waitTime = env.config.pointFreezeMillis;
         long sleepTime = waitTime;
+        env.journal.record(Journal.Type.FREEZE, table.id, id, -1, -1, waitTime);
+        long freezeStart = Trace.TRACER.start();
+        Trace.TRACER.freezeStart(table.id, id, waitTime, true);
         env.ui.setFreeze(id, waitTime);
         if (waitTime >= 1000) {
             sleepTime = 1000;
@@ -255,6 +303,7 @@ public class Player implements Runnable {
             env.ui.setFreeze(id, waitTime);
         }
         env.ui.setFreeze(id, -1);
+        Trace.TRACER.freezeEnd(table.id, id, freezeStart);
         // System.out.println("after freeze point");
         playerAction.clear();
         queueIsChecked = false;
@@ -268,6 +317,9 @@ public class Player implements Runnable {
         // System.out.println("giving penalty");
         long waitTime = env.config.penaltyFreezeMillis;
         long sleepTime = waitTime;
+        env.journal.record(Journal.Type.FREEZE, table.id, id, -1, -1, waitTime);
+        long freezeStart = Trace.TRACER.start();
+        Trace.TRACER.freezeStart(table.id, id, waitTime, false);
         env.ui.setFreeze(id, waitTime);
         if (waitTime >= 1000) {
             sleepTime = 1000;
@@ -281,10 +333,21 @@ public class Player implements Runnable {
             env.ui.setFreeze(id, waitTime);
         }
         env.ui.setFreeze(id, -1);
+        Trace.TRACER.freezeEnd(table.id, id, freezeStart);
         // System.out.println("after freeze penalty");
 
     }
 
+    /**
+     * Restores the score of a resumed game (see Checkpoint).
+     *
+     * @param score - the saved score.
+     */
+    void restoreScore(int score) {
+        this.score = score;
+        env.ui.setScore(id, score);
+    }
+
     public int score() {
         return score;
     }
@@ -0,0 +1,14 @@
+package bguspl.set.ex;
+
+import java.util.Random;
+
+/**
+ * Presses uniformly random slots, with no look at the cards.
+ */
+public class RandomAiStrategy implements AiStrategy {
+
+    @Override
+    public int nextSlot(TableSnapshot table, int player, Random random) {
+        return random.nextInt(table.size());
+    }
+}
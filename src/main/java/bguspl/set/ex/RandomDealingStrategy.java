@@ -0,0 +1,35 @@
+package bguspl.set.ex;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Deals uniformly random cards from the deck, with no look-ahead.
+ */
+public class RandomDealingStrategy implements DealingStrategy {
+
+    /**
+     * The source of the dealer's random choices.
+     */
+    private final Random random;
+
+    public RandomDealingStrategy() {
+        this(new Random());
+    }
+
+    /**
+     * @param random - the source of the dealer's random choices (used by the dealer thread only).
+     */
+    public RandomDealingStrategy(Random random) {
+        this.random = random;
+    }
+
+    @Override
+    public List<Integer> deal(List<Integer> deck, int[] tableCards, int count) {
+        List<Integer> cards = new ArrayList<>(count);
+        for (int i = 0; i < count && !deck.isEmpty(); i++)
+            cards.add(deck.remove(random.nextInt(deck.size())));
+        return cards;
+    }
+}
@@ -0,0 +1,79 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+
+/**
+ * Keeps a rolling estimate of the time it takes the players to find the next set on a table, and derives the
+ * dealer's reshuffle timeout from it (within the configured bounds).
+ */
+public class ReshuffleTimeout {
+
+    /**
+     * The weight of the newest sample in the rolling estimate.
+     */
+    private static final double ALPHA = 0.3;
+
+    /**
+     * The timeout is this many times the estimated time to the next set.
+     */
+    private static final double FACTOR = 3.0;
+
+    private final Config config;
+
+    /**
+     * The estimated number of milliseconds until the next set is found.
+     */
+    private double estimate;
+
+    /**
+     * The time the current wait for a set started.
+     */
+    private long waitStart;
+
+    public ReshuffleTimeout(Config config) {
+        this.config = config;
+        this.estimate = config.turnTimeoutMillis / FACTOR;
+    }
+
+    /**
+     * Starts waiting for a set (e.g. after a new deal).
+     *
+     * @param now - the current time in milliseconds.
+     */
+    public void start(long now) {
+        waitStart = now;
+    }
+
+    /**
+     * Updates the estimate with the time it took to find a set, and starts waiting for the next one.
+     *
+     * @param now - the current time in milliseconds.
+     */
+    public void setFound(long now) {
+        sample(now - waitStart);
+        waitStart = now;
+    }
+
+    /**
+     * Updates the estimate when the turn timed out: the next set would have taken at least this long.
+     *
+     * @param now - the current time in milliseconds.
+     */
+    public void timedOut(long now) {
+        sample(now - waitStart);
+    }
+
+    private void sample(long millis) {
+        estimate = ALPHA * millis + (1 - ALPHA) * estimate;
+    }
+
+    /**
+     * @return - the number of milliseconds until the dealer should reshuffle.
+     */
+    public long millis() {
+        if (!config.adaptiveTurnTimeout)
+            return config.turnTimeoutMillis;
+        long millis = (long) (FACTOR * estimate);
+        return Math.max(config.turnTimeoutMinMillis, Math.min(config.turnTimeoutMaxMillis, millis));
+    }
+}
@@ -0,0 +1,97 @@
+package bguspl.set.ex;
+
+import bguspl.set.Env;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Deals random cards, then swaps dealt cards for deck cards completing sets with the cards on the table until the
+ * table holds a target number of legal sets (or no swap can add one). A lower target makes the game harder.
+ */
+public class SetGuaranteeingDealingStrategy implements DealingStrategy {
+
+    /**
+     * The game environment object.
+     */
+    private final Env env;
+
+    /**
+     * The number of legal sets the table should hold after a deal.
+     */
+    private final int targetSets;
+
+    private final DealingStrategy random;
+
+    public SetGuaranteeingDealingStrategy(Env env, int targetSets) {
+        this(env, targetSets, new Random());
+    }
+
+    /**
+     * @param env        - the game environment object.
+     * @param targetSets - the number of legal sets the table should hold after a deal.
+     * @param random     - the source of the dealer's random choices (used by the dealer thread only).
+     */
+    public SetGuaranteeingDealingStrategy(Env env, int targetSets, Random random) {
+        this.env = env;
+        this.targetSets = targetSets;
+        this.random = new RandomDealingStrategy(random);
+    }
+
+    @Override
+    public List<Integer> deal(List<Integer> deck, int[] tableCards, int count) {
+        List<Integer> dealt = random.deal(deck, tableCards, count);
+        Set<Integer> inDeck = new HashSet<>(deck);
+
+        // each swap completes a new set without breaking the ones already found
+        for (int swaps = 0; swaps < count; swaps++) {
+            int[] cards = allCards(tableCards, dealt);
+            List<int[]> sets = findSets(cards);
+            if (sets.size() >= targetSets)
+                break;
+            int[] group = Completions.find(env, cards, inDeck::contains);
+            if (group == null)
+                break;
+
+            // replace a dealt card that is neither part of the group nor of a set already on the table
+            Set<Integer> kept = new HashSet<>();
+            for (int j = 0; j < group.length - 1; j++)
+                kept.add(group[j]);
+            for (int[] set : sets)
+                for (int card : set)
+                    kept.add(card);
+            int replaced = -1;
+            for (int i = 0; i < dealt.size() && replaced < 0; i++)
+                if (!kept.contains(dealt.get(i)))
+                    replaced = i;
+            if (replaced < 0)
+                break;
+
+            int completing = group[group.length - 1];
+            int returned = dealt.set(replaced, completing);
+            deck.remove(Integer.valueOf(completing));
+            deck.add(returned);
+            inDeck.remove(completing);
+            inDeck.add(returned);
+        }
+        return dealt;
+    }
+
+    private List<int[]> findSets(int[] cards) {
+        List<Integer> list = new ArrayList<>(cards.length);
+        for (int card : cards)
+            list.add(card);
+        return env.util.findSets(list, targetSets);
+    }
+
+    private static int[] allCards(int[] tableCards, List<Integer> dealt) {
+        int[] cards = new int[tableCards.length + dealt.size()];
+        System.arraycopy(tableCards, 0, cards, 0, tableCards.length);
+        for (int i = 0; i < dealt.size(); i++)
+            cards[tableCards.length + i] = dealt.get(i);
+        return cards;
+    }
+}
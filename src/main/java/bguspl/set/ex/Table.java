@@ -1,10 +1,21 @@
 package bguspl.set.ex;
 
 import bguspl.set.Env;
+import bguspl.set.journal.Journal;
+import bguspl.set.metrics.TableMetrics;
+import bguspl.set.trace.Trace;
 
 import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.UnaryOperator;
+import java.util.function.IntPredicate;
 import java.util.stream.Collectors;
 
 /**
@@ -14,11 +25,28 @@ import java.util.stream.Collectors;
  */
 public class Table {
 
+    private static final AtomicInteger nextId = new AtomicInteger();
+
     /**
      * The game environment object.
      */
     private final Env env;
 
+    /**
+     * The id of the table (tables of the same process get consecutive ids, starting from 0).
+     */
+    public final int id;
+
+    /**
+     * The metrics of the table (recorded by the table, the dealer and the players).
+     */
+    public final TableMetrics metrics;
+
+    /**
+     * The legal sets on the table, found once per version of the table (for the hints and the computer players).
+     */
+    public final HintService hintService;
+
     /**
      * Mapping between a slot and the card placed in it (null if none).
      */
@@ -31,6 +59,12 @@ public class Table {
 
     protected boolean[][] playersToken;
 
+    /**
+     * The latest published snapshot of the table, and the threads waiting for a newer one.
+     */
+    private final AtomicReference<TableSnapshot> snapshot;
+    private final Queue<Thread> snapshotWaiters = new ConcurrentLinkedQueue<>();
+
     /**
      * Constructor for testing.
      *
@@ -43,8 +77,13 @@ public class Table {
     public Table(Env env, Integer[] slotToCard, Integer[] cardToSlot) {
 
         this.env = env;
+        this.id = nextId.getAndIncrement();
+        this.metrics = new TableMetrics(id, env.config.players);
+        this.hintService = new HintService(env, slotToCard.length);
         this.slotToCard = slotToCard;
         this.cardToSlot = cardToSlot;
+        this.playersToken = new boolean[slotToCard.length][env.config.players];
+        this.snapshot = new AtomicReference<>(TableSnapshot.empty(slotToCard.length, env.config.players));
     }
 
     /**
@@ -55,24 +94,99 @@ public class Table {
     public Table(Env env) {
 
         this(env, new Integer[env.config.tableSize], new Integer[env.config.deckSize]);
-        playersToken = new boolean[env.config.tableSize][env.config.players];
 
     }
 
+    /**
+     * Returns the latest snapshot of the table (without locking anything).
+     *
+     * @return - an immutable picture of the table.
+     */
+    public TableSnapshot snapshot() {
+        return snapshot.get();
+    }
+
+    /**
+     * Waits until the table changes past a known version.
+     *
+     * @param version       - the version the caller already knows.
+     * @param timeoutMillis - the maximal number of milliseconds to wait.
+     * @return - the latest snapshot (its version is greater than the given version unless the wait timed out).
+     * @throws InterruptedException - if the thread is interrupted while waiting.
+     */
+    public TableSnapshot awaitSnapshot(long version, long timeoutMillis) throws InterruptedException {
+        TableSnapshot latest = snapshot.get();
+        if (latest.version > version)
+            return latest;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        Thread current = Thread.currentThread();
+        snapshotWaiters.add(current);
+        try {
+            while ((latest = snapshot.get()).version <= version) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0)
+                    break;
+                LockSupport.parkNanos(this, remaining);
+                if (Thread.interrupted())
+                    throw new InterruptedException();
+            }
+        } finally {
+            snapshotWaiters.remove(current);
+        }
+        return latest;
+    }
+
+    /**
+     * Publishes the next snapshot of the table, and wakes up the threads waiting for it (if any).
+     */
+    private void publish(UnaryOperator<TableSnapshot> change) {
+        TableSnapshot previous;
+        do {
+            previous = snapshot.get();
+        } while (!snapshot.compareAndSet(previous, change.apply(previous)));
+        if (!snapshotWaiters.isEmpty())
+            for (Thread waiter : snapshotWaiters)
+                LockSupport.unpark(waiter);
+    }
+
     /**
      * This method prints all possible legal sets of cards that are currently on the
      * table.
      */
     public void hints() {
-        List<Integer> deck = Arrays.stream(slotToCard).filter(Objects::nonNull).collect(Collectors.toList());
-        env.util.findSets(deck, Integer.MAX_VALUE).forEach(set -> {
+        Hints hints = hintService.hints(snapshot());
+        for (int set = 0; set < hints.count(); ++set) {
             StringBuilder sb = new StringBuilder().append("Hint: Set found: ");
-            List<Integer> slots = Arrays.stream(set).mapToObj(card -> cardToSlot[card]).sorted()
-                    .collect(Collectors.toList());
-            int[][] features = env.util.cardsToFeatures(set);
+            List<Integer> slots = Arrays.stream(hints.slots(set)).boxed().sorted().collect(Collectors.toList());
+            int[][] features = env.util.cardsToFeatures(hints.cards(set));
             System.out.println(
                     sb.append("slots: ").append(slots).append(" features: ").append(Arrays.deepToString(features)));
-        });
+        }
+    }
+
+    /**
+     * Checks if the cards currently on the table contain a legal set.
+     *
+     * @return - true iff there is at least one legal set on the table.
+     */
+    public boolean hasSet() {
+        if (env.config.featureSize < 3) {
+            List<Integer> cards = Arrays.stream(slotToCard).filter(Objects::nonNull).collect(Collectors.toList());
+            return !env.util.findSets(cards, 1).isEmpty();
+        }
+        return findCompletion(card -> cardToSlot[card] != null) != null;
+    }
+
+    /**
+     * Looks for config.featureSize - 1 cards on the table whose completing card (see Util.completeSet) is accepted
+     * by a predicate. Each group costs one lookup instead of testing every full combination of cards.
+     *
+     * @param accept - the predicate the completing card should satisfy.
+     * @return - the cards of the group followed by their completing card, or null if there is no such group.
+     */
+    public int[] findCompletion(IntPredicate accept) {
+        int[] cards = Arrays.stream(slotToCard).filter(Objects::nonNull).mapToInt(Integer::intValue).toArray();
+        return Completions.find(env, cards, accept);
     }
 
     /**
@@ -97,31 +211,55 @@ public class Table {
      * @post - the card placed is on the table, in the assigned slot.
      */
     public void placeCard(int card, int slot) {
+        long start = System.nanoTime();
         try {
             Thread.sleep(env.config.tableDelayMillis);
         } catch (InterruptedException ignored) {
         }
+        metrics.tableDelay.recordSince(start);
 
         cardToSlot[card] = slot;
         slotToCard[slot] = card;
+        publish(previous -> previous.withCard(slot, card));
+        env.journal.record(Journal.Type.DEAL, id, -1, slot, card, 0);
+        Trace.TRACER.cardPlaced(id, slot, card, start);
         env.ui.placeCard(card, slot);
 
     }
 
+    /**
+     * Puts a card of a resumed game back in its slot (see Checkpoint), without the table delay.
+     *
+     * @param card - the card id.
+     * @param slot - the slot the card was saved in.
+     */
+    public void restoreCard(int card, int slot) {
+        cardToSlot[card] = slot;
+        slotToCard[slot] = card;
+        publish(previous -> previous.withCard(slot, card));
+        env.journal.record(Journal.Type.DEAL, id, -1, slot, card, 0);
+        env.ui.placeCard(card, slot);
+    }
+
     /**
      * Removes a card from a grid slot on the table.
      * 
      * @param slot - the slot from which to remove the card.
      */
     public void removeCard(int slot) {
+        long start = System.nanoTime();
         try {
             Thread.sleep(env.config.tableDelayMillis);
         } catch (InterruptedException ignored) {
         }
+        metrics.tableDelay.recordSince(start);
         if (slotToCard[slot] != null) {
             int removedCard = slotToCard[slot];
             cardToSlot[removedCard] = null;
             slotToCard[slot] = null;
+            publish(previous -> previous.withCard(slot, -1));
+            env.journal.record(Journal.Type.REMOVE, id, -1, slot, removedCard, 0);
+            Trace.TRACER.cardRemoved(id, slot, removedCard, start);
             env.ui.removeCard(slot);
         }
     }
@@ -134,6 +272,8 @@ public class Table {
      */
     public void placeToken(int player, int slot) {
         playersToken[slot][player] = true;
+        publish(previous -> previous.withToken(player, slot, true));
+        env.journal.record(Journal.Type.TOKEN, id, player, slot, -1, 1);
         env.ui.placeToken(player, slot);
     }
 
@@ -146,6 +286,8 @@ public class Table {
      */
     public boolean removeToken(int player, int slot) {
         playersToken[slot][player] = false;
+        publish(previous -> previous.withToken(player, slot, false));
+        env.journal.record(Journal.Type.TOKEN, id, player, slot, -1, 0);
         env.ui.removeToken(player, slot);
         return true;
     }
@@ -0,0 +1,93 @@
+package bguspl.set.ex;
+
+import java.util.Arrays;
+
+/**
+ * An immutable, version-stamped picture of the table: the card in every slot and the players' tokens.
+ * Every change to the table publishes a new snapshot with the next version, so a reader holding a snapshot always
+ * sees a consistent table without locking it.
+ */
+public final class TableSnapshot {
+
+    /**
+     * The version of the table this snapshot shows (starting from 0, increased by every change).
+     */
+    public final long version;
+
+    /**
+     * The card in each slot (-1 for an empty slot).
+     */
+    private final int[] slotToCard;
+
+    /**
+     * The players' tokens: bit p % 64 of word slot * tokenWords + p / 64 is set iff player p has a token on the slot.
+     */
+    private final long[] tokens;
+    private final int tokenWords;
+
+    private TableSnapshot(long version, int[] slotToCard, long[] tokens, int tokenWords) {
+        this.version = version;
+        this.slotToCard = slotToCard;
+        this.tokens = tokens;
+        this.tokenWords = tokenWords;
+    }
+
+    /**
+     * @param tableSize - the number of slots.
+     * @param players   - the number of players.
+     * @return - the snapshot of an empty table (version 0).
+     */
+    static TableSnapshot empty(int tableSize, int players) {
+        int[] slotToCard = new int[tableSize];
+        Arrays.fill(slotToCard, -1);
+        int tokenWords = (players + Long.SIZE - 1) / Long.SIZE;
+        return new TableSnapshot(0, slotToCard, new long[tableSize * tokenWords], tokenWords);
+    }
+
+    TableSnapshot withCard(int slot, int card) {
+        int[] cards = slotToCard.clone();
+        cards[slot] = card;
+        return new TableSnapshot(version + 1, cards, tokens, tokenWords);
+    }
+
+    TableSnapshot withToken(int player, int slot, boolean placed) {
+        long[] newTokens = tokens.clone();
+        int word = slot * tokenWords + player / Long.SIZE;
+        if (placed)
+            newTokens[word] |= 1L << (player % Long.SIZE);
+        else
+            newTokens[word] &= ~(1L << (player % Long.SIZE));
+        return new TableSnapshot(version + 1, slotToCard, newTokens, tokenWords);
+    }
+
+    /**
+     * @return - the number of slots.
+     */
+    public int size() {
+        return slotToCard.length;
+    }
+
+    /**
+     * @param slot - the slot.
+     * @return - the card in the slot, or -1 if the slot is empty.
+     */
+    public int card(int slot) {
+        return slotToCard[slot];
+    }
+
+    /**
+     * @param player - the player.
+     * @param slot   - the slot.
+     * @return - true iff the player has a token on the slot.
+     */
+    public boolean hasToken(int player, int slot) {
+        return (tokens[slot * tokenWords + player / Long.SIZE] & (1L << (player % Long.SIZE))) != 0;
+    }
+
+    /**
+     * @return - the cards on the table (in slot order).
+     */
+    public int[] cards() {
+        return Arrays.stream(slotToCard).filter(card -> card >= 0).toArray();
+    }
+}
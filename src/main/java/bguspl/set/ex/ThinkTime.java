@@ -0,0 +1,139 @@
+package bguspl.set.ex;
+
+import bguspl.set.journal.Journal;
+import bguspl.set.journal.JournalReader;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * The time a computer player takes between key presses, drawn from a distribution.
+ * <p>
+ * Specifications (see parse), with times in milliseconds:
+ * <ul>
+ * <li>fixed:T - always T.</li>
+ * <li>exponential:T - exponentially distributed with mean T (key presses form a Poisson process).</li>
+ * <li>recorded:FILE - the gaps between the key presses of the same player in a game journal (see Journal), in order
+ * and over again; the gaps of all the players if the journal has fewer than two presses of the player.</li>
+ * </ul>
+ */
+public abstract class ThinkTime {
+
+    /**
+     * Draws the next think time.
+     *
+     * @param random - the player's random generator.
+     * @return - the number of nanoseconds until the next key press.
+     */
+    public abstract long nextNanos(Random random);
+
+    /**
+     * Parses a think time specification.
+     *
+     * @param spec   - the specification.
+     * @param player - the player (for recorded think times).
+     * @return - the think time.
+     * @throws IllegalArgumentException - if the specification is invalid or its journal cannot be read.
+     */
+    public static ThinkTime parse(String spec, int player) {
+        int colon = spec.indexOf(':');
+        String kind = colon < 0 ? spec.trim() : spec.substring(0, colon).trim();
+        String argument = colon < 0 ? "" : spec.substring(colon + 1).trim();
+        try {
+            switch (kind) {
+                case "fixed":
+                    return fixed(toNanos(argument));
+                case "exponential":
+                    return exponential(toNanos(argument));
+                case "recorded":
+                    return recorded(argument, player);
+                default:
+                    throw new IllegalArgumentException("unknown think time " + spec);
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("invalid think time " + spec);
+        }
+    }
+
+    private static long toNanos(String millis) {
+        double value = Double.parseDouble(millis);
+        if (value < 0)
+            throw new NumberFormatException();
+        return (long) (value * 1e6);
+    }
+
+    /**
+     * @param nanos - the think time.
+     * @return - a think time that is always the same.
+     */
+    public static ThinkTime fixed(long nanos) {
+        return new ThinkTime() {
+            @Override
+            public long nextNanos(Random random) {
+                return nanos;
+            }
+        };
+    }
+
+    /**
+     * @param meanNanos - the mean think time.
+     * @return - an exponentially distributed think time.
+     */
+    public static ThinkTime exponential(long meanNanos) {
+        return new ThinkTime() {
+            @Override
+            public long nextNanos(Random random) {
+                return (long) (-Math.log(1 - random.nextDouble()) * meanNanos);
+            }
+        };
+    }
+
+    /**
+     * @param gapsNanos - the think times to repeat, in order.
+     * @return - a think time that repeats them.
+     */
+    public static ThinkTime replay(long[] gapsNanos) {
+        if (gapsNanos.length == 0)
+            throw new IllegalArgumentException("no think times to replay");
+        return new ThinkTime() {
+            private int next;
+
+            @Override
+            public long nextNanos(Random random) {
+                long gap = gapsNanos[next];
+                next = (next + 1) % gapsNanos.length;
+                return gap;
+            }
+        };
+    }
+
+    private static ThinkTime recorded(String file, int player) {
+        long[][] gaps = new long[2][16]; // the player's gaps and all the players' gaps
+        int[] sizes = new int[2];
+        Map<Integer, Long> last = new HashMap<>();
+        try {
+            new JournalReader(Paths.get(file)).scan(r -> {
+                if (r.type != Journal.Type.KEY)
+                    return;
+                Long previous = last.put(r.table << 16 | r.player, r.nanos);
+                if (previous == null)
+                    return;
+                for (int list = r.player == player ? 0 : 1; list < 2; ++list) {
+                    if (sizes[list] == gaps[list].length)
+                        gaps[list] = Arrays.copyOf(gaps[list], sizes[list] * 2);
+                    gaps[list][sizes[list]++] = r.nanos - previous;
+                }
+            });
+        } catch (IOException e) {
+            throw new IllegalArgumentException("cannot read think times from " + file + ": " + e.getMessage());
+        }
+        int list = sizes[0] > 0 ? 0 : 1;
+        if (sizes[list] == 0)
+            throw new IllegalArgumentException("no key presses to replay in " + file);
+        return replay(Arrays.copyOf(gaps[list], sizes[list]));
+    }
+}
@@ -0,0 +1,227 @@
+package bguspl.set.journal;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An append-only binary journal of game events.
+ * Every event is a fixed-size record (see RECORD_BYTES) written straight into a memory-mapped segment of the journal
+ * file, so recording an event costs a few memory stores and no system call. Threads claim record indexes with an
+ * atomic counter and write them independently; the file grows by mapping the next segment when one is full.
+ * Events recorded after close are dropped.
+ * <p>
+ * File layout (little endian): a header of RECORD_BYTES bytes (magic, version, record size, start time in epoch
+ * milliseconds and the matching System.nanoTime value), followed by the records:
+ * nanos (8), type (1), reserved (1), table (2), player (2), slot (2), card (4), reserved (4), value (8).
+ */
+public class Journal {
+
+    /**
+     * The types of journaled events (the code is the byte stored in the record, 0 marks an unwritten record).
+     */
+    public enum Type {
+        DEAL(1), REMOVE(2), TOKEN(3), CLAIM(4), VERDICT(5), FREEZE(6), RESHUFFLE(7), SCORE(8), KEY(9);
+
+        public final byte code;
+
+        Type(int code) {
+            this.code = (byte) code;
+        }
+
+        private static final Type[] byCode = new Type[values().length + 1];
+
+        static {
+            for (Type type : values())
+                byCode[type.code] = type;
+        }
+
+        /**
+         * @param code - a record type code.
+         * @return - the type with this code, or null if there is none.
+         */
+        public static Type of(int code) {
+            return code > 0 && code < byCode.length ? byCode[code] : null;
+        }
+    }
+
+    public static final int MAGIC = 0x4a544553; // "SETJ"
+    public static final int VERSION = 1;
+    public static final int RECORD_BYTES = 32;
+
+    /**
+     * A journal that records nothing (used when journaling is disabled).
+     */
+    public static final Journal DISABLED = new Journal();
+
+    private static final class Segment {
+        final long first;
+        final long records;
+        final MappedByteBuffer buffer;
+        volatile Segment previous;
+
+        Segment(long first, long records, MappedByteBuffer buffer, Segment previous) {
+            this.first = first;
+            this.records = records;
+            this.buffer = buffer;
+            this.previous = previous;
+        }
+    }
+
+    private final boolean enabled;
+    private final FileChannel channel;
+    private final long segmentRecords;
+    private final AtomicLong next = new AtomicLong();
+    private volatile Segment segment;
+
+    /**
+     * The threads inside record, and whether the journal is closed. A writer counts itself in before it checks the
+     * flag and close sets the flag before it waits for the count to drop, so no writer touches the file after it is
+     * truncated.
+     */
+    private final AtomicInteger writers = new AtomicInteger();
+    private volatile boolean closed;
+
+    private Journal() {
+        enabled = false;
+        channel = null;
+        segmentRecords = 0;
+    }
+
+    /**
+     * Creates (or truncates) a journal file.
+     *
+     * @param path         - the journal file.
+     * @param segmentBytes - the size of each memory-mapped segment of the file.
+     * @throws IOException - if the file cannot be created or mapped.
+     */
+    public Journal(Path path, long segmentBytes) throws IOException {
+        enabled = true;
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segmentRecords = Math.max(1, Math.min(segmentBytes, 1L << 30) / RECORD_BYTES);
+
+        MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, RECORD_BYTES);
+        header.order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(0, MAGIC);
+        header.putInt(4, VERSION);
+        header.putInt(8, RECORD_BYTES);
+        header.putLong(16, System.currentTimeMillis());
+        header.putLong(24, System.nanoTime());
+
+        segment = map(0, null);
+    }
+
+    /**
+     * @return - true iff events are recorded.
+     */
+    public boolean enabled() {
+        return enabled;
+    }
+
+    /**
+     * Records an event.
+     *
+     * @param type   - the event type.
+     * @param table  - the table id.
+     * @param player - the player id (-1 if none).
+     * @param slot   - the slot (-1 if none).
+     * @param card   - the card (-1 if none).
+     * @param value  - an event specific value (e.g. the score, the freeze milliseconds or the verdict).
+     */
+    public void record(Type type, int table, int player, int slot, int card, long value) {
+        if (!enabled)
+            return;
+        writers.incrementAndGet();
+        try {
+            if (!closed)
+                write(type, table, player, slot, card, value);
+        } finally {
+            writers.decrementAndGet();
+        }
+    }
+
+    private void write(Type type, int table, int player, int slot, int card, long value) {
+        long nanos = System.nanoTime();
+        long index = next.getAndIncrement();
+        Segment s = segment;
+        while (index >= s.first + s.records)
+            s = advance(s);
+        while (s != null && index < s.first)
+            s = s.previous;
+
+        MappedByteBuffer buffer = s != null ? s.buffer : mapRecord(index);
+        int offset = s != null ? (int) ((index - s.first) * RECORD_BYTES) : 0;
+        buffer.putLong(offset, nanos);
+        buffer.put(offset + 9, (byte) 0);
+        buffer.putShort(offset + 10, (short) table);
+        buffer.putShort(offset + 12, (short) player);
+        buffer.putShort(offset + 14, (short) slot);
+        buffer.putInt(offset + 16, card);
+        buffer.putLong(offset + 24, value);
+        buffer.put(offset + 8, type.code); // the type marks the record as written, so it goes last
+    }
+
+    /**
+     * Stops recording, flushes the journal to the file and trims the unused part of the last segment.
+     */
+    public void close() {
+        if (!enabled)
+            return;
+        synchronized (this) {
+            if (closed)
+                return;
+            closed = true;
+        }
+        while (writers.get() > 0) // outside the lock, since a writer may need it to map a segment
+            Thread.yield();
+        synchronized (this) {
+            try {
+                for (Segment s = segment; s != null; s = s.previous)
+                    s.buffer.force();
+                channel.truncate(RECORD_BYTES + next.get() * RECORD_BYTES);
+                channel.close();
+            } catch (IOException ignored) {
+                // the records are in the file, only the trailing unused space may be left
+            }
+        }
+    }
+
+    private synchronized Segment advance(Segment full) {
+        Segment current = segment;
+        if (current != full)
+            return current;
+        try {
+            Segment s = map(full.first + full.records, full);
+            // keep one previous segment mapped for writers that claimed an index before the switch
+            full.previous = null;
+            segment = s;
+            return s;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private Segment map(long first, Segment previous) throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, RECORD_BYTES + first * RECORD_BYTES,
+                segmentRecords * RECORD_BYTES);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        return new Segment(first, segmentRecords, buffer, previous);
+    }
+
+    private synchronized MappedByteBuffer mapRecord(long index) {
+        try {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, RECORD_BYTES + index * RECORD_BYTES,
+                    RECORD_BYTES);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            return buffer;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
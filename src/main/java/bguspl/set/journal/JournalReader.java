@@ -0,0 +1,256 @@
+package bguspl.set.journal;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A command line tool that decodes, filters and aggregates game journals (see Journal).
+ * <p>
+ * Usage: JournalReader [options] journal-file
+ * <ul>
+ * <li>--print - print the matching events (the default is to print only the summary).</li>
+ * <li>--type TYPE - only events of this type (e.g. CLAIM), may be repeated.</li>
+ * <li>--table ID, --player ID, --slot ID - only events of this table / player / slot.</li>
+ * <li>--from SECONDS, --to SECONDS - only events in this range (seconds since the journal started).</li>
+ * </ul>
+ * The summary counts the events per type and measures the claim-to-verdict latency of every player.
+ */
+public class JournalReader {
+
+    /**
+     * A decoded journal record (reused while scanning, so the scan does not allocate per event).
+     */
+    public static class Record {
+        public long nanos;
+        public Journal.Type type;
+        public int table;
+        public int player;
+        public int slot;
+        public int card;
+        public long value;
+    }
+
+    /**
+     * Receives the records of a scanned journal.
+     */
+    public interface Visitor {
+        void visit(Record record);
+    }
+
+    /**
+     * The file mapped in segments of segmentRecords records each (record i is in segment i / segmentRecords), since a
+     * single mapping cannot exceed 2GB.
+     */
+    private final MappedByteBuffer[] segments;
+    private final long segmentRecords;
+    private final long records;
+
+    /**
+     * The wall-clock time (epoch milliseconds) and the System.nanoTime value when the journal started.
+     */
+    public final long startMillis;
+    public final long startNanos;
+
+    public JournalReader(Path path) throws IOException {
+        this(path, 1L << 30);
+    }
+
+    /**
+     * @param path         - the journal file.
+     * @param segmentBytes - the size of each memory-mapped segment of the file.
+     * @throws IOException - if the file cannot be mapped or is not a journal.
+     */
+    JournalReader(Path path, long segmentBytes) throws IOException {
+        segmentRecords = Math.max(1, Math.min(segmentBytes, 1L << 30) / Journal.RECORD_BYTES);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size() / Journal.RECORD_BYTES * Journal.RECORD_BYTES;
+            long segmentSize = segmentRecords * Journal.RECORD_BYTES;
+            segments = new MappedByteBuffer[(int) Math.max(1, (size + segmentSize - 1) / segmentSize)];
+            for (int s = 0; s < segments.length; ++s) {
+                long position = s * segmentSize;
+                segments[s] = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                        Math.max(0, Math.min(segmentSize, size - position)));
+                segments[s].order(ByteOrder.LITTLE_ENDIAN);
+            }
+            records = size / Journal.RECORD_BYTES - 1;
+        }
+        MappedByteBuffer header = segments[0];
+        if (header.limit() < Journal.RECORD_BYTES || header.getInt(0) != Journal.MAGIC)
+            throw new IOException(path + " is not a game journal");
+        if (header.getInt(4) != Journal.VERSION || header.getInt(8) != Journal.RECORD_BYTES)
+            throw new IOException(path + " has an unsupported journal version " + header.getInt(4));
+        startMillis = header.getLong(16);
+        startNanos = header.getLong(24);
+    }
+
+    /**
+     * Decodes the journal records in order, stopping at the first unwritten record.
+     *
+     * @param visitor - receives every record.
+     * @return - the number of records scanned.
+     */
+    public long scan(Visitor visitor) {
+        Record record = new Record();
+        long count = 0;
+        for (long i = 1; i <= records; ++i) {
+            MappedByteBuffer buffer = segments[(int) (i / segmentRecords)];
+            int offset = (int) (i % segmentRecords) * Journal.RECORD_BYTES;
+            record.type = Journal.Type.of(buffer.get(offset + 8));
+            if (record.type == null)
+                break;
+            record.nanos = buffer.getLong(offset);
+            record.table = buffer.getShort(offset + 10);
+            record.player = buffer.getShort(offset + 12);
+            record.slot = buffer.getShort(offset + 14);
+            record.card = buffer.getInt(offset + 16);
+            record.value = buffer.getLong(offset + 24);
+            visitor.visit(record);
+            ++count;
+        }
+        return count;
+    }
+
+    private static class Filter {
+        long types = ~0L;
+        boolean anyType = true;
+        int table = Integer.MIN_VALUE;
+        int player = Integer.MIN_VALUE;
+        int slot = Integer.MIN_VALUE;
+        long from = Long.MIN_VALUE;
+        long to = Long.MAX_VALUE;
+
+        boolean accept(Record r, long startNanos) {
+            long relative = r.nanos - startNanos;
+            return (types & (1L << r.type.code)) != 0
+                    && (table == Integer.MIN_VALUE || r.table == table)
+                    && (player == Integer.MIN_VALUE || r.player == player)
+                    && (slot == Integer.MIN_VALUE || r.slot == slot)
+                    && relative >= from && relative <= to;
+        }
+    }
+
+    /**
+     * Aggregates the scanned events: counts per type and claim-to-verdict latencies per table and player.
+     */
+    private static class Summary implements Visitor {
+        final long[] counts = new long[Journal.Type.values().length + 1];
+        final Map<Long, Long> pendingClaims = new HashMap<>();
+        final Map<Long, long[]> latencies = new HashMap<>(); // table/player -> count, sum, max (nanos), valid
+        long first = Long.MAX_VALUE, last = Long.MIN_VALUE;
+
+        @Override
+        public void visit(Record r) {
+            counts[r.type.code]++;
+            first = Math.min(first, r.nanos);
+            last = Math.max(last, r.nanos);
+            long key = ((long) r.table << 32) | (r.player & 0xffffffffL);
+            if (r.type == Journal.Type.CLAIM)
+                pendingClaims.put(key, r.nanos);
+            else if (r.type == Journal.Type.VERDICT) {
+                Long claimed = pendingClaims.remove(key);
+                long[] stats = latencies.computeIfAbsent(key, k -> new long[4]);
+                if (claimed != null) {
+                    long latency = r.nanos - claimed;
+                    stats[0]++;
+                    stats[1] += latency;
+                    stats[2] = Math.max(stats[2], latency);
+                }
+                if (r.value > 0)
+                    stats[3]++;
+            }
+        }
+
+        void print(PrintStream out) {
+            long total = 0;
+            for (Journal.Type type : Journal.Type.values()) {
+                out.printf("%-10s %12d%n", type, counts[type.code]);
+                total += counts[type.code];
+            }
+            double seconds = total > 0 ? (last - first) / 1e9 : 0;
+            out.printf("%-10s %12d events in %.3f seconds%n", "TOTAL", total, seconds);
+            if (!latencies.isEmpty()) {
+                out.println();
+                out.println("table player   verdicts      valid  avg latency (us)  max latency (us)");
+                latencies.entrySet().stream().sorted(Map.Entry.comparingByKey()).forEach(e -> {
+                    long[] stats = e.getValue();
+                    out.printf("%5d %6d %10d %10d %17.1f %17.1f%n", e.getKey() >> 32, (int) (long) e.getKey(),
+                            stats[0], stats[3], stats[0] > 0 ? stats[1] / 1e3 / stats[0] : 0.0, stats[2] / 1e3);
+                });
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        Filter filter = new Filter();
+        boolean print = false;
+        String file = null;
+        for (int i = 0; i < args.length; ++i) {
+            switch (args[i]) {
+                case "--print":
+                    print = true;
+                    break;
+                case "--type":
+                    if (filter.anyType) {
+                        filter.types = 0;
+                        filter.anyType = false;
+                    }
+                    filter.types |= 1L << Journal.Type.valueOf(args[++i].toUpperCase()).code;
+                    break;
+                case "--table":
+                    filter.table = Integer.parseInt(args[++i]);
+                    break;
+                case "--player":
+                    filter.player = Integer.parseInt(args[++i]);
+                    break;
+                case "--slot":
+                    filter.slot = Integer.parseInt(args[++i]);
+                    break;
+                case "--from":
+                    filter.from = (long) (Double.parseDouble(args[++i]) * 1e9);
+                    break;
+                case "--to":
+                    filter.to = (long) (Double.parseDouble(args[++i]) * 1e9);
+                    break;
+                default:
+                    file = args[i];
+            }
+        }
+        if (file == null) {
+            System.err.println("usage: JournalReader [--print] [--type TYPE]... [--table ID] [--player ID] [--slot ID]"
+                    + " [--from SECONDS] [--to SECONDS] journal-file");
+            System.exit(1);
+        }
+
+        JournalReader reader = new JournalReader(Paths.get(file));
+        Summary summary = new Summary();
+        boolean printEvents = print;
+        StringBuilder line = new StringBuilder();
+        PrintStream out = System.out;
+        System.out.println("journal started at "
+                + new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS").format(new Date(reader.startMillis)));
+        reader.scan(r -> {
+            if (!filter.accept(r, reader.startNanos))
+                return;
+            summary.visit(r);
+            if (printEvents) {
+                line.setLength(0);
+                line.append(String.format("%.6f", (r.nanos - reader.startNanos) / 1e9)).append(' ').append(r.type)
+                        .append(" table=").append(r.table).append(" player=").append(r.player)
+                        .append(" slot=").append(r.slot).append(" card=").append(r.card)
+                        .append(" value=").append(r.value);
+                out.println(line);
+            }
+        });
+        summary.print(out);
+    }
+}
@@ -0,0 +1,191 @@
+package bguspl.set.journal;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import bguspl.set.UserInterfaceDecorator;
+import bguspl.set.Util;
+import bguspl.set.UtilImpl;
+import bguspl.set.ex.Dealer;
+import bguspl.set.ex.Player;
+import bguspl.set.ex.Table;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A load harness that replays the key presses recorded in a game journal (see Journal.Type.KEY) against a fresh
+ * dealer and table with no user interface, at the recorded speed, N times faster, or as fast as possible.
+ * The replayed game is journaled too, and its verdict latency and throughput are reported at the end, so a trace of a
+ * busy session can be replayed against a new build and compared.
+ * <p>
+ * Only the offered load is reproduced: the fresh dealer deals its own random cards, so a replayed press lands on a
+ * different card than the recorded one, and the claims and verdicts differ from the recorded game's.
+ * <p>
+ * Usage: TraceReplay [--speed N (0 for unthrottled, default 1)] [--table ID] [--config FILE] [--out JOURNAL]
+ * trace-journal
+ */
+public class TraceReplay {
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        double speed = 1;
+        int tableId = -1;
+        String configFile = null;
+        String out = null;
+        String trace = null;
+        for (int i = 0; i < args.length; ++i) {
+            switch (args[i]) {
+                case "--speed":
+                    speed = Double.parseDouble(args[++i]);
+                    break;
+                case "--table":
+                    tableId = Integer.parseInt(args[++i]);
+                    break;
+                case "--config":
+                    configFile = args[++i];
+                    break;
+                case "--out":
+                    out = args[++i];
+                    break;
+                default:
+                    trace = args[i];
+            }
+        }
+        if (trace == null) {
+            System.err.println("usage: TraceReplay [--speed N] [--table ID] [--config FILE] [--out JOURNAL]"
+                    + " trace-journal");
+            System.exit(1);
+        }
+
+        // load the recorded key presses of one table
+        Trace keys = new Trace();
+        int[] table = { tableId };
+        new JournalReader(Paths.get(trace)).scan(r -> {
+            if (r.type != Journal.Type.KEY)
+                return;
+            if (table[0] < 0)
+                table[0] = r.table;
+            if (r.table == table[0])
+                keys.add(r.nanos, r.player << 16 | r.slot);
+        });
+
+        Replay replay = new Replay(configFile, out);
+        System.out.println("replaying " + keys.size + " key presses of table " + table[0] + " at "
+                + (speed > 0 ? speed + "x" : "unthrottled") + " speed (on a fresh deal, not the recorded one)");
+        replay.run(keys, speed);
+    }
+
+    /**
+     * A growing list of timestamped values (key presses or latencies).
+     */
+    private static class Trace {
+        long[] times = new long[1024];
+        int[] values = new int[1024];
+        int size;
+
+        void add(long time, int value) {
+            if (size == times.length) {
+                times = Arrays.copyOf(times, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+            times[size] = time;
+            values[size++] = value;
+        }
+    }
+
+    /**
+     * A fresh game to replay key presses against.
+     */
+    private static class Replay {
+
+        private final Config config;
+        private final Path journalPath;
+        private final Journal journal;
+        private final Dealer dealer;
+        private final Player[] players;
+
+        Replay(String configFile, String out) throws IOException {
+            Logger logger = Logger.getLogger("TraceReplay");
+            logger.setUseParentHandlers(false);
+            config = new Config(logger, configFile);
+            logger.setLevel(Level.OFF);
+            Util util = new UtilImpl(config);
+            journalPath = out != null ? Paths.get(out) : Files.createTempFile("replay", ".journal");
+            journal = new Journal(journalPath, config.journalSegmentBytes);
+            Env env = new Env(logger, config, new UserInterfaceDecorator(logger, util, null), util, journal);
+
+            Table table = new Table(env);
+            players = new Player[config.players];
+            dealer = new Dealer(env, table, players);
+            for (int i = 0; i < players.length; i++)
+                players[i] = new Player(env, dealer, table, i, true);
+        }
+
+        void run(Trace keys, double speed) throws InterruptedException, IOException {
+            Thread dealerThread = new Thread(dealer, "dealer");
+            dealerThread.start();
+            Thread.sleep(config.tableDelayMillis * config.tableSize + 100); // let the dealer deal the first cards
+
+            long start = System.nanoTime();
+            for (int i = 0; i < keys.size; ++i) {
+                if (speed > 0) {
+                    long due = start + (long) ((keys.times[i] - keys.times[0]) / speed);
+                    long wait = due - System.nanoTime();
+                    if (wait > 0)
+                        Thread.sleep(wait / 1000000, (int) (wait % 1000000));
+                }
+                int player = keys.values[i] >>> 16;
+                int slot = keys.values[i] & 0xffff;
+                if (player < players.length && slot < config.tableSize)
+                    players[player].keyPressed(slot);
+            }
+            long elapsed = System.nanoTime() - start;
+
+            dealer.terminate();
+            dealerThread.join(10000);
+            journal.close();
+            report(keys.size, elapsed);
+        }
+
+        private void report(int presses, long elapsed) throws IOException {
+            Map<Integer, Long> claims = new HashMap<>();
+            Trace verdicts = new Trace(); // latency and validity of every verdict
+            new JournalReader(journalPath).scan(r -> {
+                if (r.type == Journal.Type.CLAIM)
+                    claims.put(r.player, r.nanos);
+                else if (r.type == Journal.Type.VERDICT) {
+                    Long claimed = claims.remove(r.player);
+                    if (claimed != null)
+                        verdicts.add(r.nanos - claimed, (int) r.value);
+                }
+            });
+
+            int valid = 0;
+            for (int i = 0; i < verdicts.size; ++i)
+                if (verdicts.values[i] > 0)
+                    valid++;
+            long[] sorted = Arrays.copyOf(verdicts.times, verdicts.size);
+            Arrays.sort(sorted);
+            double seconds = elapsed / 1e9;
+            System.out.printf("key presses: %d in %.3f seconds (%.1f per second)%n", presses, seconds,
+                    presses / seconds);
+            System.out.printf("verdicts: %d (%d valid), %.1f per second%n", verdicts.size, valid,
+                    verdicts.size / seconds);
+            if (sorted.length > 0)
+                System.out.printf("verdict latency (us): p50 %.1f  p90 %.1f  p99 %.1f  max %.1f%n",
+                        percentile(sorted, 0.5), percentile(sorted, 0.9), percentile(sorted, 0.99),
+                        sorted[sorted.length - 1] / 1e3);
+            System.out.println("replayed game journal: " + journalPath);
+        }
+
+        private static double percentile(long[] sorted, double p) {
+            return sorted[(int) Math.min(sorted.length - 1, Math.floor(p * sorted.length))] / 1e3;
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package bguspl.set.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A concurrent histogram of durations (in nanoseconds) with logarithmic buckets, in the manner of HdrHistogram.
+ * <p>
+ * Values below 2 * SUB_BUCKETS get a bucket each; above that, every power of two is split into SUB_BUCKETS linear
+ * buckets, so a reported value is within 1 / SUB_BUCKETS (about 3%) of the recorded one. Recording is a few
+ * arithmetic operations and uncontended atomic increments (threads recording different values touch different
+ * buckets), with no allocation and no locking. Values above MAX_VALUE are counted as MAX_VALUE.
+ */
+public class Histogram implements HistogramMBean {
+
+    private static final int SUB_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+    /**
+     * The largest value told apart from larger ones (about 18 minutes, in nanoseconds).
+     */
+    public static final long MAX_VALUE = (1L << 40) - 1;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(index(MAX_VALUE) + 1);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records a value.
+     *
+     * @param nanos - the value (negative values are recorded as 0).
+     */
+    public void record(long nanos) {
+        long value = Math.min(Math.max(nanos, 0), MAX_VALUE);
+        buckets.incrementAndGet(index(value));
+        count.increment();
+        sum.add(value);
+        long previous;
+        while (value > (previous = max.get()) && !max.compareAndSet(previous, value))
+            ;
+    }
+
+    /**
+     * Records the time passed since a System.nanoTime reading.
+     *
+     * @param startNanos - the reading.
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    static int index(long value) {
+        if (value < 2 * SUB_BUCKETS)
+            return (int) value;
+        int shift = Long.SIZE - Long.numberOfLeadingZeros(value) - SUB_BITS - 1;
+        return (shift + 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    /**
+     * @return - the largest value of a bucket.
+     */
+    static long highestValue(int index) {
+        if (index < 2 * SUB_BUCKETS)
+            return index;
+        int shift = index / SUB_BUCKETS - 1;
+        return ((long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift) + (1L << shift) - 1;
+    }
+
+    /**
+     * @return - the number of recorded values.
+     */
+    public long count() {
+        return count.sum();
+    }
+
+    /**
+     * @return - the sum of the recorded values in nanoseconds.
+     */
+    public long sum() {
+        return sum.sum();
+    }
+
+    /**
+     * @return - the mean of the recorded values in nanoseconds (0 if there are none).
+     */
+    public double mean() {
+        long n = count.sum();
+        return n == 0 ? 0 : (double) sum.sum() / n;
+    }
+
+    /**
+     * @return - the largest recorded value in nanoseconds.
+     */
+    public long max() {
+        return max.get();
+    }
+
+    /**
+     * Returns a percentile of the recorded values (read while values are recorded, it may be off by those values).
+     *
+     * @param quantile - the quantile, between 0 and 1.
+     * @return - the smallest value (bucket accuracy) at or above the quantile of the values (0 if there are none).
+     */
+    public long percentile(double quantile) {
+        long total = 0;
+        for (int i = 0; i < buckets.length(); ++i)
+            total += buckets.get(i);
+        long target = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int i = 0; i < buckets.length(); ++i) {
+            seen += buckets.get(i);
+            if (seen >= target)
+                return Math.min(highestValue(i), max.get());
+        }
+        return 0;
+    }
+
+    /**
+     * Returns several percentiles of the recorded values in one pass, without allocating.
+     *
+     * @param quantiles - the quantiles, in ascending order.
+     * @param values    - the array to store the percentile of each quantile in (see percentile).
+     */
+    public void percentiles(double[] quantiles, long[] values) {
+        long total = 0;
+        for (int i = 0; i < buckets.length(); ++i)
+            total += buckets.get(i);
+        long highest = max.get();
+        long seen = 0;
+        int q = 0;
+        for (int i = 0; i < buckets.length() && q < quantiles.length; ++i) {
+            seen += buckets.get(i);
+            while (q < quantiles.length && seen >= Math.max(1, (long) Math.ceil(quantiles[q] * total)))
+                values[q++] = Math.min(highestValue(i), highest);
+        }
+        while (q < quantiles.length)
+            values[q++] = 0;
+    }
+
+    /**
+     * Adds the values recorded by another histogram to this one.
+     *
+     * @param other - the other histogram.
+     */
+    public void add(Histogram other) {
+        for (int i = 0; i < buckets.length(); ++i) {
+            long n = other.buckets.get(i);
+            if (n != 0)
+                buckets.addAndGet(i, n);
+        }
+        count.add(other.count.sum());
+        sum.add(other.sum.sum());
+        long value = other.max.get(), previous;
+        while (value > (previous = max.get()) && !max.compareAndSet(previous, value))
+            ;
+    }
+
+    @Override
+    public long getCount() {
+        return count();
+    }
+
+    @Override
+    public double getMeanMicros() {
+        return mean() / 1e3;
+    }
+
+    @Override
+    public double getP50Micros() {
+        return percentile(0.5) / 1e3;
+    }
+
+    @Override
+    public double getP90Micros() {
+        return percentile(0.9) / 1e3;
+    }
+
+    @Override
+    public double getP99Micros() {
+        return percentile(0.99) / 1e3;
+    }
+
+    @Override
+    public double getP999Micros() {
+        return percentile(0.999) / 1e3;
+    }
+
+    @Override
+    public double getMaxMicros() {
+        return max() / 1e3;
+    }
+}
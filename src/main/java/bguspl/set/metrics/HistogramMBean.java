@@ -0,0 +1,21 @@
+package bguspl.set.metrics;
+
+/**
+ * The JMX view of a Histogram (durations in microseconds).
+ */
+public interface HistogramMBean {
+
+    long getCount();
+
+    double getMeanMicros();
+
+    double getP50Micros();
+
+    double getP90Micros();
+
+    double getP99Micros();
+
+    double getP999Micros();
+
+    double getMaxMicros();
+}
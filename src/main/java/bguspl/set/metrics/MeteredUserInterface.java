@@ -0,0 +1,101 @@
+package bguspl.set.metrics;
+
+import bguspl.set.UserInterface;
+
+/**
+ * A user interface that times the calls the game threads make to another one (see Metrics.uiLatency).
+ */
+public class MeteredUserInterface implements UserInterface {
+
+    private final UserInterface ui;
+    private final Histogram latency;
+
+    /**
+     * @param ui      - the user interface to call.
+     * @param latency - the histogram to record the duration of each call to.
+     */
+    public MeteredUserInterface(UserInterface ui, Histogram latency) {
+        this.ui = ui;
+        this.latency = latency;
+    }
+
+    @Override
+    public void placeCard(int card, int slot) {
+        long start = System.nanoTime();
+        ui.placeCard(card, slot);
+        latency.recordSince(start);
+    }
+
+    @Override
+    public void removeCard(int slot) {
+        long start = System.nanoTime();
+        ui.removeCard(slot);
+        latency.recordSince(start);
+    }
+
+    @Override
+    public void setCountdown(long millies, boolean warn) {
+        long start = System.nanoTime();
+        ui.setCountdown(millies, warn);
+        latency.recordSince(start);
+    }
+
+    @Override
+    public void setElapsed(long millies) {
+        long start = System.nanoTime();
+        ui.setElapsed(millies);
+        latency.recordSince(start);
+    }
+
+    @Override
+    public void setScore(int player, int score) {
+        long start = System.nanoTime();
+        ui.setScore(player, score);
+        latency.recordSince(start);
+    }
+
+    @Override
+    public void setFreeze(int player, long millies) {
+        long start = System.nanoTime();
+        ui.setFreeze(player, millies);
+        latency.recordSince(start);
+    }
+
+    @Override
+    public void placeToken(int player, int slot) {
+        long start = System.nanoTime();
+        ui.placeToken(player, slot);
+        latency.recordSince(start);
+    }
+
+    @Override
+    public void removeTokens() {
+        long start = System.nanoTime();
+        ui.removeTokens();
+        latency.recordSince(start);
+    }
+
+    @Override
+    public void removeTokens(int slot) {
+        long start = System.nanoTime();
+        ui.removeTokens(slot);
+        latency.recordSince(start);
+    }
+
+    @Override
+    public void removeToken(int player, int slot) {
+        long start = System.nanoTime();
+        ui.removeToken(player, slot);
+        latency.recordSince(start);
+    }
+
+    @Override
+    public void announceWinner(int[] players) {
+        ui.announceWinner(players);
+    }
+
+    @Override
+    public void dispose() {
+        ui.dispose();
+    }
+}
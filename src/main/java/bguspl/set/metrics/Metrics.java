@@ -0,0 +1,162 @@
+package bguspl.set.metrics;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Logger;
+
+/**
+ * The metrics of the whole process: keeps the metrics of each table, the totals of all the tables and the latency of
+ * the user interface calls, and (optionally) registers them as MBeans of the platform MBean server, so JConsole,
+ * VisualVM and any JMX client can watch the game. See also PrometheusEndpoint.
+ * <p>
+ * Bean names: bguspl.set:type=Game for the totals, bguspl.set:type=Game,name=uiLatency, and for table N
+ * bguspl.set:type=Table,table=N and bguspl.set:type=Table,table=N,name=H for each of its histograms H.
+ */
+public class Metrics implements MetricsMBean {
+
+    public static final String DOMAIN = "bguspl.set";
+
+    private final Logger logger;
+    private final MBeanServer server;
+    private final List<TableMetrics> tables = new CopyOnWriteArrayList<>();
+
+    /**
+     * The duration of the user interface calls made by the game threads (see MeteredUserInterface).
+     */
+    public final Histogram uiLatency = new Histogram();
+
+    /**
+     * @param logger - the game logger.
+     * @param jmx    - true iff the metrics should be registered as MBeans.
+     */
+    public Metrics(Logger logger, boolean jmx) {
+        this.logger = logger;
+        this.server = jmx ? ManagementFactory.getPlatformMBeanServer() : null;
+        register(DOMAIN + ":type=Game", this);
+        register(DOMAIN + ":type=Game,name=uiLatency", uiLatency);
+    }
+
+    /**
+     * Registers the metrics of a table.
+     *
+     * @param table - the table's metrics.
+     */
+    public void register(TableMetrics table) {
+        tables.add(table);
+        String name = DOMAIN + ":type=Table,table=" + table.table;
+        register(name, table);
+        register(name + ",name=claimLatency", table.claimLatency);
+        register(name + ",name=dealerLoop", table.dealerLoop);
+        register(name + ",name=tableDelay", table.tableDelay);
+        register(name + ",name=timeToSet", table.timeToSet);
+        register(name + ",name=lockWait", table.lockWait);
+    }
+
+    /**
+     * Unregisters the metrics of a table (e.g. when its game is over).
+     *
+     * @param table - the table's metrics.
+     */
+    public void unregister(TableMetrics table) {
+        if (!tables.remove(table))
+            return;
+        String name = DOMAIN + ":type=Table,table=" + table.table;
+        for (String suffix : new String[]{"", ",name=claimLatency", ",name=dealerLoop", ",name=tableDelay",
+                ",name=timeToSet", ",name=lockWait"})
+            unregister(name + suffix);
+    }
+
+    /**
+     * Unregisters all the beans.
+     */
+    public void dispose() {
+        for (TableMetrics table : tables)
+            unregister(table);
+        unregister(DOMAIN + ":type=Game,name=uiLatency");
+        unregister(DOMAIN + ":type=Game");
+    }
+
+    private void register(String name, Object bean) {
+        if (server == null)
+            return;
+        try {
+            ObjectName objectName = new ObjectName(name);
+            if (server.isRegistered(objectName))
+                server.unregisterMBean(objectName);
+            server.registerMBean(bean, objectName);
+        } catch (JMException e) {
+            logger.severe("cannot register metrics " + name + ": " + e);
+        }
+    }
+
+    private void unregister(String name) {
+        if (server == null)
+            return;
+        try {
+            ObjectName objectName = new ObjectName(name);
+            if (server.isRegistered(objectName))
+                server.unregisterMBean(objectName);
+        } catch (JMException e) {
+            logger.severe("cannot unregister metrics " + name + ": " + e);
+        }
+    }
+
+    /**
+     * @return - the metrics of the registered tables.
+     */
+    public List<TableMetrics> tables() {
+        return tables;
+    }
+
+    @Override
+    public int getTables() {
+        return tables.size();
+    }
+
+    @Override
+    public long getClaims() {
+        long claims = 0;
+        for (TableMetrics table : tables)
+            claims += table.claims.sum();
+        return claims;
+    }
+
+    @Override
+    public double getValidRatio() {
+        long valid = 0, verdicts = 0;
+        for (TableMetrics table : tables) {
+            long tableValid = table.validClaims.sum();
+            valid += tableValid;
+            verdicts += tableValid + table.invalidClaims.sum();
+        }
+        return verdicts == 0 ? 0 : (double) valid / verdicts;
+    }
+
+    @Override
+    public double getClaimsPerSecond() {
+        double rate = 0;
+        for (TableMetrics table : tables)
+            rate += table.getClaimsPerSecond();
+        return rate;
+    }
+
+    @Override
+    public long getSets() {
+        long sets = 0;
+        for (TableMetrics table : tables)
+            sets += table.sets.sum();
+        return sets;
+    }
+
+    @Override
+    public long getReshuffles() {
+        long reshuffles = 0;
+        for (TableMetrics table : tables)
+            reshuffles += table.reshuffles.sum();
+        return reshuffles;
+    }
+}
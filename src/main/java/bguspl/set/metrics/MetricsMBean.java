@@ -0,0 +1,19 @@
+package bguspl.set.metrics;
+
+/**
+ * The JMX view of the totals of all the tables of the process.
+ */
+public interface MetricsMBean {
+
+    int getTables();
+
+    long getClaims();
+
+    double getValidRatio();
+
+    double getClaimsPerSecond();
+
+    long getSets();
+
+    long getReshuffles();
+}
@@ -0,0 +1,227 @@
+package bguspl.set.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.function.Function;
+import java.util.logging.Logger;
+
+/**
+ * Serves the game metrics in the Prometheus text exposition format (version 0.0.4), on the JDK's built-in HTTP server.
+ * <p>
+ * Counters are exported as counters (Prometheus computes the rates), durations as summaries in seconds with the
+ * quantiles 0.5, 0.9, 0.99 and 0.999, and the numbers of tables, players and threads as gauges. A scrape reads the
+ * counters and histograms as they are; its cost depends on the number of tables, never on the number of game events,
+ * and it renders into a buffer that is kept between scrapes (scrapes are served one at a time).
+ */
+public class PrometheusEndpoint {
+
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+    private static final String[] QUANTILE_LABELS = {"0.5", "0.9", "0.99", "0.999"};
+
+    private final Logger logger;
+    private final Metrics metrics;
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+    private final StringBuilder text = new StringBuilder(1 << 14);
+    private final long[] percentiles = new long[QUANTILES.length];
+    private byte[] body = new byte[1 << 14];
+
+    private HttpServer server;
+
+    /**
+     * @param logger  - the game logger.
+     * @param metrics - the metrics to serve.
+     */
+    public PrometheusEndpoint(Logger logger, Metrics metrics) {
+        this.logger = logger;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Starts serving the metrics.
+     *
+     * @param port - the port (0 for any free port).
+     * @param path - the path of the metrics.
+     * @return - the port the metrics are served on.
+     * @throws IOException - if the port cannot be opened.
+     */
+    public int start(int port, String path) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.createContext(path, this::handle);
+        server.setExecutor(null); // the server's own dispatcher thread serves the scrapes one at a time
+        server.start();
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stops serving the metrics.
+     */
+    public void stop() {
+        if (server != null)
+            server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod()) && !"HEAD".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            int length = render();
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            if ("HEAD".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+            exchange.sendResponseHeaders(200, length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body, 0, length);
+            }
+        } catch (RuntimeException e) {
+            logger.severe("cannot serve metrics: " + e);
+            exchange.sendResponseHeaders(500, -1);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Renders the metrics into the body buffer.
+     *
+     * @return - the length of the body.
+     */
+    synchronized int render() {
+        text.setLength(0);
+        renderTo(text);
+        int length = text.length();
+        if (body.length < length)
+            body = new byte[Math.max(length, body.length * 2)];
+        for (int i = 0; i < length; ++i) // the text is ASCII
+            body[i] = (byte) text.charAt(i);
+        return length;
+    }
+
+    /**
+     * @return - the metrics in the exposition format.
+     */
+    synchronized String text() {
+        text.setLength(0);
+        renderTo(text);
+        return text.toString();
+    }
+
+    private void renderTo(StringBuilder out) {
+        List<TableMetrics> tables = metrics.tables();
+
+        header(out, "bguspl_set_tables", "gauge", "The number of tables.");
+        sample(out, "bguspl_set_tables", null, null, tables.size());
+        header(out, "bguspl_set_players", "gauge", "The number of players at each table.");
+        for (TableMetrics table : tables)
+            sample(out, "bguspl_set_players", table, null, table.players);
+
+        header(out, "bguspl_set_claims_total", "counter", "The claims queued for the dealer.");
+        for (TableMetrics table : tables)
+            sample(out, "bguspl_set_claims_total", table, null, table.claims.sum());
+        header(out, "bguspl_set_verdicts_total", "counter", "The dealer's verdicts on claims.");
+        for (TableMetrics table : tables) {
+            sample(out, "bguspl_set_verdicts_total", table, "verdict=\"valid\"", table.validClaims.sum());
+            sample(out, "bguspl_set_verdicts_total", table, "verdict=\"invalid\"", table.invalidClaims.sum());
+        }
+        header(out, "bguspl_set_sets_total", "counter", "The sets removed from the table.");
+        for (TableMetrics table : tables)
+            sample(out, "bguspl_set_sets_total", table, null, table.sets.sum());
+        header(out, "bguspl_set_reshuffles_total", "counter", "The times all the cards were returned to the deck.");
+        for (TableMetrics table : tables)
+            sample(out, "bguspl_set_reshuffles_total", table, null, table.reshuffles.sum());
+
+        summaries(out, tables, "bguspl_set_claim_latency_seconds", "From a claim being queued until its verdict.",
+                table -> table.claimLatency);
+        summaries(out, tables, "bguspl_set_dealer_loop_seconds", "One iteration of the dealer's loop.",
+                table -> table.dealerLoop);
+        summaries(out, tables, "bguspl_set_table_delay_seconds", "The table delay of a card change.",
+                table -> table.tableDelay);
+        summaries(out, tables, "bguspl_set_time_to_set_seconds", "From a deal or a set until the next set.",
+                table -> table.timeToSet);
+        summaries(out, tables, "bguspl_set_lock_wait_seconds", "Waiting to enter the dealer's lock.",
+                table -> table.lockWait);
+        header(out, "bguspl_set_ui_latency_seconds", "summary", "The user interface calls of the game threads.");
+        summary(out, "bguspl_set_ui_latency_seconds", null, metrics.uiLatency);
+
+        header(out, "bguspl_set_jvm_threads", "gauge", "The live threads of the process.");
+        sample(out, "bguspl_set_jvm_threads", null, null, threads.getThreadCount());
+        header(out, "bguspl_set_jvm_daemon_threads", "gauge", "The live daemon threads of the process.");
+        sample(out, "bguspl_set_jvm_daemon_threads", null, null, threads.getDaemonThreadCount());
+        header(out, "bguspl_set_jvm_peak_threads", "gauge", "The peak number of live threads of the process.");
+        sample(out, "bguspl_set_jvm_peak_threads", null, null, threads.getPeakThreadCount());
+    }
+
+    private void summaries(StringBuilder out, List<TableMetrics> tables, String name, String help,
+                           Function<TableMetrics, Histogram> histogram) {
+        header(out, name, "summary", help);
+        for (TableMetrics table : tables)
+            summary(out, name, table, histogram.apply(table));
+    }
+
+    private void summary(StringBuilder out, String name, TableMetrics table, Histogram histogram) {
+        histogram.percentiles(QUANTILES, percentiles);
+        for (int q = 0; q < QUANTILES.length; ++q) {
+            out.append(name).append('{');
+            if (table != null)
+                out.append("table=\"").append(table.table).append("\",");
+            out.append("quantile=\"").append(QUANTILE_LABELS[q]).append("\"} ");
+            seconds(out, percentiles[q]).append('\n');
+        }
+        out.append(name).append("_sum");
+        labels(out, table, null);
+        seconds(out, histogram.sum()).append('\n');
+        out.append(name).append("_count");
+        labels(out, table, null);
+        out.append(histogram.count()).append('\n');
+    }
+
+    private static void header(StringBuilder out, String name, String type, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(StringBuilder out, String name, TableMetrics table, String label, long value) {
+        out.append(name);
+        labels(out, table, label);
+        out.append(value).append('\n');
+    }
+
+    private static void labels(StringBuilder out, TableMetrics table, String label) {
+        if (table == null && label == null) {
+            out.append(' ');
+            return;
+        }
+        out.append('{');
+        if (table != null)
+            out.append("table=\"").append(table.table).append('"');
+        if (table != null && label != null)
+            out.append(',');
+        if (label != null)
+            out.append(label);
+        out.append("} ");
+    }
+
+    /**
+     * Appends nanoseconds as seconds, with nanosecond precision (without going through a double).
+     */
+    private static StringBuilder seconds(StringBuilder out, long nanos) {
+        out.append(nanos / 1000000000L).append('.');
+        long fraction = nanos % 1000000000L;
+        for (long digit = 100000000L; digit > 1 && fraction < digit; digit /= 10)
+            out.append('0');
+        return out.append(fraction);
+    }
+}
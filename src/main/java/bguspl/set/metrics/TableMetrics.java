@@ -0,0 +1,130 @@
+package bguspl.set.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The metrics of a table: counters of claims, verdicts, sets and reshuffles, and histograms of the durations the
+ * dealer and the players spend on them. The game threads record into them directly (striped counters and lock-free
+ * histograms, see Histogram), and Metrics exposes them through JMX.
+ */
+public class TableMetrics implements TableMetricsMBean {
+
+    /**
+     * The id of the table.
+     */
+    public final int table;
+
+    /**
+     * The number of players at the table.
+     */
+    public final int players;
+
+    /**
+     * The claims queued for the dealer, and the verdicts given on them.
+     */
+    public final LongAdder claims = new LongAdder();
+    public final LongAdder validClaims = new LongAdder();
+    public final LongAdder invalidClaims = new LongAdder();
+
+    /**
+     * The sets removed from the table, and the times all the cards were returned to the deck.
+     */
+    public final LongAdder sets = new LongAdder();
+    public final LongAdder reshuffles = new LongAdder();
+
+    /**
+     * From a claim being queued until the dealer's verdict on it.
+     */
+    public final Histogram claimLatency = new Histogram();
+
+    /**
+     * One iteration of the dealer's timer loop (waiting for claims, checking them and replacing the cards).
+     */
+    public final Histogram dealerLoop = new Histogram();
+
+    /**
+     * The table delay before each card is placed or removed.
+     */
+    public final Histogram tableDelay = new Histogram();
+
+    /**
+     * From a deal (or the previous set) until a set is found.
+     */
+    public final Histogram timeToSet = new Histogram();
+
+    /**
+     * Waiting to enter the dealer's mainLock monitor.
+     */
+    public final Histogram lockWait = new Histogram();
+
+    private final long startNanos = System.nanoTime();
+    private long rateNanos = startNanos;
+    private long rateClaims;
+    private double claimsPerSecond;
+
+    /**
+     * @param table   - the id of the table.
+     * @param players - the number of players at the table.
+     */
+    public TableMetrics(int table, int players) {
+        this.table = table;
+        this.players = players;
+    }
+
+    @Override
+    public int getPlayers() {
+        return players;
+    }
+
+    @Override
+    public long getClaims() {
+        return claims.sum();
+    }
+
+    @Override
+    public long getValidClaims() {
+        return validClaims.sum();
+    }
+
+    @Override
+    public long getInvalidClaims() {
+        return invalidClaims.sum();
+    }
+
+    @Override
+    public double getValidRatio() {
+        long valid = validClaims.sum();
+        long verdicts = valid + invalidClaims.sum();
+        return verdicts == 0 ? 0 : (double) valid / verdicts;
+    }
+
+    /**
+     * The rate is measured between readings at least a second apart (a reading sooner than that returns the last rate).
+     */
+    @Override
+    public synchronized double getClaimsPerSecond() {
+        long now = System.nanoTime();
+        if (now - rateNanos >= 1000000000L) {
+            long total = claims.sum();
+            claimsPerSecond = (total - rateClaims) * 1e9 / (now - rateNanos);
+            rateClaims = total;
+            rateNanos = now;
+        }
+        return claimsPerSecond;
+    }
+
+    @Override
+    public double getSetsPerMinute() {
+        return sets.sum() * 60e9 / Math.max(1, System.nanoTime() - startNanos);
+    }
+
+    @Override
+    public long getSets() {
+        return sets.sum();
+    }
+
+    @Override
+    public long getReshuffles() {
+        return reshuffles.sum();
+    }
+}
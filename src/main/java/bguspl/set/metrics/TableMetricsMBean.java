@@ -0,0 +1,25 @@
+package bguspl.set.metrics;
+
+/**
+ * The JMX view of the counters of a table (its durations are registered as separate Histogram beans).
+ */
+public interface TableMetricsMBean {
+
+    int getPlayers();
+
+    long getClaims();
+
+    long getValidClaims();
+
+    long getInvalidClaims();
+
+    double getValidRatio();
+
+    double getClaimsPerSecond();
+
+    double getSetsPerMinute();
+
+    long getSets();
+
+    long getReshuffles();
+}
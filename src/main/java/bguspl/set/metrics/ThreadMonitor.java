@@ -0,0 +1,293 @@
+package bguspl.set.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * Samples the CPU time and the lock contention of the game threads, and periodically reports the top consumers.
+ * <p>
+ * The game threads attribute themselves to a table and a role when they start (see attribute). Every interval the
+ * monitor reads, for each attributed thread, the CPU time and the numbers and times of blocking (waiting to enter a
+ * monitor) and waiting (wait, join, park, sleep) from the ThreadMXBean, and logs the threads that used the most CPU
+ * since the previous sample. It also sums the CPU time of each table and compares it with the sets the table
+ * found, so a table whose threads burn CPU without making progress (e.g. computer players spinning on a table with
+ * no set) stands out.
+ * <p>
+ * Work that runs on threads shared by all the tables (the computer players' key presses on the AiScheduler threads)
+ * is charged to its table and player by the code that runs it (see cpuTime and charge), and reported as a "scheduled"
+ * thread of that table.
+ */
+public class ThreadMonitor {
+
+    /**
+     * The table and role of a game thread.
+     */
+    private static final class Attribution {
+        final int table;
+        final String role;
+        final int player;
+
+        Attribution(int table, String role, int player) {
+            this.table = table;
+            this.role = role;
+            this.player = player;
+        }
+    }
+
+    /**
+     * The activity of a game thread during a sampling interval (or of the work charged to a table and player, with
+     * thread id -1).
+     */
+    public static final class Stats {
+        public final long threadId;
+        public final String name;
+        public final int table;
+        public final String role;
+        public final int player;
+        public final long cpuNanos;
+        public final long blockedCount;
+        public final long blockedMillis;
+        public final long waitedCount;
+        public final long waitedMillis;
+
+        Stats(long threadId, String name, Attribution attribution, long[] delta) {
+            this.threadId = threadId;
+            this.name = name;
+            this.table = attribution.table;
+            this.role = attribution.role;
+            this.player = attribution.player;
+            this.cpuNanos = delta[CPU];
+            this.blockedCount = delta[BLOCKED_COUNT];
+            this.blockedMillis = delta[BLOCKED_MILLIS];
+            this.waitedCount = delta[WAITED_COUNT];
+            this.waitedMillis = delta[WAITED_MILLIS];
+        }
+    }
+
+    private static final int CPU = 0;
+    private static final int BLOCKED_COUNT = 1;
+    private static final int BLOCKED_MILLIS = 2;
+    private static final int WAITED_COUNT = 3;
+    private static final int WAITED_MILLIS = 4;
+
+    /**
+     * A table whose threads use more than this share of a core during an interval without finding a set is reported
+     * as making no progress.
+     */
+    private static final double BURN_THRESHOLD = 0.5;
+
+    private static final Map<Long, Attribution> attributions = new ConcurrentHashMap<>();
+
+    /**
+     * The CPU time charged to each table and player (see charge), by (table << 32 | player).
+     */
+    private static final Map<Long, LongAdder> charged = new ConcurrentHashMap<>();
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    /**
+     * True iff a monitor was created (until then the attributions are not kept, since nothing would forget the
+     * finished threads).
+     */
+    private static volatile boolean monitoring;
+
+    /**
+     * Attributes the current thread to a table and a role, for the monitor (if there is one).
+     *
+     * @param table  - the table id.
+     * @param role   - the role of the thread (e.g. "dealer", "player" or "computer").
+     * @param player - the player the thread belongs to (-1 for none).
+     */
+    public static void attribute(int table, String role, int player) {
+        if (monitoring)
+            attributions.put(Thread.currentThread().getId(), new Attribution(table, role, player));
+    }
+
+    /**
+     * @return - the CPU time of the current thread so far, to pass to charge (-1 if there is no monitor).
+     */
+    public static long cpuTime() {
+        return monitoring ? THREADS.getCurrentThreadCpuTime() : -1;
+    }
+
+    /**
+     * Charges the CPU time the current thread used since cpuTime was called to a table and a player, for work that
+     * runs on a shared thread.
+     *
+     * @param table    - the table id.
+     * @param player   - the player id.
+     * @param startCpu - the value cpuTime returned before the work.
+     */
+    public static void charge(int table, int player, long startCpu) {
+        if (startCpu < 0)
+            return;
+        long used = THREADS.getCurrentThreadCpuTime() - startCpu;
+        if (used > 0)
+            charged.computeIfAbsent((long) table << 32 | (player & 0xffffffffL), key -> new LongAdder()).add(used);
+    }
+
+    private final Logger logger;
+    private final Metrics metrics;
+    private final long intervalMillis;
+    private final int top;
+    private final ThreadMXBean threads = THREADS;
+
+    /**
+     * The totals at the previous sample, per thread id (see the index constants), and when it was taken.
+     */
+    private final Map<Long, long[]> previous = new HashMap<>();
+    private final Map<Long, Long> previousCharged = new HashMap<>();
+    private final Map<Integer, Long> previousSets = new HashMap<>();
+    private long previousNanos = System.nanoTime();
+    private long elapsedNanos = 1;
+
+    private Thread thread;
+    private volatile boolean terminate;
+
+    /**
+     * @param logger         - the game logger (the reports are logged at level INFO).
+     * @param metrics        - the metrics of the tables (null if there are none), to compare the CPU time of a table
+     *                       with its progress.
+     * @param intervalMillis - the number of milliseconds between samples.
+     * @param top            - the number of threads to report.
+     */
+    public ThreadMonitor(Logger logger, Metrics metrics, long intervalMillis, int top) {
+        this.logger = logger;
+        this.metrics = metrics;
+        this.intervalMillis = intervalMillis;
+        this.top = top;
+        if (threads.isThreadCpuTimeSupported() && !threads.isThreadCpuTimeEnabled())
+            threads.setThreadCpuTimeEnabled(true);
+        if (threads.isThreadContentionMonitoringSupported() && !threads.isThreadContentionMonitoringEnabled())
+            threads.setThreadContentionMonitoringEnabled(true);
+        monitoring = true;
+    }
+
+    /**
+     * Starts sampling and reporting on a daemon thread.
+     */
+    public void start() {
+        thread = new Thread(() -> {
+            while (!terminate) {
+                try {
+                    Thread.sleep(intervalMillis);
+                } catch (InterruptedException ignored) {
+                }
+                if (!terminate)
+                    logger.info(report(sample()));
+            }
+        }, "thread-monitor");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops sampling.
+     */
+    public void stop() {
+        terminate = true;
+        if (thread != null)
+            thread.interrupt();
+    }
+
+    /**
+     * Samples the game threads.
+     *
+     * @return - the activity of each live game thread since the previous sample, the busiest first.
+     */
+    public synchronized List<Stats> sample() {
+        List<Long> ids = new ArrayList<>(attributions.keySet());
+        long[] idArray = new long[ids.size()];
+        for (int i = 0; i < idArray.length; ++i)
+            idArray[i] = ids.get(i);
+        ThreadInfo[] infos = threads.getThreadInfo(idArray);
+        long now = System.nanoTime();
+        elapsedNanos = Math.max(1, now - previousNanos);
+        previousNanos = now;
+
+        List<Stats> stats = new ArrayList<>();
+        for (int i = 0; i < idArray.length; ++i) {
+            long id = idArray[i];
+            long cpu = threads.isThreadCpuTimeEnabled() ? threads.getThreadCpuTime(id) : 0;
+            if (infos[i] == null || cpu < 0) { // the thread is gone
+                attributions.remove(id);
+                previous.remove(id);
+                continue;
+            }
+            long[] totals = {cpu, infos[i].getBlockedCount(), Math.max(infos[i].getBlockedTime(), 0),
+                    infos[i].getWaitedCount(), Math.max(infos[i].getWaitedTime(), 0)};
+            long[] last = previous.put(id, totals);
+            long[] delta = totals.clone();
+            if (last != null)
+                for (int j = 0; j < delta.length; ++j)
+                    delta[j] -= last[j];
+            stats.add(new Stats(id, infos[i].getThreadName(), attributions.get(id), delta));
+        }
+        for (Map.Entry<Long, LongAdder> entry : charged.entrySet()) {
+            long key = entry.getKey();
+            long cpu = entry.getValue().sum();
+            Long last = previousCharged.put(key, cpu);
+            long[] delta = {last == null ? cpu : cpu - last, 0, 0, 0, 0};
+            stats.add(new Stats(-1, "scheduled", new Attribution((int) (key >> 32), "computer", (int) key), delta));
+        }
+        stats.sort((a, b) -> Long.compare(b.cpuNanos, a.cpuNanos));
+        return stats;
+    }
+
+    /**
+     * Formats a sample: the busiest threads, and the CPU share and progress of each table.
+     *
+     * @param stats - the last sample.
+     * @return - the report.
+     */
+    public synchronized String report(List<Stats> stats) {
+        StringBuilder report = new StringBuilder("thread monitor, top threads by cpu over the last ")
+                .append(elapsedNanos / 1000000L).append("ms:");
+        for (int i = 0; i < Math.min(top, stats.size()); ++i) {
+            Stats s = stats.get(i);
+            report.append(String.format(
+                    "%n  table %d %s%s (%s): cpu %.1f%%, blocked %d times %dms, waited %d times %dms",
+                    s.table, s.role, s.player >= 0 ? " " + s.player : "", s.name, 100.0 * s.cpuNanos / elapsedNanos,
+                    s.blockedCount, s.blockedMillis, s.waitedCount, s.waitedMillis));
+        }
+
+        Map<Integer, long[]> tables = new TreeMap<>();
+        for (Stats s : stats) {
+            long[] table = tables.computeIfAbsent(s.table, t -> new long[2]);
+            table[0] += s.cpuNanos;
+            table[1] += s.blockedMillis;
+        }
+        for (Map.Entry<Integer, long[]> table : tables.entrySet()) {
+            double share = (double) table.getValue()[0] / elapsedNanos;
+            report.append(String.format("%n  table %d: cpu %.1f%% of a core, blocked %dms", table.getKey(),
+                    100 * share, table.getValue()[1]));
+            TableMetrics tableMetrics = tableMetrics(table.getKey());
+            if (tableMetrics == null)
+                continue;
+            long sets = tableMetrics.sets.sum();
+            Long last = previousSets.put(table.getKey(), sets);
+            long found = last == null ? sets : sets - last;
+            report.append(", ").append(found).append(" sets");
+            if (found == 0 && share > BURN_THRESHOLD)
+                report.append(" - burning cpu without progress");
+        }
+        return report.toString();
+    }
+
+    private TableMetrics tableMetrics(int table) {
+        if (metrics != null)
+            for (TableMetrics tableMetrics : metrics.tables())
+                if (tableMetrics.table == table)
+                    return tableMetrics;
+        return null;
+    }
+}
@@ -0,0 +1,449 @@
+package bguspl.set.net;
+
+import bguspl.set.Config;
+import bguspl.set.UserInterface;
+import bguspl.set.ex.Player;
+import bguspl.set.ex.Table;
+import bguspl.set.ex.TableSnapshot;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Logger;
+
+/**
+ * A game server for remote players (see Protocol), served by a single selector thread.
+ * <p>
+ * The server is a user interface of the table: the table changes are encoded once into a shared buffer, and the
+ * selector thread copies each batch into the connections' output buffers and writes as much as each socket takes.
+ * A client that falls behind by more than its output buffer is disconnected, so a slow client never holds the game
+ * (or the other clients) back. Key presses of joined clients are passed to their players on the selector thread.
+ */
+public class GameServer implements UserInterface {
+
+    private final Logger logger;
+    private final Config config;
+    private final Table table;
+    private final Player[] players;
+
+    /**
+     * The remote players' seats: the first remote player id and whether each seat is taken (selector thread only).
+     */
+    private final int firstSeat;
+    private final boolean[] seats;
+
+    private final Selector selector;
+    private final ServerSocketChannel serverChannel;
+    private final Thread thread;
+    private volatile boolean terminate;
+
+    /**
+     * The encoded table changes not yet passed to the connections (guarded by itself), a spare buffer to swap with,
+     * and whether the selector was already woken up for them.
+     */
+    private ByteBuffer pending = ByteBuffer.allocate(1 << 16);
+    private ByteBuffer spare = ByteBuffer.allocate(1 << 16);
+    private final AtomicBoolean wakeup = new AtomicBoolean();
+
+    private final ByteBuffer scratch = ByteBuffer.allocate(Protocol.MAX_FRAME);
+
+    /**
+     * The players' scores, as the user interface updates told them (guarded by this, like the updates).
+     */
+    private final int[] scores;
+
+    /**
+     * A client connection.
+     */
+    private final class Connection {
+        final SocketChannel channel;
+        final SelectionKey key;
+        final ByteBuffer in = ByteBuffer.allocate(Protocol.MAX_FRAME * 4);
+        final ByteBuffer out = ByteBuffer.allocate(config.serverClientBufferBytes);
+        int player = -1;
+
+        Connection(SocketChannel channel) throws IOException {
+            this.channel = channel;
+            key = channel.register(selector, SelectionKey.OP_READ, this);
+        }
+    }
+
+    /**
+     * Opens the server socket (the server starts serving on start).
+     *
+     * @param logger  - the game logger.
+     * @param config  - the game configuration (the port and the remote players' seats).
+     * @param table   - the table.
+     * @param players - the players (the remote players' seats are human players with no keyboard).
+     * @throws IOException - if the server socket cannot be opened.
+     */
+    public GameServer(Logger logger, Config config, Table table, Player[] players) throws IOException {
+        this.logger = logger;
+        this.config = config;
+        this.table = table;
+        this.players = players;
+        firstSeat = config.humanPlayers;
+        seats = new boolean[config.remotePlayers];
+        scores = new int[config.players];
+
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(config.serverPort), 1024);
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        thread = new Thread(this::serve, "game-server");
+        thread.setDaemon(true);
+    }
+
+    public void start() {
+        thread.start();
+        logger.severe("game server listening on port " + port());
+    }
+
+    /**
+     * @return - the port the server listens on.
+     */
+    public int port() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    private void serve() {
+        try {
+            while (!terminate) {
+                selector.select();
+                if (wakeup.getAndSet(false))
+                    broadcastPending();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid())
+                        continue;
+                    if (key.isAcceptable())
+                        accept();
+                    else {
+                        Connection connection = (Connection) key.attachment();
+                        try {
+                            if (key.isReadable())
+                                read(connection);
+                            if (key.isValid() && key.isWritable())
+                                write(connection);
+                        } catch (RuntimeException e) {
+                            // a bug or an unexpected message costs only this client its connection
+                            logger.severe("disconnecting a client after an error: " + e);
+                            close(connection);
+                        }
+                    }
+                }
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            if (!terminate)
+                logger.severe("game server failed: " + e);
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = serverChannel.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            Connection connection = new Connection(channel);
+            sendState(connection);
+            write(connection);
+        }
+    }
+
+    /**
+     * Sends the current table state to a new connection.
+     */
+    private void sendState(Connection connection) {
+        TableSnapshot snapshot = table.snapshot();
+        ByteBuffer out = connection.out;
+        for (int slot = 0; slot < snapshot.size(); ++slot) {
+            encodeCard(out, slot, snapshot.card(slot));
+            for (int player = 0; player < config.players; ++player)
+                if (snapshot.hasToken(player, slot))
+                    encodeToken(out, player, slot, true);
+        }
+        synchronized (this) {
+            for (int player = 0; player < scores.length; ++player)
+                encodeScore(out, player, scores[player]);
+        }
+    }
+
+    private void read(Connection connection) {
+        ByteBuffer in = connection.in;
+        try {
+            if (connection.channel.read(in) < 0) {
+                close(connection);
+                return;
+            }
+        } catch (IOException e) {
+            close(connection);
+            return;
+        }
+
+        in.flip();
+        int length;
+        while ((length = Protocol.frame(in)) != 0) {
+            if (length == Protocol.MALFORMED) {
+                logger.severe("disconnecting a client that sent a malformed frame");
+                close(connection);
+                return;
+            }
+            if (connection.out.remaining() < Protocol.MAX_FRAME) {
+                logger.severe("disconnecting a client that does not read its messages");
+                close(connection);
+                return;
+            }
+            int start = in.position();
+            byte type = in.get(start + 1);
+            switch (type) {
+                case Protocol.JOIN:
+                    join(connection);
+                    break;
+                case Protocol.PRESS:
+                    int slot = length > 2 ? in.get(start + 2) & 0xff : -1;
+                    if (connection.player >= 0 && slot >= 0 && slot < config.tableSize)
+                        players[connection.player].keyPressed(slot);
+                    break;
+                case Protocol.PING:
+                    if (length < 10)
+                        break;
+                    int frame = Protocol.begin(connection.out, Protocol.PONG);
+                    connection.out.putLong(in.getLong(start + 2));
+                    Protocol.end(connection.out, frame);
+                    break;
+                default:
+                    // unknown messages are skipped
+            }
+            in.position(start + length);
+        }
+        in.compact();
+        write(connection);
+    }
+
+    private void join(Connection connection) {
+        if (connection.player < 0)
+            for (int seat = 0; seat < seats.length; ++seat)
+                if (!seats[seat]) {
+                    seats[seat] = true;
+                    connection.player = firstSeat + seat;
+                    break;
+                }
+        ByteBuffer out = connection.out;
+        if (connection.player < 0) {
+            Protocol.end(out, Protocol.begin(out, Protocol.FULL));
+            return;
+        }
+        int frame = Protocol.begin(out, Protocol.WELCOME);
+        out.put((byte) connection.player).put((byte) config.rows).put((byte) config.columns)
+                .put((byte) config.players);
+        Protocol.end(out, frame);
+    }
+
+    private void write(Connection connection) {
+        ByteBuffer out = connection.out;
+        if (out.position() == 0) {
+            if ((connection.key.interestOps() & SelectionKey.OP_WRITE) != 0)
+                connection.key.interestOps(SelectionKey.OP_READ);
+            return;
+        }
+        out.flip();
+        try {
+            connection.channel.write(out);
+        } catch (IOException e) {
+            close(connection);
+            return;
+        } finally {
+            out.compact();
+        }
+        connection.key.interestOps(out.position() > 0 ? SelectionKey.OP_READ | SelectionKey.OP_WRITE
+                : SelectionKey.OP_READ);
+    }
+
+    private void close(Connection connection) {
+        if (connection.player >= 0)
+            seats[connection.player - firstSeat] = false;
+        connection.key.cancel();
+        try {
+            connection.channel.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    /**
+     * Copies the pending table changes to every connection and writes them.
+     */
+    private void broadcastPending() {
+        ByteBuffer batch;
+        synchronized (this) {
+            batch = pending;
+            pending = spare;
+            spare = batch;
+        }
+        batch.flip();
+        for (SelectionKey key : selector.keys()) {
+            if (!key.isValid() || !(key.attachment() instanceof Connection))
+                continue;
+            Connection connection = (Connection) key.attachment();
+            if (connection.out.remaining() < batch.remaining()) {
+                logger.severe("disconnecting a client that is too slow to keep up with the game");
+                close(connection);
+                continue;
+            }
+            connection.out.put(batch.duplicate());
+            write(connection);
+        }
+        batch.clear();
+    }
+
+    /**
+     * Encodes a table change for all the connections (called by the threads updating the user interface).
+     */
+    private synchronized void publish(ByteBuffer frame) {
+        frame.flip();
+        if (pending.remaining() < frame.remaining()) {
+            ByteBuffer larger = ByteBuffer.allocate(
+                    Math.max(pending.capacity() * 2, pending.position() + frame.remaining()));
+            pending.flip();
+            pending = larger.put(pending);
+        }
+        pending.put(frame);
+        if (!wakeup.getAndSet(true))
+            selector.wakeup();
+    }
+
+    private static void encodeCard(ByteBuffer out, int slot, int card) {
+        int frame = Protocol.begin(out, Protocol.CARD);
+        out.put((byte) slot).putInt(card);
+        Protocol.end(out, frame);
+    }
+
+    private static void encodeToken(ByteBuffer out, int player, int slot, boolean placed) {
+        int frame = Protocol.begin(out, Protocol.TOKEN);
+        out.put((byte) player).put((byte) slot).put((byte) (placed ? 1 : 0));
+        Protocol.end(out, frame);
+    }
+
+    private static void encodeScore(ByteBuffer out, int player, int score) {
+        int frame = Protocol.begin(out, Protocol.SCORE);
+        out.put((byte) player).putInt(score);
+        Protocol.end(out, frame);
+    }
+
+    @Override
+    public synchronized void placeCard(int card, int slot) {
+        scratch.clear();
+        encodeCard(scratch, slot, card);
+        publish(scratch);
+    }
+
+    @Override
+    public synchronized void removeCard(int slot) {
+        scratch.clear();
+        encodeCard(scratch, slot, -1);
+        publish(scratch);
+    }
+
+    @Override
+    public synchronized void placeToken(int player, int slot) {
+        scratch.clear();
+        encodeToken(scratch, player, slot, true);
+        publish(scratch);
+    }
+
+    @Override
+    public synchronized void removeTokens() {
+        removeTokens(Protocol.ALL_SLOTS);
+    }
+
+    @Override
+    public synchronized void removeTokens(int slot) {
+        scratch.clear();
+        int frame = Protocol.begin(scratch, Protocol.CLEAR_TOKENS);
+        scratch.put((byte) slot);
+        Protocol.end(scratch, frame);
+        publish(scratch);
+    }
+
+    @Override
+    public synchronized void removeToken(int player, int slot) {
+        scratch.clear();
+        encodeToken(scratch, player, slot, false);
+        publish(scratch);
+    }
+
+    @Override
+    public synchronized void setCountdown(long millies, boolean warn) {
+        scratch.clear();
+        int frame = Protocol.begin(scratch, Protocol.COUNTDOWN);
+        scratch.putLong(millies).put((byte) (warn ? 1 : 0));
+        Protocol.end(scratch, frame);
+        publish(scratch);
+    }
+
+    @Override
+    public synchronized void setElapsed(long millies) {
+        scratch.clear();
+        int frame = Protocol.begin(scratch, Protocol.ELAPSED);
+        scratch.putLong(millies);
+        Protocol.end(scratch, frame);
+        publish(scratch);
+    }
+
+    @Override
+    public synchronized void setFreeze(int player, long millies) {
+        scratch.clear();
+        int frame = Protocol.begin(scratch, Protocol.FREEZE);
+        scratch.put((byte) player).putLong(millies);
+        Protocol.end(scratch, frame);
+        publish(scratch);
+    }
+
+    @Override
+    public synchronized void setScore(int player, int score) {
+        if (player >= 0 && player < scores.length)
+            scores[player] = score;
+        scratch.clear();
+        encodeScore(scratch, player, score);
+        publish(scratch);
+    }
+
+    @Override
+    public synchronized void announceWinner(int[] players) {
+        scratch.clear();
+        int frame = Protocol.begin(scratch, Protocol.WINNERS);
+        for (int i = 0; i < Math.min(players.length, Protocol.MAX_FRAME - 2); ++i)
+            scratch.put((byte) players[i]);
+        Protocol.end(scratch, frame);
+        publish(scratch);
+    }
+
+    /**
+     * Stops serving and closes all the connections.
+     */
+    @Override
+    public void dispose() {
+        terminate = true;
+        selector.wakeup();
+        try {
+            thread.join(1000);
+        } catch (InterruptedException ignored) {
+        }
+        try {
+            for (SelectionKey key : selector.keys())
+                key.channel().close();
+            selector.close();
+        } catch (IOException ignored) {
+        }
+    }
+}
@@ -0,0 +1,320 @@
+package bguspl.set.net;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import bguspl.set.EventBus;
+import bguspl.set.Util;
+import bguspl.set.UtilImpl;
+import bguspl.set.ex.Dealer;
+import bguspl.set.ex.Player;
+import bguspl.set.ex.Table;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Properties;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A load generator for the game server: opens many client connections from a single selector thread, has some of
+ * them join as players and press random slots, pings the server from all of them, and reports the message throughput,
+ * the ping round-trip time and the press-to-token latency.
+ * <p>
+ * Usage: LoadGenerator [--host HOST] [--port PORT | --local [--config FILE]] [--clients N] [--players N]
+ * [--rate MESSAGES-PER-SECOND-PER-CLIENT] [--seconds S]
+ * <p>
+ * With --local, a game with the requested number of remote players is started in this process (without a user
+ * interface), and its server listens on a free loopback port.
+ */
+public class LoadGenerator {
+
+    /**
+     * A growing list of latencies (nanoseconds).
+     */
+    private static class Latencies {
+        long[] values = new long[1024];
+        int size;
+
+        void add(long value) {
+            if (size == values.length)
+                values = Arrays.copyOf(values, size * 2);
+            values[size++] = value;
+        }
+
+        String report() {
+            if (size == 0)
+                return "none";
+            long[] sorted = Arrays.copyOf(values, size);
+            Arrays.sort(sorted);
+            return String.format("p50 %.1f  p90 %.1f  p99 %.1f  max %.1f (us, %d samples)", percentile(sorted, 0.5),
+                    percentile(sorted, 0.9), percentile(sorted, 0.99), sorted[size - 1] / 1e3, size);
+        }
+
+        private static double percentile(long[] sorted, double p) {
+            return sorted[(int) Math.min(sorted.length - 1, Math.floor(p * sorted.length))] / 1e3;
+        }
+    }
+
+    private static class Client {
+        final SocketChannel channel;
+        final ByteBuffer in = ByteBuffer.allocate(1 << 16);
+        final ByteBuffer out = ByteBuffer.allocate(Protocol.MAX_FRAME * 16);
+        final boolean joins;
+        int player = -1;
+        long nextSend;
+        final long[] pressedAt;
+
+        Client(SocketChannel channel, boolean joins, int tableSize) {
+            this.channel = channel;
+            this.joins = joins;
+            this.pressedAt = new long[tableSize];
+        }
+    }
+
+    private final int tableSize;
+    private final Latencies pings = new Latencies();
+    private final Latencies presses = new Latencies();
+    private long messages;
+    private long bytes;
+    private long unsent; // messages dropped because the server did not read the earlier ones
+
+    private LoadGenerator(int tableSize) {
+        this.tableSize = tableSize;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String host = "localhost";
+        int port = 0;
+        boolean local = false;
+        String configFile = null;
+        int clients = 100;
+        int joining = 1;
+        double rate = 10;
+        double seconds = 10;
+        for (int i = 0; i < args.length; ++i) {
+            switch (args[i]) {
+                case "--host":
+                    host = args[++i];
+                    break;
+                case "--port":
+                    port = Integer.parseInt(args[++i]);
+                    break;
+                case "--local":
+                    local = true;
+                    break;
+                case "--config":
+                    configFile = args[++i];
+                    break;
+                case "--clients":
+                    clients = Integer.parseInt(args[++i]);
+                    break;
+                case "--players":
+                    joining = Integer.parseInt(args[++i]);
+                    break;
+                case "--rate":
+                    rate = Double.parseDouble(args[++i]);
+                    break;
+                case "--seconds":
+                    seconds = Double.parseDouble(args[++i]);
+                    break;
+                default:
+                    System.err.println("usage: LoadGenerator [--host HOST] [--port PORT | --local [--config FILE]]"
+                            + " [--clients N] [--players N] [--rate N] [--seconds S]");
+                    System.exit(1);
+            }
+        }
+
+        LocalGame game = null;
+        int tableSize = 12;
+        if (local) {
+            game = new LocalGame(configFile, joining);
+            host = "localhost";
+            port = game.server.port();
+            tableSize = game.config.tableSize;
+        } else if (port == 0) {
+            System.err.println("either --port or --local is required");
+            System.exit(1);
+        }
+
+        System.out.println("connecting " + clients + " clients (" + joining + " playing) to " + host + ":" + port
+                + ", " + rate + " messages per second each, for " + seconds + " seconds");
+        new LoadGenerator(tableSize).run(new InetSocketAddress(host, port), clients, joining, rate, seconds);
+        if (game != null)
+            game.stop();
+    }
+
+    private void run(InetSocketAddress address, int count, int joining, double rate, double seconds)
+            throws IOException {
+        Selector selector = Selector.open();
+        Client[] clients = new Client[count];
+        long intervalNanos = (long) (1e9 / rate);
+        long now = System.nanoTime();
+        for (int i = 0; i < count; ++i) {
+            SocketChannel channel = SocketChannel.open(address);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            channel.configureBlocking(false);
+            clients[i] = new Client(channel, i < joining, tableSize);
+            clients[i].nextSend = now + ThreadLocalRandom.current().nextLong(intervalNanos); // spread the sends
+            channel.register(selector, SelectionKey.OP_READ, clients[i]);
+            if (clients[i].joins)
+                send(clients[i], Protocol.JOIN, -1);
+        }
+
+        long start = System.nanoTime();
+        long end = start + (long) (seconds * 1e9);
+        while ((now = System.nanoTime()) < end) {
+            for (Client client : clients)
+                if (now >= client.nextSend) {
+                    client.nextSend += intervalNanos;
+                    send(client, Protocol.PING, now);
+                    if (client.player >= 0) {
+                        int slot = ThreadLocalRandom.current().nextInt(tableSize);
+                        long pressedAt = System.nanoTime();
+                        if (send(client, Protocol.PRESS, slot))
+                            client.pressedAt[slot] = pressedAt;
+                    }
+                }
+            selector.select(1);
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+                receive((Client) key.attachment());
+            }
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        for (Client client : clients)
+            client.channel.close();
+        selector.close();
+
+        System.out.printf("received %d messages (%.0f per second), %.1f MB (%.2f MB per second)%n", messages,
+                messages / elapsed, bytes / 1e6, bytes / 1e6 / elapsed);
+        if (unsent > 0)
+            System.out.println("dropped " + unsent + " messages the server did not read in time");
+        System.out.println("ping round trip: " + pings.report());
+        System.out.println("press to token: " + presses.report());
+    }
+
+    /**
+     * Sends a message, or drops it if the messages sent before it still fill the client's output buffer (the server
+     * is not reading them).
+     *
+     * @return - true iff the message was sent (or buffered).
+     */
+    private boolean send(Client client, byte type, long argument) throws IOException {
+        ByteBuffer out = client.out;
+        if (out.remaining() < Protocol.MAX_FRAME) {
+            out.flip();
+            client.channel.write(out);
+            out.compact();
+            if (out.remaining() < Protocol.MAX_FRAME) {
+                unsent++;
+                return false;
+            }
+        }
+        int frame = Protocol.begin(out, type);
+        if (type == Protocol.PING)
+            out.putLong(argument);
+        else if (type == Protocol.PRESS)
+            out.put((byte) argument);
+        Protocol.end(out, frame);
+        out.flip();
+        client.channel.write(out);
+        out.compact();
+        return true;
+    }
+
+    private void receive(Client client) throws IOException {
+        ByteBuffer in = client.in;
+        int read = client.channel.read(in);
+        if (read <= 0)
+            return;
+        bytes += read;
+        in.flip();
+        int length;
+        while ((length = Protocol.frame(in)) != 0) {
+            if (length == Protocol.MALFORMED)
+                throw new IOException("the server sent a malformed frame");
+            int start = in.position();
+            messages++;
+            switch (in.get(start + 1)) {
+                case Protocol.WELCOME:
+                    if (length > 2)
+                        client.player = in.get(start + 2);
+                    break;
+                case Protocol.PONG:
+                    if (length >= 10)
+                        pings.add(System.nanoTime() - in.getLong(start + 2));
+                    break;
+                case Protocol.TOKEN:
+                    if (length < 4)
+                        break;
+                    int slot = in.get(start + 3) & 0xff;
+                    if (in.get(start + 2) == client.player && slot < tableSize && client.pressedAt[slot] != 0) {
+                        presses.add(System.nanoTime() - client.pressedAt[slot]);
+                        client.pressedAt[slot] = 0;
+                    }
+                    break;
+                default:
+            }
+            in.position(start + length);
+        }
+        in.compact();
+    }
+
+    /**
+     * A game run in this process, without a user interface, for local load tests.
+     */
+    private static class LocalGame {
+        final Config config;
+        final GameServer server;
+        final EventBus eventBus;
+        final Dealer dealer;
+        final Thread dealerThread;
+
+        LocalGame(String configFile, int remotePlayers) throws IOException {
+            Logger logger = Logger.getLogger("LoadGenerator");
+            logger.setUseParentHandlers(false);
+            logger.setLevel(Level.OFF);
+            Properties properties = new Properties();
+            if (configFile != null)
+                try (InputStream is = new FileInputStream(configFile)) {
+                    properties.load(is);
+                }
+            properties.setProperty("RemotePlayers", Integer.toString(remotePlayers));
+            properties.setProperty("ServerPort", "0");
+            config = new Config(logger, properties);
+            Util util = new UtilImpl(config);
+            eventBus = new EventBus(logger, config);
+            Env env = new Env(logger, config, eventBus, util);
+
+            Table table = new Table(env);
+            Player[] players = new Player[config.players];
+            dealer = new Dealer(env, table, players);
+            for (int i = 0; i < players.length; i++)
+                players[i] = new Player(env, dealer, table, i, i < config.humanPlayers + config.remotePlayers);
+
+            server = new GameServer(logger, config, table, players);
+            eventBus.subscribe("server", server);
+            server.start();
+            dealerThread = new Thread(dealer, "dealer");
+            dealerThread.start();
+        }
+
+        void stop() throws InterruptedException {
+            dealer.terminate();
+            dealerThread.join(10000);
+            eventBus.dispose();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package bguspl.set.net;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The binary protocol between the game server and its clients.
+ * <p>
+ * Every message is a frame of: length (1 byte, the number of bytes that follow), type (1 byte) and the type's payload.
+ * Numbers are big endian. A client receives the table state when it connects and the table changes from then on; it
+ * plays only after it joins (and gets one of the remote players' seats).
+ * <ul>
+ * <li>Client to server: JOIN, PRESS (slot), PING (any 8 bytes, echoed by PONG).</li>
+ * <li>Server to client: WELCOME (player, rows, columns, players), FULL, CARD (slot, card or -1 for an empty slot),
+ * TOKEN (player, slot, 1 placed or 0 removed), CLEAR_TOKENS (slot, or 255 for all slots), FREEZE (player, millis),
+ * SCORE (player, score), COUNTDOWN (millis, 1 if warning), ELAPSED (millis), WINNERS (player ids), PONG.</li>
+ * </ul>
+ */
+public final class Protocol {
+
+    private Protocol() {
+    }
+
+    public static final byte JOIN = 1;
+    public static final byte PRESS = 2;
+    public static final byte PING = 3;
+
+    public static final byte WELCOME = 16;
+    public static final byte FULL = 17;
+    public static final byte CARD = 18;
+    public static final byte TOKEN = 19;
+    public static final byte CLEAR_TOKENS = 20;
+    public static final byte FREEZE = 21;
+    public static final byte SCORE = 22;
+    public static final byte COUNTDOWN = 23;
+    public static final byte ELAPSED = 24;
+    public static final byte WINNERS = 25;
+    public static final byte PONG = 26;
+
+    /**
+     * The slot value of CLEAR_TOKENS that clears all the slots.
+     */
+    public static final int ALL_SLOTS = 255;
+
+    /**
+     * The largest frame (length byte included).
+     */
+    public static final int MAX_FRAME = 256;
+
+    /**
+     * Starts a frame in a buffer (the length is filled in by end).
+     *
+     * @param buffer - the buffer to write to.
+     * @param type   - the message type.
+     * @return - the position of the frame (to pass to end).
+     */
+    static int begin(ByteBuffer buffer, byte type) {
+        int start = buffer.position();
+        buffer.put((byte) 0).put(type);
+        return start;
+    }
+
+    /**
+     * Ends a frame started by begin.
+     *
+     * @param buffer - the buffer the frame is written to.
+     * @param start  - the position returned by begin.
+     */
+    static void end(ByteBuffer buffer, int start) {
+        buffer.put(start, (byte) (buffer.position() - start - 1));
+    }
+
+    /**
+     * The frame length returned by frame for a frame too short to hold a type.
+     */
+    static final int MALFORMED = -1;
+
+    /**
+     * @param buffer - a buffer in read mode.
+     * @return - the length of the next complete frame in the buffer (length byte included), 0 if it is incomplete, or
+     *         MALFORMED if its length byte is 0.
+     */
+    static int frame(ByteBuffer buffer) {
+        if (buffer.remaining() < 1)
+            return 0;
+        int length = (buffer.get(buffer.position()) & 0xff) + 1;
+        if (length < 2)
+            return MALFORMED;
+        return buffer.remaining() >= length ? length : 0;
+    }
+}
@@ -0,0 +1,395 @@
+package bguspl.set.net;
+
+import bguspl.set.Config;
+import bguspl.set.UserInterface;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Logger;
+
+/**
+ * Broadcasts a table to spectators: a keyframe with the whole table state, followed by small deltas against it.
+ * <p>
+ * The broadcaster is a user interface of the table (subscribe it to the event bus, so the game threads only publish
+ * events). It keeps the table state and appends every change as a delta frame to a ring of recent frames, with a new
+ * keyframe every keyframeMillis (or once maxLag deltas follow the last one). A single pump thread feeds
+ * the frames to all the subscribers without blocking on any of them. A subscriber that lags more than maxLag frames
+ * behind (or refuses frames for that long) skips the frames in between and continues from the latest keyframe.
+ * <p>
+ * Frames (big endian): length (2 bytes, the number of bytes that follow), type (1 byte) and the payload:
+ * <ul>
+ * <li>KEYFRAME: keyframe id (4), slots (2), players (2), the card of each slot (4 each, -1 for none), the token mask of
+ * each slot (8 each, bit p for player p) and the score of each player (4 each).</li>
+ * <li>CARD: keyframe id (4), slot (2), card (4).</li>
+ * <li>TOKENS: keyframe id (4), slot (2), token mask (8).</li>
+ * <li>SCORE: keyframe id (4), player (2), score (4).</li>
+ * </ul>
+ * A delta applies only to the state of the keyframe it names (see SpectatorView).
+ */
+public class SpectatorBroadcaster implements UserInterface {
+
+    public static final byte KEYFRAME = 1;
+    public static final byte CARD = 2;
+    public static final byte TOKENS = 3;
+    public static final byte SCORE = 4;
+
+    /**
+     * The number of nanoseconds the pump parks between rounds when some subscriber refused frames.
+     */
+    private static final long RETRY_PARK_NANOS = 1000000;
+
+    /**
+     * Receives the frames of a broadcast. Called by the pump thread only.
+     */
+    public abstract static class Subscriber {
+        long cursor = -1;
+        long skipped;
+
+        /**
+         * Offers a frame to the subscriber, without blocking.
+         *
+         * @param frame - the frame (the subscriber may keep it, frames are never modified).
+         * @return - true iff the subscriber took the frame (false to have it offered again later).
+         * @throws IOException - if the subscriber failed (it is removed).
+         */
+        protected abstract boolean offer(byte[] frame) throws IOException;
+
+        /**
+         * Called when the subscriber is removed.
+         */
+        protected void close() {
+        }
+
+        /**
+         * @return - the number of frames the subscriber skipped because it lagged behind.
+         */
+        public long skipped() {
+            return skipped;
+        }
+    }
+
+    /**
+     * A subscriber that keeps the frames in a bounded queue, for in-process spectators and tests.
+     */
+    public static class QueueSubscriber extends Subscriber {
+        public final BlockingQueue<byte[]> frames;
+
+        public QueueSubscriber(int capacity) {
+            frames = new ArrayBlockingQueue<>(capacity);
+        }
+
+        @Override
+        protected boolean offer(byte[] frame) {
+            return frames.offer(frame);
+        }
+    }
+
+    /**
+     * A subscriber that writes the frames to a non-blocking socket, through a bounded output buffer.
+     */
+    public static class SocketSubscriber extends Subscriber {
+        private final SocketChannel channel;
+        private final ByteBuffer out;
+
+        public SocketSubscriber(SocketChannel channel, int bufferBytes) throws IOException {
+            this.channel = channel;
+            channel.configureBlocking(false);
+            out = ByteBuffer.allocate(bufferBytes);
+        }
+
+        @Override
+        protected boolean offer(byte[] frame) throws IOException {
+            if (out.remaining() < frame.length)
+                flush();
+            if (out.remaining() < frame.length)
+                return false;
+            out.put(frame);
+            flush();
+            return true;
+        }
+
+        private void flush() throws IOException {
+            out.flip();
+            try {
+                channel.write(out);
+            } finally {
+                out.compact();
+            }
+        }
+
+        @Override
+        protected void close() {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private final Logger logger;
+    private final Config config;
+    private final int maxLag;
+    private final long keyframeNanos;
+
+    /**
+     * The table state (guarded by this).
+     */
+    private final int[] cards;
+    private final long[] tokens;
+    private final int[] scores;
+
+    /**
+     * The recent frames: frame i is at index i & mask (guarded by this). The next frame's sequence number and the
+     * latest keyframe's are volatile, for the pump.
+     */
+    private final byte[][] ring;
+    private final int mask;
+    private volatile long next;
+    private volatile long keyframe = -1;
+    private int keyframeId;
+    private long keyframeTime;
+
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final Thread pump;
+    private volatile boolean terminate;
+    private ServerSocketChannel serverChannel;
+
+    /**
+     * @param logger - the game logger.
+     * @param config - the game configuration (table size, players and the broadcast settings).
+     */
+    public SpectatorBroadcaster(Logger logger, Config config) {
+        if (config.players > Long.SIZE)
+            throw new IllegalArgumentException("spectator broadcasts support up to " + Long.SIZE + " players");
+        this.logger = logger;
+        this.config = config;
+        int capacity = Integer.highestOneBit(Math.max(4, config.spectatorRingSize - 1)) << 1;
+        ring = new byte[capacity][];
+        mask = capacity - 1;
+        maxLag = Math.min(Math.max(1, config.spectatorMaxLag), capacity / 2);
+        keyframeNanos = Math.max(1, config.spectatorKeyframeMillis) * 1000000L;
+        cards = new int[config.tableSize];
+        Arrays.fill(cards, -1);
+        tokens = new long[config.tableSize];
+        scores = new int[config.players];
+
+        synchronized (this) {
+            appendKeyframe();
+        }
+        pump = new Thread(this::pumpLoop, "spectators");
+        pump.setDaemon(true);
+        pump.start();
+    }
+
+    /**
+     * Adds a subscriber; it starts from the latest keyframe.
+     *
+     * @param subscriber - the subscriber.
+     */
+    public void subscribe(Subscriber subscriber) {
+        subscribers.add(subscriber);
+        LockSupport.unpark(pump);
+    }
+
+    /**
+     * Accepts spectators on a port (each connection gets a SocketSubscriber).
+     *
+     * @param port - the port (0 for any free port).
+     * @return - the port spectators can connect to.
+     * @throws IOException - if the port cannot be opened.
+     */
+    public int listen(int port) throws IOException {
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port), 1024);
+        Thread acceptor = new Thread(() -> {
+            try {
+                while (!terminate)
+                    subscribe(new SocketSubscriber(serverChannel.accept(), config.serverClientBufferBytes));
+            } catch (IOException e) {
+                if (!terminate)
+                    logger.severe("spectator port failed: " + e);
+            }
+        }, "spectator-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        return serverChannel.socket().getLocalPort();
+    }
+
+    /**
+     * @return - the number of frames the subscribers skipped because they lagged behind.
+     */
+    public long skipped() {
+        long skipped = 0;
+        for (Subscriber subscriber : subscribers)
+            skipped += subscriber.skipped;
+        return skipped;
+    }
+
+    private void pumpLoop() {
+        while (!terminate) {
+            boolean refused = false;
+            for (Subscriber subscriber : subscribers)
+                refused |= !feed(subscriber);
+            synchronized (this) {
+                if (next - keyframe > 1 && System.nanoTime() - keyframeTime >= keyframeNanos)
+                    appendKeyframe();
+            }
+            LockSupport.parkNanos(refused ? RETRY_PARK_NANOS : keyframeNanos);
+        }
+        for (Subscriber subscriber : subscribers)
+            subscriber.close();
+    }
+
+    /**
+     * Offers a subscriber the frames it has not taken yet.
+     *
+     * @return - true iff the subscriber took all of them.
+     */
+    private boolean feed(Subscriber subscriber) {
+        long head = next;
+        long latest = keyframe;
+        if (subscriber.cursor < 0 || head - subscriber.cursor > maxLag && latest > subscriber.cursor) {
+            if (subscriber.cursor >= 0)
+                subscriber.skipped += latest - subscriber.cursor;
+            subscriber.cursor = latest;
+        }
+        try {
+            while (subscriber.cursor < head) {
+                byte[] frame;
+                synchronized (this) {
+                    if (subscriber.cursor < next - ring.length) // overwritten meanwhile
+                        return true;
+                    frame = ring[(int) subscriber.cursor & mask];
+                }
+                if (!subscriber.offer(frame))
+                    return false;
+                subscriber.cursor++;
+            }
+        } catch (IOException e) {
+            subscribers.remove(subscriber);
+            subscriber.close();
+        }
+        return true;
+    }
+
+    private void append(byte[] frame) {
+        ring[(int) next & mask] = frame;
+        next = next + 1;
+        if (next - keyframe > maxLag)
+            appendKeyframe();
+        LockSupport.unpark(pump);
+    }
+
+    private void appendKeyframe() {
+        ByteBuffer frame = ByteBuffer.allocate(3 + 8 + cards.length * 12 + scores.length * 4);
+        frame.putShort((short) (frame.capacity() - 2)).put(KEYFRAME).putInt(++keyframeId)
+                .putShort((short) cards.length).putShort((short) scores.length);
+        for (int card : cards)
+            frame.putInt(card);
+        for (long mask : tokens)
+            frame.putLong(mask);
+        for (int score : scores)
+            frame.putInt(score);
+        keyframeTime = System.nanoTime();
+        long sequence = next;
+        ring[(int) sequence & mask] = frame.array();
+        next = sequence + 1;
+        keyframe = sequence;
+        LockSupport.unpark(pump);
+    }
+
+    private void appendDelta(byte type, int index, int bytes, long value) {
+        ByteBuffer frame = ByteBuffer.allocate(3 + 6 + bytes);
+        frame.putShort((short) (frame.capacity() - 2)).put(type).putInt(keyframeId).putShort((short) index);
+        if (bytes == 8)
+            frame.putLong(value);
+        else
+            frame.putInt((int) value);
+        append(frame.array());
+    }
+
+    @Override
+    public synchronized void placeCard(int card, int slot) {
+        cards[slot] = card;
+        appendDelta(CARD, slot, 4, card);
+    }
+
+    @Override
+    public synchronized void removeCard(int slot) {
+        cards[slot] = -1;
+        appendDelta(CARD, slot, 4, -1);
+    }
+
+    @Override
+    public synchronized void placeToken(int player, int slot) {
+        tokens[slot] |= 1L << player;
+        appendDelta(TOKENS, slot, 8, tokens[slot]);
+    }
+
+    @Override
+    public synchronized void removeTokens() {
+        Arrays.fill(tokens, 0);
+        appendKeyframe();
+    }
+
+    @Override
+    public synchronized void removeTokens(int slot) {
+        tokens[slot] = 0;
+        appendDelta(TOKENS, slot, 8, 0);
+    }
+
+    @Override
+    public synchronized void removeToken(int player, int slot) {
+        tokens[slot] &= ~(1L << player);
+        appendDelta(TOKENS, slot, 8, tokens[slot]);
+    }
+
+    @Override
+    public synchronized void setScore(int player, int score) {
+        scores[player] = score;
+        appendDelta(SCORE, player, 4, score);
+    }
+
+    @Override
+    public void setCountdown(long millies, boolean warn) {
+    }
+
+    @Override
+    public void setElapsed(long millies) {
+    }
+
+    @Override
+    public void setFreeze(int player, long millies) {
+    }
+
+    @Override
+    public void announceWinner(int[] players) {
+    }
+
+    /**
+     * Stops the broadcast and closes the subscribers.
+     */
+    @Override
+    public void dispose() {
+        terminate = true;
+        LockSupport.unpark(pump);
+        try {
+            pump.join(1000);
+        } catch (InterruptedException ignored) {
+        }
+        if (serverChannel != null)
+            try {
+                serverChannel.close();
+            } catch (IOException ignored) {
+            }
+    }
+}
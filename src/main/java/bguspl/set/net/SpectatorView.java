@@ -0,0 +1,80 @@
+package bguspl.set.net;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A spectator's copy of a broadcast table, rebuilt from the frames of a SpectatorBroadcaster.
+ * Deltas of a keyframe other than the last one received are ignored (they were sent before the spectator skipped).
+ */
+public class SpectatorView {
+
+    private int keyframeId = -1;
+    private int[] cards = new int[0];
+    private long[] tokens = new long[0];
+    private int[] scores = new int[0];
+
+    /**
+     * Applies a frame.
+     *
+     * @param frame - a complete frame (length included).
+     * @return - true iff the frame was applied.
+     */
+    public boolean apply(byte[] frame) {
+        ByteBuffer buffer = ByteBuffer.wrap(frame);
+        buffer.getShort();
+        byte type = buffer.get();
+        int id = buffer.getInt();
+        if (type == SpectatorBroadcaster.KEYFRAME) {
+            keyframeId = id;
+            cards = new int[buffer.getShort()];
+            tokens = new long[cards.length];
+            scores = new int[buffer.getShort()];
+            for (int slot = 0; slot < cards.length; ++slot)
+                cards[slot] = buffer.getInt();
+            for (int slot = 0; slot < tokens.length; ++slot)
+                tokens[slot] = buffer.getLong();
+            for (int player = 0; player < scores.length; ++player)
+                scores[player] = buffer.getInt();
+            return true;
+        }
+        if (id != keyframeId)
+            return false;
+        int index = buffer.getShort();
+        switch (type) {
+            case SpectatorBroadcaster.CARD:
+                cards[index] = buffer.getInt();
+                return true;
+            case SpectatorBroadcaster.TOKENS:
+                tokens[index] = buffer.getLong();
+                return true;
+            case SpectatorBroadcaster.SCORE:
+                scores[index] = buffer.getInt();
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * @return - the card in each slot (-1 for an empty slot).
+     */
+    public int[] cards() {
+        return Arrays.copyOf(cards, cards.length);
+    }
+
+    /**
+     * @param slot - the slot.
+     * @return - the players with tokens on the slot (bit p for player p).
+     */
+    public long tokens(int slot) {
+        return tokens[slot];
+    }
+
+    /**
+     * @return - the players' scores.
+     */
+    public int[] scores() {
+        return Arrays.copyOf(scores, scores.length);
+    }
+}
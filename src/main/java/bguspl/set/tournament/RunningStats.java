@@ -0,0 +1,77 @@
+package bguspl.set.tournament;
+
+/**
+ * The count, mean, variance and range of a stream of values, updated one value at a time (Welford's method), so the
+ * values themselves are never kept. Partial statistics of separate streams can be merged (see add(RunningStats)).
+ */
+public class RunningStats {
+
+    private long count;
+    private double mean;
+    private double m2; // the sum of the squared differences from the mean
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    /**
+     * @param value - the next value.
+     */
+    public void add(double value) {
+        count++;
+        double delta = value - mean;
+        mean += delta / count;
+        m2 += delta * (value - mean);
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    /**
+     * Merges the statistics of another stream into these (Chan et al.'s parallel update).
+     *
+     * @param other - the statistics of the other stream.
+     */
+    public void add(RunningStats other) {
+        if (other.count == 0)
+            return;
+        long total = count + other.count;
+        double delta = other.mean - mean;
+        mean += delta * other.count / total;
+        m2 += other.m2 + delta * delta * count * other.count / total;
+        count = total;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    public long count() {
+        return count;
+    }
+
+    public double mean() {
+        return mean;
+    }
+
+    /**
+     * @return - the sample variance (0 for fewer than two values).
+     */
+    public double variance() {
+        return count > 1 ? m2 / (count - 1) : 0;
+    }
+
+    public double stddev() {
+        return Math.sqrt(variance());
+    }
+
+    /**
+     * @return - the half width of the 95% confidence interval of the mean (normal approximation).
+     */
+    public double confidence95() {
+        return count > 1 ? 1.96 * stddev() / Math.sqrt(count) : 0;
+    }
+
+    public double min() {
+        return count > 0 ? min : 0;
+    }
+
+    public double max() {
+        return count > 0 ? max : 0;
+    }
+}
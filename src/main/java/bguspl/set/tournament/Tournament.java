@@ -0,0 +1,273 @@
+package bguspl.set.tournament;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import bguspl.set.UserInterface;
+import bguspl.set.UtilImpl;
+import bguspl.set.ex.Dealer;
+import bguspl.set.ex.Player;
+import bguspl.set.ex.Table;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs a tournament of computer players with different strategies (see bguspl.set.ex.AiStrategy): many games, each
+ * with its own configuration, table, dealer and players and no user interface, on parallel worker threads, and
+ * reports the win rate, score and sets per minute of every strategy with their confidence intervals.
+ * <p>
+ * Game g uses configuration file g % C (of the C given), and seats the entrants in rotation: the player in seat s
+ * follows strategy (g / C + s) % E (of the E given), so every strategy plays from every seat. The workers take the
+ * next game as they finish one, and aggregate their results as they go (see TournamentStats).
+ * <p>
+ * Usage: Tournament --strategy SPEC [--strategy SPEC]... [--config FILE]... [--games N] [--parallel N]
+ * [--seed S (game g uses dealer and computer seed S + g, 0 for random)] [--max-seconds S (per game)]
+ * [--scheduler-threads N (the computer players' shared scheduler threads, default max(cores, parallel))]
+ * <p>
+ * A seed makes the deals and the players' choices repeat, not the games: the timing of the key presses still depends
+ * on the thread scheduling.
+ */
+public class Tournament {
+
+    /**
+     * A user interface that shows nothing.
+     */
+    private static class NoUserInterface implements UserInterface {
+        @Override
+        public void placeCard(int card, int slot) {
+        }
+
+        @Override
+        public void removeCard(int slot) {
+        }
+
+        @Override
+        public void placeToken(int player, int slot) {
+        }
+
+        @Override
+        public void removeTokens() {
+        }
+
+        @Override
+        public void removeTokens(int slot) {
+        }
+
+        @Override
+        public void removeToken(int player, int slot) {
+        }
+
+        @Override
+        public void setCountdown(long millies, boolean warn) {
+        }
+
+        @Override
+        public void setElapsed(long millies) {
+        }
+
+        @Override
+        public void setFreeze(int player, long millies) {
+        }
+
+        @Override
+        public void setScore(int player, int score) {
+        }
+
+        @Override
+        public void announceWinner(int[] players) {
+        }
+
+        @Override
+        public void dispose() {
+        }
+    }
+
+    private final Logger logger;
+    private final String[] strategies;
+    private final List<Properties> configs;
+    private final int[] seats; // the number of players of each configuration
+    private final long seed;
+    private final long maxMillis;
+    private final int schedulerThreads;
+    private final UserInterface ui = new NoUserInterface();
+
+    private Tournament(String[] strategies, List<Properties> configs, long seed, long maxMillis,
+                       int schedulerThreads) {
+        logger = Logger.getLogger("Tournament");
+        logger.setUseParentHandlers(false);
+        this.strategies = strategies;
+        this.configs = configs;
+        this.seed = seed;
+        this.maxMillis = maxMillis;
+        this.schedulerThreads = schedulerThreads;
+        seats = new int[configs.size()];
+        for (int c = 0; c < seats.length; ++c)
+            seats[c] = new Config(logger, configs.get(c)).players;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        List<String> strategies = new ArrayList<>();
+        List<Properties> configs = new ArrayList<>();
+        int games = 100;
+        int parallel = Runtime.getRuntime().availableProcessors();
+        long seed = 0;
+        double maxSeconds = 600;
+        int schedulerThreads = 0;
+        for (int i = 0; i < args.length; ++i) {
+            switch (args[i]) {
+                case "--strategy":
+                    strategies.add(args[++i]);
+                    break;
+                case "--config":
+                    Properties properties = new Properties();
+                    try (InputStream is = new FileInputStream(args[++i])) {
+                        properties.load(is);
+                    }
+                    configs.add(properties);
+                    break;
+                case "--games":
+                    games = Integer.parseInt(args[++i]);
+                    break;
+                case "--parallel":
+                    parallel = Integer.parseInt(args[++i]);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(args[++i]);
+                    break;
+                case "--max-seconds":
+                    maxSeconds = Double.parseDouble(args[++i]);
+                    break;
+                case "--scheduler-threads":
+                    schedulerThreads = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    usage();
+            }
+        }
+        if (strategies.isEmpty())
+            usage();
+        if (configs.isEmpty()) {
+            Properties properties = new Properties();
+            try (InputStream is = Tournament.class.getClassLoader().getResourceAsStream("config.properties")) {
+                if (is != null)
+                    properties.load(is);
+            }
+            configs.add(properties);
+        }
+
+        // the computer players of all the games share one scheduler (see Config.computerSchedulerThreads), so it
+        // needs a thread per game at least, whatever the configuration files say
+        if (schedulerThreads <= 0)
+            schedulerThreads = Math.max(Runtime.getRuntime().availableProcessors(), parallel);
+        Tournament tournament = new Tournament(strategies.toArray(new String[0]), configs, seed,
+                (long) (maxSeconds * 1000), schedulerThreads);
+        System.out.println("playing " + games + " games of " + strategies.size() + " strategies on " + parallel
+                + " threads, with " + schedulerThreads + " computer player scheduler threads");
+        long start = System.nanoTime();
+        TournamentStats stats = tournament.run(games, parallel);
+        System.out.printf("played in %.1f seconds%n%n", (System.nanoTime() - start) / 1e9);
+        System.out.print(stats.report());
+        System.exit(0);
+    }
+
+    private static void usage() {
+        System.err.println("usage: Tournament --strategy SPEC [--strategy SPEC]... [--config FILE]... [--games N]"
+                + " [--parallel N] [--seed S] [--max-seconds S] [--scheduler-threads N]");
+        System.exit(1);
+    }
+
+    /**
+     * Plays the games on parallel workers.
+     *
+     * @param games    - the number of games.
+     * @param parallel - the number of workers (games played at once).
+     * @return - the aggregated results.
+     */
+    private TournamentStats run(int games, int parallel) throws InterruptedException {
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger finished = new AtomicInteger();
+        int progressEvery = Math.max(1, games / 10);
+        TournamentStats[] partial = new TournamentStats[parallel];
+        Thread[] workers = new Thread[parallel];
+        for (int w = 0; w < parallel; ++w) {
+            TournamentStats stats = partial[w] = new TournamentStats(strategies);
+            workers[w] = new Thread(() -> {
+                int game;
+                while ((game = next.getAndIncrement()) < games) {
+                    try {
+                        play(game, stats);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    int done = finished.incrementAndGet();
+                    if (done % progressEvery == 0)
+                        System.out.println("finished " + done + " of " + games + " games");
+                }
+            }, "tournament-" + w);
+            workers[w].start();
+        }
+
+        TournamentStats total = new TournamentStats(strategies);
+        for (int w = 0; w < parallel; ++w) {
+            workers[w].join();
+            total.add(partial[w]);
+        }
+        return total;
+    }
+
+    /**
+     * Plays a game in this thread, with its own configuration, table, dealer and players.
+     *
+     * @param game  - the game number.
+     * @param stats - the statistics to add the result to.
+     */
+    private void play(int game, TournamentStats stats) throws InterruptedException {
+        int c = game % configs.size();
+        Properties properties = new Properties();
+        properties.putAll(configs.get(c));
+        properties.setProperty("LogLevel", "OFF");
+        properties.setProperty("RemotePlayers", "0");
+        if (seed != 0) {
+            properties.setProperty("DealerSeed", Long.toString(seed + game));
+            properties.setProperty("ComputerSeed", Long.toString(seed + game));
+        }
+        properties.setProperty("ComputerSchedulerThreads", Integer.toString(schedulerThreads));
+        int[] entrants = new int[seats[c]];
+        for (int seat = 0; seat < entrants.length; ++seat) {
+            entrants[seat] = (game / configs.size() + seat) % strategies.length;
+            properties.setProperty("ComputerStrategy" + (seat + 1), strategies[entrants[seat]]);
+        }
+
+        Config config = new Config(logger, properties);
+        logger.setLevel(Level.OFF);
+        Env env = new Env(logger, config, ui, new UtilImpl(config));
+        Table table = new Table(env);
+        Player[] players = new Player[config.players];
+        Dealer dealer = new Dealer(env, table, players);
+        for (int i = 0; i < players.length; i++)
+            players[i] = new Player(env, dealer, table, i, false);
+
+        Thread dealerThread = new Thread(dealer, "game-" + game + "-dealer");
+        long start = System.nanoTime();
+        dealerThread.start();
+        dealerThread.join(maxMillis);
+        boolean timedOut = dealerThread.isAlive();
+        if (timedOut) {
+            dealer.terminate();
+            dealerThread.join();
+        }
+        long nanos = System.nanoTime() - start;
+
+        int[] scores = new int[players.length];
+        for (int i = 0; i < players.length; i++)
+            scores[i] = players[i].score();
+        stats.add(entrants, scores, nanos, timedOut);
+    }
+}
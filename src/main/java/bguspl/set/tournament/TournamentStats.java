@@ -0,0 +1,136 @@
+package bguspl.set.tournament;
+
+import java.util.Arrays;
+
+/**
+ * Aggregates the results of tournament games as they finish: per entrant, the win rate, the score and its
+ * distribution and the sets per minute, and for all the games, their length and the sets per minute. Only running
+ * statistics are kept (see RunningStats), so the memory does not grow with the number of games, and every worker
+ * aggregates its own games, to be merged at the end (see add(TournamentStats)).
+ */
+public class TournamentStats {
+
+    /**
+     * The statistics of one entrant, over all the seats it took.
+     */
+    static final class Entrant {
+        final RunningStats wins = new RunningStats(); // 1 for a win, 1/N for a tie of N winners, 0 for a loss
+        final RunningStats scores = new RunningStats();
+        final RunningStats setsPerMinute = new RunningStats();
+        long[] scoreCounts = new long[16]; // the number of seats per score
+
+        void add(Entrant other) {
+            wins.add(other.wins);
+            scores.add(other.scores);
+            setsPerMinute.add(other.setsPerMinute);
+            countScores(other.scoreCounts.length - 1);
+            for (int score = 0; score < other.scoreCounts.length; ++score)
+                scoreCounts[score] += other.scoreCounts[score];
+        }
+
+        void countScores(int score) {
+            if (score >= scoreCounts.length)
+                scoreCounts = Arrays.copyOf(scoreCounts, Math.max(score + 1, scoreCounts.length * 2));
+        }
+    }
+
+    private final String[] names;
+    final Entrant[] entrants;
+    private long games;
+    private long timedOut;
+    private final RunningStats minutes = new RunningStats();
+    private final RunningStats setsPerMinute = new RunningStats();
+
+    /**
+     * @param names - the names of the entrants (their strategies).
+     */
+    public TournamentStats(String[] names) {
+        this.names = names;
+        entrants = new Entrant[names.length];
+        for (int i = 0; i < entrants.length; ++i)
+            entrants[i] = new Entrant();
+    }
+
+    /**
+     * Adds the result of a game.
+     *
+     * @param seats    - the entrant in each seat (player id).
+     * @param scores   - the score of each seat.
+     * @param nanos    - the length of the game.
+     * @param timedOut - true iff the game was stopped at the time limit.
+     */
+    public void add(int[] seats, int[] scores, long nanos, boolean timedOut) {
+        double gameMinutes = nanos / 60e9;
+        int best = Integer.MIN_VALUE;
+        int winners = 0;
+        int sets = 0;
+        for (int score : scores) {
+            sets += score;
+            if (score > best) {
+                best = score;
+                winners = 1;
+            } else if (score == best)
+                winners++;
+        }
+
+        for (int seat = 0; seat < seats.length; ++seat) {
+            Entrant entrant = entrants[seats[seat]];
+            entrant.wins.add(scores[seat] == best ? 1.0 / winners : 0);
+            entrant.scores.add(scores[seat]);
+            entrant.setsPerMinute.add(scores[seat] / gameMinutes);
+            entrant.countScores(scores[seat]);
+            entrant.scoreCounts[scores[seat]]++;
+        }
+        games++;
+        if (timedOut)
+            this.timedOut++;
+        minutes.add(gameMinutes);
+        setsPerMinute.add(sets / gameMinutes);
+    }
+
+    /**
+     * Merges the games aggregated by another worker into these.
+     *
+     * @param other - the other worker's statistics (of the same entrants).
+     */
+    public void add(TournamentStats other) {
+        for (int i = 0; i < entrants.length; ++i)
+            entrants[i].add(other.entrants[i]);
+        games += other.games;
+        timedOut += other.timedOut;
+        minutes.add(other.minutes);
+        setsPerMinute.add(other.setsPerMinute);
+    }
+
+    public long games() {
+        return games;
+    }
+
+    /**
+     * @return - a table of the statistics, with 95% confidence intervals.
+     */
+    public String report() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("%d games (%d stopped at the time limit), %.2f +- %.2f minutes each, "
+                        + "%.2f +- %.2f sets per minute%n%n", games, timedOut, minutes.mean(), minutes.confidence95(),
+                setsPerMinute.mean(), setsPerMinute.confidence95()));
+        report.append(String.format("%-24s %7s %16s %16s %16s%n", "entrant", "seats", "win rate", "score",
+                "sets/minute"));
+        for (int i = 0; i < entrants.length; ++i) {
+            Entrant e = entrants[i];
+            report.append(String.format("%-24s %7d %7.3f +- %6.3f %7.2f +- %6.2f %7.2f +- %6.2f%n", names[i],
+                    e.scores.count(), e.wins.mean(), e.wins.confidence95(), e.scores.mean(),
+                    e.scores.confidence95(), e.setsPerMinute.mean(), e.setsPerMinute.confidence95()));
+        }
+        report.append(String.format("%nscore distribution (score:seats)%n"));
+        for (int i = 0; i < entrants.length; ++i) {
+            report.append(String.format("%-24s", names[i]));
+            long[] counts = entrants[i].scoreCounts;
+            for (int score = 0; score < counts.length; ++score)
+                if (counts[score] > 0)
+                    report.append(' ').append(score).append(':').append(counts[score]);
+            report.append(System.lineSeparator());
+        }
+        return report.toString();
+    }
+}
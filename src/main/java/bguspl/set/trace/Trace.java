@@ -0,0 +1,29 @@
+package bguspl.set.trace;
+
+/**
+ * The game's Java Flight Recorder events.
+ * <p>
+ * The events are defined in src/main/jfr, which the jfr build profile compiles on JDK 11 and newer (the rest of the
+ * game builds for Java 8). When the JFR tracer was built and the JVM has Flight Recorder, TRACER emits the events;
+ * otherwise it is Tracer.NONE. Either way TRACER is a constant, so the JIT inlines its calls, and the JFR tracer checks
+ * that a recording enabled an event before it builds it. Setting the system property bguspl.set.jfr to false
+ * disables the events.
+ */
+public final class Trace {
+
+    private Trace() {
+    }
+
+    public static final Tracer TRACER = load();
+
+    private static Tracer load() {
+        if (!Boolean.parseBoolean(System.getProperty("bguspl.set.jfr", "true")))
+            return Tracer.NONE;
+        try {
+            Class.forName("jdk.jfr.Event");
+            return (Tracer) Class.forName("bguspl.set.trace.JfrTracer").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return Tracer.NONE;
+        }
+    }
+}
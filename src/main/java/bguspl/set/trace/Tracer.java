@@ -0,0 +1,122 @@
+package bguspl.set.trace;
+
+/**
+ * Receives the game's trace events (see Trace). Every method does nothing by default, so the tracer used when
+ * tracing is unavailable costs nothing once the JIT inlines its empty calls.
+ * <p>
+ * Durations are measured from a start() reading taken by the caller: start() returns 0 when tracing is off, so an
+ * untraced call site does not even read the clock.
+ */
+public interface Tracer {
+
+    /**
+     * A tracer that records nothing.
+     */
+    Tracer NONE = new Tracer() {
+    };
+
+    /**
+     * @return - the current System.nanoTime reading if events are recorded, 0 otherwise.
+     */
+    default long start() {
+        return 0;
+    }
+
+    /**
+     * The dealer gave a verdict on a claim.
+     *
+     * @param table      - the table id.
+     * @param player     - the claiming player.
+     * @param verdict    - 1 for a legal set, -1 for an illegal one, 0 for a legal set that conflicted with another
+     *                   (the claim is checked again).
+     * @param claimNanos - when the claim was queued (System.nanoTime).
+     * @param start      - the start() reading taken before the claim's batch was checked.
+     */
+    default void claimVerified(int table, int player, int verdict, long claimNanos, long start) {
+    }
+
+    /**
+     * The dealer dealt cards from the deck to the table.
+     *
+     * @param table    - the table id.
+     * @param cards    - the number of cards dealt.
+     * @param deckSize - the number of cards left in the deck.
+     * @param start    - the start() reading taken before the deal.
+     */
+    default void cardsDealt(int table, int cards, int deckSize, long start) {
+    }
+
+    /**
+     * The dealer returned all the cards to the deck.
+     *
+     * @param table    - the table id.
+     * @param deckSize - the number of cards in the deck.
+     * @param start    - the start() reading taken before the reshuffle.
+     */
+    default void reshuffle(int table, int deckSize, long start) {
+    }
+
+    /**
+     * The dealer updated the countdown.
+     *
+     * @param table           - the table id.
+     * @param remainingMillis - the time left until the reshuffle.
+     * @param warn            - true iff the countdown is in the warning range.
+     */
+    default void timerTick(int table, long remainingMillis, boolean warn) {
+    }
+
+    /**
+     * A player pressed a key.
+     *
+     * @param table    - the table id.
+     * @param player   - the player.
+     * @param slot     - the slot of the key.
+     * @param accepted - false iff the press was ignored (the player or the table was locked).
+     */
+    default void keyPress(int table, int player, int slot, boolean accepted) {
+    }
+
+    /**
+     * A player was frozen.
+     *
+     * @param table  - the table id.
+     * @param player - the player.
+     * @param millis - the freeze time.
+     * @param point  - true after a point, false after a penalty.
+     */
+    default void freezeStart(int table, int player, long millis, boolean point) {
+    }
+
+    /**
+     * A player's freeze ended.
+     *
+     * @param table  - the table id.
+     * @param player - the player.
+     * @param start  - the start() reading taken when the freeze started.
+     */
+    default void freezeEnd(int table, int player, long start) {
+    }
+
+    /**
+     * A card was placed on the table.
+     *
+     * @param table - the table id.
+     * @param slot  - the slot.
+     * @param card  - the card.
+     * @param start - the start() reading taken before the table delay.
+     */
+    default void cardPlaced(int table, int slot, int card, long start) {
+    }
+
+    /**
+     * A card was removed from the table.
+     *
+     * @param table - the table id.
+     * @param slot  - the slot.
+     * @param card  - the card.
+     * @param start - the start() reading taken before the table delay.
+     */
+    default void cardRemoved(int table, int slot, int card, long start) {
+    }
+}
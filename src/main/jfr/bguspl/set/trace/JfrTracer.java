@@ -0,0 +1,330 @@
+package bguspl.set.trace;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.FlightRecorderListener;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Emits the game's trace events as Java Flight Recorder events (built by the jfr profile, see Trace).
+ * <p>
+ * Nothing is done while no recording runs: every method first reads a flag that a recorder listener keeps up to
+ * date. Within a recording, an event is only built and committed if the recording enabled its type, and the JIT
+ * scalar-replaces the event objects of the common paths. Stack traces are off by default (the events are frequent);
+ * a recording can turn them on per event type.
+ */
+public class JfrTracer implements Tracer {
+
+    private static volatile boolean recording;
+
+    public JfrTracer() {
+        FlightRecorder.addListener(new FlightRecorderListener() {
+            @Override
+            public void recorderInitialized(FlightRecorder recorder) {
+                update(recorder);
+            }
+
+            @Override
+            public void recordingStateChanged(Recording changed) {
+                update(FlightRecorder.getFlightRecorder());
+            }
+        });
+        if (FlightRecorder.isInitialized())
+            update(FlightRecorder.getFlightRecorder());
+    }
+
+    private static void update(FlightRecorder recorder) {
+        boolean running = false;
+        for (Recording r : recorder.getRecordings())
+            running |= r.getState() == RecordingState.RUNNING;
+        recording = running;
+    }
+
+    @Name("bguspl.set.ClaimVerified")
+    @Label("Claim Verified")
+    @Description("The dealer gave a verdict on a claim")
+    @Category({"Set Game", "Dealer"})
+    @StackTrace(false)
+    static class ClaimVerified extends Event {
+        @Label("Table")
+        int table;
+        @Label("Player")
+        int player;
+        @Label("Verdict")
+        @Description("1 for a legal set, -1 for an illegal one, 0 for a legal set that conflicted with another")
+        int verdict;
+        @Label("Queued")
+        @Description("From the claim being queued until the verdict")
+        @Timespan(Timespan.NANOSECONDS)
+        long queued;
+        @Label("Verification")
+        @Description("Checking the batch of claims the claim was in")
+        @Timespan(Timespan.NANOSECONDS)
+        long verification;
+    }
+
+    @Name("bguspl.set.CardsDealt")
+    @Label("Cards Dealt")
+    @Category({"Set Game", "Dealer"})
+    @StackTrace(false)
+    static class CardsDealt extends Event {
+        @Label("Table")
+        int table;
+        @Label("Cards")
+        int cards;
+        @Label("Deck Size")
+        int deckSize;
+        @Label("Elapsed")
+        @Timespan(Timespan.NANOSECONDS)
+        long elapsed;
+    }
+
+    @Name("bguspl.set.Reshuffle")
+    @Label("Reshuffle")
+    @Description("The dealer returned all the cards to the deck")
+    @Category({"Set Game", "Dealer"})
+    @StackTrace(false)
+    static class Reshuffle extends Event {
+        @Label("Table")
+        int table;
+        @Label("Deck Size")
+        int deckSize;
+        @Label("Elapsed")
+        @Timespan(Timespan.NANOSECONDS)
+        long elapsed;
+    }
+
+    @Name("bguspl.set.TimerTick")
+    @Label("Timer Tick")
+    @Category({"Set Game", "Dealer"})
+    @StackTrace(false)
+    static class TimerTick extends Event {
+        @Label("Table")
+        int table;
+        @Label("Remaining")
+        @Timespan(Timespan.MILLISECONDS)
+        long remaining;
+        @Label("Warning")
+        boolean warn;
+    }
+
+    @Name("bguspl.set.KeyPress")
+    @Label("Key Press")
+    @Category({"Set Game", "Player"})
+    @StackTrace(false)
+    static class KeyPress extends Event {
+        @Label("Table")
+        int table;
+        @Label("Player")
+        int player;
+        @Label("Slot")
+        int slot;
+        @Label("Accepted")
+        boolean accepted;
+    }
+
+    @Name("bguspl.set.FreezeStart")
+    @Label("Freeze Start")
+    @Category({"Set Game", "Player"})
+    @StackTrace(false)
+    static class FreezeStart extends Event {
+        @Label("Table")
+        int table;
+        @Label("Player")
+        int player;
+        @Label("Freeze")
+        @Timespan(Timespan.MILLISECONDS)
+        long freeze;
+        @Label("Point")
+        @Description("True after a point, false after a penalty")
+        boolean point;
+    }
+
+    @Name("bguspl.set.FreezeEnd")
+    @Label("Freeze End")
+    @Category({"Set Game", "Player"})
+    @StackTrace(false)
+    static class FreezeEnd extends Event {
+        @Label("Table")
+        int table;
+        @Label("Player")
+        int player;
+        @Label("Frozen")
+        @Timespan(Timespan.NANOSECONDS)
+        long frozen;
+    }
+
+    @Name("bguspl.set.CardPlaced")
+    @Label("Card Placed")
+    @Category({"Set Game", "Table"})
+    @StackTrace(false)
+    static class CardPlaced extends Event {
+        @Label("Table")
+        int table;
+        @Label("Slot")
+        int slot;
+        @Label("Card")
+        int card;
+        @Label("Elapsed")
+        @Description("Including the table delay")
+        @Timespan(Timespan.NANOSECONDS)
+        long elapsed;
+    }
+
+    @Name("bguspl.set.CardRemoved")
+    @Label("Card Removed")
+    @Category({"Set Game", "Table"})
+    @StackTrace(false)
+    static class CardRemoved extends Event {
+        @Label("Table")
+        int table;
+        @Label("Slot")
+        int slot;
+        @Label("Card")
+        int card;
+        @Label("Elapsed")
+        @Description("Including the table delay")
+        @Timespan(Timespan.NANOSECONDS)
+        long elapsed;
+    }
+
+    @Override
+    public long start() {
+        return recording ? System.nanoTime() : 0;
+    }
+
+    private static long since(long start) {
+        return start == 0 ? 0 : System.nanoTime() - start;
+    }
+
+    @Override
+    public void claimVerified(int table, int player, int verdict, long claimNanos, long start) {
+        if (!recording)
+            return;
+        ClaimVerified event = new ClaimVerified();
+        if (!event.shouldCommit())
+            return;
+        event.table = table;
+        event.player = player;
+        event.verdict = verdict;
+        event.queued = System.nanoTime() - claimNanos;
+        event.verification = since(start);
+        event.commit();
+    }
+
+    @Override
+    public void cardsDealt(int table, int cards, int deckSize, long start) {
+        if (!recording)
+            return;
+        CardsDealt event = new CardsDealt();
+        if (!event.shouldCommit())
+            return;
+        event.table = table;
+        event.cards = cards;
+        event.deckSize = deckSize;
+        event.elapsed = since(start);
+        event.commit();
+    }
+
+    @Override
+    public void reshuffle(int table, int deckSize, long start) {
+        if (!recording)
+            return;
+        Reshuffle event = new Reshuffle();
+        if (!event.shouldCommit())
+            return;
+        event.table = table;
+        event.deckSize = deckSize;
+        event.elapsed = since(start);
+        event.commit();
+    }
+
+    @Override
+    public void timerTick(int table, long remainingMillis, boolean warn) {
+        if (!recording)
+            return;
+        TimerTick event = new TimerTick();
+        if (!event.shouldCommit())
+            return;
+        event.table = table;
+        event.remaining = remainingMillis;
+        event.warn = warn;
+        event.commit();
+    }
+
+    @Override
+    public void keyPress(int table, int player, int slot, boolean accepted) {
+        if (!recording)
+            return;
+        KeyPress event = new KeyPress();
+        if (!event.shouldCommit())
+            return;
+        event.table = table;
+        event.player = player;
+        event.slot = slot;
+        event.accepted = accepted;
+        event.commit();
+    }
+
+    @Override
+    public void freezeStart(int table, int player, long millis, boolean point) {
+        if (!recording)
+            return;
+        FreezeStart event = new FreezeStart();
+        if (!event.shouldCommit())
+            return;
+        event.table = table;
+        event.player = player;
+        event.freeze = millis;
+        event.point = point;
+        event.commit();
+    }
+
+    @Override
+    public void freezeEnd(int table, int player, long start) {
+        if (!recording)
+            return;
+        FreezeEnd event = new FreezeEnd();
+        if (!event.shouldCommit())
+            return;
+        event.table = table;
+        event.player = player;
+        event.frozen = since(start);
+        event.commit();
+    }
+
+    @Override
+    public void cardPlaced(int table, int slot, int card, long start) {
+        if (!recording)
+            return;
+        CardPlaced event = new CardPlaced();
+        if (!event.shouldCommit())
+            return;
+        event.table = table;
+        event.slot = slot;
+        event.card = card;
+        event.elapsed = since(start);
+        event.commit();
+    }
+
+    @Override
+    public void cardRemoved(int table, int slot, int card, long start) {
+        if (!recording)
+            return;
+        CardRemoved event = new CardRemoved();
+        if (!event.shouldCommit())
+            return;
+        event.table = table;
+        event.slot = slot;
+        event.card = card;
+        event.elapsed = since(start);
+        event.commit();
+    }
+}
@@ -0,0 +1,114 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AsyncLogTest {
+
+    private static final String PREFIX = "] [SEVERE ] ";
+
+    @TempDir
+    Path dir;
+
+    private AsyncLog log(Path path, String bufferSize, String maxFileKB) {
+        Logger logger = Logger.getLogger("AsyncLogTest");
+        Properties properties = new Properties();
+        properties.put("AsyncLogBufferSize", bufferSize);
+        properties.put("AsyncLogMaxFileKB", maxFileKB);
+        properties.put("AsyncLogFileCount", "2");
+        return new AsyncLog(logger, new Config(logger, properties), path.toString());
+    }
+
+    /**
+     * @return - the messages of the lines of a log file.
+     */
+    private static String[] messages(Path path) throws IOException {
+        List<String> lines = Files.readAllLines(path);
+        String[] messages = new String[lines.size()];
+        for (int i = 0; i < messages.length; ++i)
+            messages[i] = lines.get(i).substring(lines.get(i).indexOf(PREFIX) + PREFIX.length());
+        return messages;
+    }
+
+    @Test
+    void log_KeepsTheOrderOfEachProducer() throws IOException, InterruptedException {
+        Path path = dir.resolve("log");
+        AsyncLog log = log(path, "32768", "10240"); // room for all the events, so none is dropped
+        int producers = 4, events = 5000;
+        Thread[] threads = new Thread[producers];
+        for (int p = 0; p < producers; ++p) {
+            int player = p;
+            threads[p] = new Thread(() -> {
+                for (int key = 0; key < events; ++key)
+                    log.log(AsyncLog.Event.KEY_PRESSED, key, player);
+            });
+            threads[p].start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+        log.close();
+
+        assertEquals(0, log.dropped());
+        String[] messages = messages(path);
+        assertEquals(producers * events, messages.length);
+        int[] next = new int[producers];
+        for (String message : messages) {
+            String[] words = message.split(" "); // key K was pressed by player P
+            int key = Integer.parseInt(words[1]);
+            int player = Integer.parseInt(words[6]);
+            assertEquals(next[player]++, key);
+        }
+        for (int p = 0; p < producers; ++p)
+            assertEquals(events, next[p]);
+    }
+
+    @Test
+    void log_CountsTheEventsOfAFullBuffer() throws IOException {
+        Path path = dir.resolve("log");
+        AsyncLog log = log(path, "2", "10240");
+        int logged = 0;
+        while (log.dropped() == 0 && logged < 10000000) {
+            log.log(AsyncLog.Event.PLACE_CARD, logged, 0);
+            ++logged;
+        }
+        log.close();
+
+        assertTrue(log.dropped() > 0);
+        assertEquals(logged, messages(path).length + log.dropped());
+    }
+
+    @Test
+    void log_RotatesTheFile() throws IOException, InterruptedException {
+        Path path = dir.resolve("log");
+        AsyncLog log = log(path, "16", "1");
+        int logged = 400;
+        for (int card = 0; card < logged; ++card) {
+            log.log(AsyncLog.Event.PLACE_CARD, card, card % 12);
+            if (card % 8 == 7)
+                Thread.sleep(2); // let the writer keep up, so its batches are small
+        }
+        log.close();
+
+        Path first = dir.resolve("log.1"), second = dir.resolve("log.2");
+        assertTrue(Files.exists(first));
+        assertTrue(Files.exists(second));
+        assertFalse(Files.exists(dir.resolve("log.3")));
+        for (Path file : Arrays.asList(path, first, second))
+            assertTrue(Files.size(file) <= 1024, file + " is " + Files.size(file) + " bytes");
+        String[] newest = messages(path);
+        assertEquals(AsyncLog.message(AsyncLog.Event.PLACE_CARD, logged - 1, (logged - 1) % 12),
+                newest[newest.length - 1]);
+    }
+}
@@ -0,0 +1,159 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EventBusTest {
+
+    /**
+     * Records the cards placed, after the gate opens.
+     */
+    private static class SlowUserInterface implements UserInterface {
+        final List<Integer> cards = new ArrayList<>();
+        final CountDownLatch gate = new CountDownLatch(1);
+
+        @Override
+        public void placeCard(int card, int slot) {
+            try {
+                gate.await();
+            } catch (InterruptedException ignored) {
+            }
+            cards.add(card);
+        }
+
+        @Override
+        public void removeCard(int slot) {
+        }
+
+        @Override
+        public void placeToken(int player, int slot) {
+        }
+
+        @Override
+        public void removeTokens() {
+        }
+
+        @Override
+        public void removeTokens(int slot) {
+        }
+
+        @Override
+        public void removeToken(int player, int slot) {
+        }
+
+        @Override
+        public void setCountdown(long millies, boolean warn) {
+        }
+
+        @Override
+        public void setElapsed(long millies) {
+        }
+
+        @Override
+        public void setFreeze(int player, long millies) {
+        }
+
+        @Override
+        public void setScore(int player, int score) {
+        }
+
+        @Override
+        public void announceWinner(int[] players) {
+        }
+
+        @Override
+        public void dispose() {
+        }
+    }
+
+    private static EventBus bus() {
+        Logger logger = Logger.getLogger("EventBusTest");
+        logger.setLevel(Level.OFF);
+        Properties properties = new Properties();
+        properties.put("EventBusBufferSize", "4");
+        return new EventBus(logger, new Config(logger, properties));
+    }
+
+    @Test
+    void lossless_WaitsForASlowConsumer() throws InterruptedException {
+        EventBus bus = bus();
+        SlowUserInterface ui = new SlowUserInterface();
+        bus.subscribe("slow", ui);
+
+        Thread publisher = new Thread(() -> {
+            for (int card = 0; card < 100; ++card)
+                bus.placeCard(card, 0);
+        });
+        publisher.start();
+        Thread.sleep(100);
+        assertTrue(publisher.isAlive()); // the ring is full
+        ui.gate.countDown();
+        publisher.join();
+        bus.dispose();
+
+        assertEquals(100, ui.cards.size());
+        for (int card = 0; card < 100; ++card)
+            assertEquals(card, (int) ui.cards.get(card));
+        assertEquals(0, bus.dropped());
+    }
+
+    @Test
+    void lossy_SkipsWhatItMissed() {
+        EventBus bus = bus();
+        SlowUserInterface ui = new SlowUserInterface();
+        bus.subscribe("slow", ui, true);
+
+        for (int card = 0; card < 100; ++card)
+            bus.placeCard(card, 0);
+        ui.gate.countDown();
+        bus.dispose();
+
+        assertTrue(bus.dropped() > 0);
+        assertEquals(100, ui.cards.size() + bus.dropped());
+        assertEquals(99, (int) ui.cards.get(ui.cards.size() - 1));
+    }
+
+    @Test
+    void lossless_DeliversEveryEventOfManyProducersOnce() throws InterruptedException {
+        EventBus bus = bus();
+        SlowUserInterface ui = new SlowUserInterface();
+        ui.gate.countDown();
+        bus.subscribe("slow", ui);
+
+        int producers = 4, events = 20000;
+        Thread[] threads = new Thread[producers];
+        for (int p = 0; p < producers; ++p) {
+            int first = p * events;
+            threads[p] = new Thread(() -> {
+                for (int card = first; card < first + events; ++card)
+                    bus.placeCard(card, 0);
+            });
+            threads[p].start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+        bus.dispose();
+
+        assertEquals(0, bus.dropped());
+        assertEquals(producers * events, ui.cards.size());
+        int[] last = new int[producers];
+        Arrays.fill(last, -1);
+        for (int card : ui.cards) {
+            int p = card / events;
+            assertTrue(card > last[p], "card " + card + " out of order or repeated");
+            last[p] = card;
+        }
+        for (int p = 0; p < producers; ++p)
+            assertEquals((p + 1) * events - 1, last[p]);
+    }
+}
@@ -0,0 +1,47 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UtilImplTest {
+
+    private Config config;
+    private UtilImpl util;
+
+    @BeforeEach
+    void setUp() {
+        Logger logger = Logger.getLogger("UtilImplTest");
+        config = new Config(logger, new Properties());
+        util = new UtilImpl(config);
+    }
+
+    @Test
+    void completeSet_ReturnsTheMissingCard() {
+        assertEquals(2, util.completeSet(new int[]{0, 1}));
+        assertEquals(8, util.completeSet(new int[]{0, 4})); // the last two features differ
+    }
+
+    @Test
+    void completeSet_CompletesEveryPairToALegalSet() {
+        for (int a = 0; a < config.deckSize; ++a)
+            for (int b = a + 1; b < config.deckSize; ++b) {
+                int c = util.completeSet(new int[]{a, b});
+                assertNotEquals(a, c);
+                assertNotEquals(b, c);
+                assertTrue(util.testSet(new int[]{a, b, c}));
+            }
+    }
+
+    @Test
+    void completeSet_RejectsSelectionsOfTheWrongSize() {
+        assertEquals(-1, util.completeSet(new int[]{0}));
+        assertEquals(-1, util.completeSet(new int[]{0, 1, 2}));
+    }
+}
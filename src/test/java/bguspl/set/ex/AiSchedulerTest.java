@@ -0,0 +1,25 @@
+package bguspl.set.ex;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AiSchedulerTest {
+
+    @Test
+    void get_GrowsTheSharedScheduler() {
+        ScheduledExecutorService first = AiScheduler.get(1);
+        int threads = ((ScheduledThreadPoolExecutor) first).getCorePoolSize() + 2;
+
+        ScheduledExecutorService second = AiScheduler.get(threads);
+
+        assertSame(first, second);
+        assertTrue(((ScheduledThreadPoolExecutor) second).getCorePoolSize() >= threads);
+        AiScheduler.get(1);
+        assertTrue(((ScheduledThreadPoolExecutor) second).getCorePoolSize() >= threads); // it never shrinks
+    }
+}
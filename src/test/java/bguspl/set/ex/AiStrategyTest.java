@@ -0,0 +1,112 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import bguspl.set.UtilImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AiStrategyTest {
+
+    private Env env;
+    private HintService hints;
+    private final Random random = new Random(3);
+
+    @BeforeEach
+    void setUp() {
+        TableTest.MockLogger logger = new TableTest.MockLogger();
+        Properties properties = new Properties();
+        properties.put("ComputerDecisionBudgetMicros", "0"); // no budget, so a slow first search does not pass
+        Config config = new Config(logger, properties);
+        env = new Env(logger, config, new TableTest.MockUserInterface(), new UtilImpl(config));
+        hints = new HintService(env, config.tableSize);
+    }
+
+    /**
+     * A table whose only legal set is the cards 0, 1 and 2 (in slots 5, 2 and 9).
+     */
+    private TableSnapshot table() {
+        return TableSnapshot.empty(env.config.tableSize, env.config.players)
+                .withCard(5, 0).withCard(2, 1).withCard(9, 2).withCard(0, 4);
+    }
+
+    @Test
+    void greedy_LiftsStrayTokensThenPressesTheSet() {
+        AiStrategy strategy = AiStrategy.parse(env, hints, "greedy:0");
+        TableSnapshot table = table().withToken(0, 0, true).withToken(0, 9, true);
+
+        int slot = strategy.nextSlot(table, 0, random);
+        assertEquals(0, slot);
+        table = table.withToken(0, slot, false);
+        Set<Integer> pressed = new HashSet<>();
+        for (int i = 0; i < 2; ++i) {
+            slot = strategy.nextSlot(table, 0, random);
+            pressed.add(slot);
+            table = table.withToken(0, slot, true);
+        }
+
+        assertEquals(new HashSet<>(Arrays.asList(5, 2)), pressed);
+        for (int s : new int[]{2, 5, 9})
+            assertTrue(table.hasToken(0, s));
+    }
+
+    @Test
+    void greedy_PassesWithoutASet() {
+        AiStrategy strategy = AiStrategy.parse(env, hints, "greedy:0");
+        TableSnapshot table = TableSnapshot.empty(env.config.tableSize, env.config.players).withCard(5, 0)
+                .withCard(2, 1).withCard(0, 4);
+
+        assertEquals(-1, strategy.nextSlot(table, 0, random));
+        assertEquals(-1, strategy.nextSlot(table, 0, random));
+    }
+
+    @Test
+    void greedy_GrowsItsBudgetUntilTheSearchCompletes() {
+        Properties properties = new Properties();
+        properties.put("ComputerDecisionBudgetMicros", "0.001");
+        Config config = new Config(env.logger, properties);
+        Env tight = new Env(env.logger, config, env.ui, env.util);
+        AiStrategy strategy = AiStrategy.parse(tight, new HintService(tight, config.tableSize), "greedy:0");
+        TableSnapshot table = TableSnapshot.empty(config.tableSize, config.players);
+        for (int slot = 0; slot < config.tableSize; ++slot)
+            table = table.withCard(slot, slot);
+
+        int slot = -1;
+        for (int i = 0; i < 64 && slot < 0; ++i)
+            slot = strategy.nextSlot(table, 0, random);
+        assertTrue(slot >= 0);
+    }
+
+    @Test
+    void skilled_WaitsToSpotTheSet() {
+        AiStrategy strategy = AiStrategy.parse(env, hints, "skilled:1");
+
+        assertEquals(-1, strategy.nextSlot(table(), 0, new Random(1)));
+    }
+
+    @Test
+    void random_PressesEverySlot() {
+        AiStrategy strategy = AiStrategy.parse(env, hints, "random");
+        Set<Integer> pressed = new HashSet<>();
+        for (int i = 0; i < 1000; ++i)
+            pressed.add(strategy.nextSlot(table(), 0, random));
+
+        assertEquals(env.config.tableSize, pressed.size());
+    }
+
+    @Test
+    void parse_RejectsInvalidSpecifications() {
+        for (String spec : new String[]{"", "smart", "greedy", "greedy:-5", "skilled:2", "skilled:x"})
+            assertThrows(IllegalArgumentException.class, () -> AiStrategy.parse(env, hints, spec), spec);
+    }
+}
@@ -0,0 +1,106 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CheckpointTest {
+
+    @TempDir
+    Path dir;
+
+    private Config config;
+    private Env env;
+    private Table table;
+    private Player[] players;
+
+    @BeforeEach
+    void setUp() {
+        TableTest.MockLogger logger = new TableTest.MockLogger();
+        Properties properties = new Properties();
+        properties.put("TableDelaySeconds", "0");
+        config = new Config(logger, properties);
+        env = new Env(logger, config, new TableTest.MockUserInterface(), new TableTest.MockUtil());
+        table = new Table(env);
+        players = new Player[config.players];
+        for (int i = 0; i < players.length; ++i)
+            players[i] = new Player(env, null, table, i, false);
+    }
+
+    @Test
+    void load_EmptyFile() throws IOException {
+        assertNull(new Checkpoint(dir.resolve("checkpoint"), config).load());
+    }
+
+    @Test
+    void load_ReturnsLastSave() throws IOException {
+        Checkpoint checkpoint = new Checkpoint(dir.resolve("checkpoint"), config);
+        table.placeCard(5, 0);
+        table.placeCard(7, 3);
+        table.placeToken(1, 3);
+        checkpoint.save(Arrays.asList(1, 2, 80), table, players, 1000);
+
+        table.placeCard(9, 4);
+        checkpoint.save(Arrays.asList(2, 80), table, players, 500);
+
+        Checkpoint.State state = new Checkpoint(dir.resolve("checkpoint"), config).load();
+        assertEquals(Arrays.asList(2, 80), state.deck);
+        assertEquals(5, (int) state.slotToCard[0]);
+        assertEquals(7, (int) state.slotToCard[3]);
+        assertEquals(9, (int) state.slotToCard[4]);
+        assertNull(state.slotToCard[1]);
+        assertEquals(1L << 1, state.tokens[3]);
+        assertEquals(500, state.reshuffleRemainingMillis);
+        assertArrayEquals(new int[config.players], state.scores);
+    }
+
+    @Test
+    void resume_PublishesTheTable() {
+        Checkpoint.State state = new Checkpoint.State(0, 1000, Arrays.asList(2, 80), new Integer[config.tableSize],
+                new long[config.tableSize], new int[config.players]);
+        state.slotToCard[0] = 5;
+        state.slotToCard[3] = 7;
+        state.tokens[3] = 1L << 1;
+
+        new Dealer(env, table, players).resume(state);
+
+        TableSnapshot snapshot = table.snapshot();
+        assertEquals(5, snapshot.card(0));
+        assertEquals(7, snapshot.card(3));
+        assertEquals(-1, snapshot.card(1));
+        assertTrue(snapshot.hasToken(1, 3));
+    }
+
+    @Test
+    void resume_ClaimsFullSelectionsAgain() {
+        Checkpoint.State state = new Checkpoint.State(0, 1000, Arrays.asList(80), new Integer[config.tableSize],
+                new long[config.tableSize], new int[config.players]);
+        for (int slot = 0; slot < config.featureSize; ++slot) {
+            state.slotToCard[slot] = slot;
+            state.tokens[slot] = 1L << 1;
+        }
+        state.tokens[0] |= 1L;
+
+        Dealer dealer = new Dealer(env, table, players);
+        dealer.resume(state);
+
+        assertEquals(Arrays.asList(1), new ArrayList<>(dealer.playersToCheck));
+        assertTrue(players[1].block);
+        assertFalse(players[0].block);
+    }
+}
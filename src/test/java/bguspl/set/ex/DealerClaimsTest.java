@@ -0,0 +1,121 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import bguspl.set.UtilImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DealerClaimsTest {
+
+    private Table table;
+    private Dealer dealer;
+    private Player[] players;
+
+    @BeforeEach
+    void setUp() {
+        TableTest.MockLogger logger = new TableTest.MockLogger();
+        Properties properties = new Properties();
+        properties.put("TableDelaySeconds", "0");
+        Config config = new Config(logger, properties);
+        Env env = new Env(logger, config, new TableTest.MockUserInterface(), new UtilImpl(config));
+        table = new Table(env);
+        players = new Player[config.players];
+        dealer = new Dealer(env, table, players);
+        for (int i = 0; i < players.length; ++i)
+            players[i] = new Player(env, dealer, table, i, true);
+
+        // cards 0, 1 and 2 differ only in their last feature, so they are a legal set; card 3 completes none of them
+        for (int card = 0; card < 4; ++card)
+            table.placeCard(card, card);
+    }
+
+    private void claim(int player, int... slots) {
+        for (int slot : slots)
+            players[player].keyPressed(slot);
+    }
+
+    @Test
+    void checkClaims_CommitsInArrivalOrder() {
+        claim(1, 0, 1, 2);
+        claim(0, 2, 1, 0);
+
+        dealer.checkClaims();
+
+        assertEquals(1, dealer.foundSets.size());
+        assertEquals(1, dealer.foundSets.get(0).player);
+        assertEquals(1, players[1].flag);
+        assertEquals(0, players[0].flag);
+    }
+
+    @Test
+    void checkClaims_RequeuesConflictingValidClaims() {
+        claim(1, 0, 1, 2);
+        claim(0, 0, 1, 2);
+        claim(2, 0, 1, 3);
+
+        dealer.checkClaims();
+
+        assertEquals(-1, players[2].flag);
+        assertEquals(Arrays.asList(0), new ArrayList<>(dealer.playersToCheck));
+        assertTrue(players[0].block);
+        assertEquals(3, players[0].playerAction.size());
+    }
+
+    @Test
+    void removeCardsFromTable_ReleasesRequeuedClaims() {
+        claim(1, 0, 1, 2);
+        claim(0, 0, 1, 2);
+        dealer.checkClaims();
+
+        dealer.removeCardsFromTable();
+
+        assertTrue(dealer.playersToCheck.isEmpty());
+        assertFalse(players[0].block);
+        assertTrue(players[0].playerAction.isEmpty());
+        for (int slot = 0; slot < 3; ++slot) {
+            assertFalse(table.playersToken[slot][0]);
+            assertEquals(-1, table.snapshot().card(slot));
+        }
+        assertEquals(3, table.snapshot().card(3));
+    }
+
+    @Test
+    void speculate_FindsTheCompletingCard() {
+        claim(0, 1, 0);
+
+        assertEquals(2, players[0].completingCard);
+        assertEquals(2, players[0].partialCards.length);
+    }
+
+    @Test
+    void checkClaims_SpeculatedVerdictWithTheCompletingCardOnTheTable() {
+        claim(0, 0, 1, 2);
+        claim(1, 0, 1, 3);
+
+        dealer.checkClaims();
+
+        assertEquals(1, players[0].flag);
+        assertEquals(-1, players[1].flag);
+    }
+
+    @Test
+    void checkClaims_SpeculatedVerdictWithoutTheCompletingCardOnTheTable() {
+        table.removeCard(2);
+        claim(0, 0, 1);
+        assertEquals(2, players[0].completingCard);
+        claim(0, 3);
+
+        dealer.checkClaims();
+
+        assertEquals(-1, players[0].flag);
+    }
+}
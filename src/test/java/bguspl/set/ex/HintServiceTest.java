@@ -0,0 +1,113 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import bguspl.set.UtilImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class HintServiceTest {
+
+    private Config config;
+    private Env env;
+    private HintService service;
+
+    @BeforeEach
+    void setUp() {
+        TableTest.MockLogger logger = new TableTest.MockLogger();
+        config = new Config(logger, new Properties());
+        env = new Env(logger, config, new TableTest.MockUserInterface(), new UtilImpl(config));
+        service = new HintService(env, config.tableSize);
+    }
+
+    private Set<String> expectedSets(TableSnapshot table) {
+        List<Integer> cards = Arrays.stream(table.cards()).boxed().collect(Collectors.toList());
+        Set<String> sets = new TreeSet<>();
+        for (int[] set : env.util.findSets(cards, Integer.MAX_VALUE)) {
+            int[] sorted = set.clone();
+            Arrays.sort(sorted);
+            sets.add(Arrays.toString(sorted));
+        }
+        return sets;
+    }
+
+    private Set<String> hintedSets(TableSnapshot table, Hints hints) {
+        Set<String> sets = new TreeSet<>();
+        for (int set = 0; set < hints.count(); ++set) {
+            int[] cards = hints.cards(set);
+            int[] slots = hints.slots(set);
+            for (int i = 0; i < cards.length; ++i)
+                assertEquals(cards[i], table.card(slots[i]));
+            sets.add(Arrays.toString(cards));
+        }
+        assertEquals(sets.size(), hints.count()); // no set is listed twice
+        return sets;
+    }
+
+    @Test
+    void hints_MatchAFullSearchAfterEveryChange() {
+        Random random = new Random(5);
+        List<Integer> deck = IntStream.range(0, config.deckSize).boxed().collect(Collectors.toList());
+        Collections.shuffle(deck, random);
+        TableSnapshot table = TableSnapshot.empty(config.tableSize, config.players);
+        for (int slot = 0; slot < config.tableSize; ++slot)
+            table = table.withCard(slot, deck.remove(deck.size() - 1));
+
+        for (int round = 0; round < 500; ++round) {
+            Hints hints = service.hints(table);
+            assertEquals(table.version, hints.version);
+            assertEquals(expectedSets(table), hintedSets(table, hints));
+
+            // replace (or empty) a few slots, as the dealer does after a set
+            List<Integer> slots = new ArrayList<>();
+            for (int slot = 0; slot < config.tableSize; ++slot)
+                slots.add(slot);
+            Collections.shuffle(slots, random);
+            for (int slot : slots.subList(0, 1 + random.nextInt(3))) {
+                if (table.card(slot) >= 0)
+                    deck.add(0, table.card(slot));
+                table = table.withCard(slot, random.nextInt(10) == 0 ? -1 : deck.remove(deck.size() - 1));
+            }
+        }
+    }
+
+    @Test
+    void hints_AreCachedPerVersionAndKeptForTokenChanges() {
+        TableSnapshot table = TableSnapshot.empty(config.tableSize, config.players).withCard(5, 0).withCard(2, 1)
+                .withCard(9, 2);
+        Hints hints = service.hints(table);
+        assertEquals(1, hints.count());
+        assertSame(hints, service.hints(table));
+
+        TableSnapshot withToken = table.withToken(0, 5, true);
+        Hints moved = service.hints(withToken);
+        assertEquals(withToken.version, moved.version);
+        assertEquals("[5, 2, 9]", Arrays.toString(moved.slots(0))); // in the order of the cards
+        assertSame(moved, service.hints(withToken));
+    }
+
+    @Test
+    void hints_GiveUpWhenOutOfTime() {
+        TableSnapshot table = TableSnapshot.empty(config.tableSize, config.players);
+        for (int slot = 0; slot < config.tableSize; ++slot)
+            table = table.withCard(slot, slot * 3);
+
+        assertNull(service.hints(table, 0));
+        assertEquals(expectedSets(table).size(), service.hints(table).count());
+    }
+}
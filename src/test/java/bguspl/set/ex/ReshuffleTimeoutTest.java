@@ -0,0 +1,49 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReshuffleTimeoutTest {
+
+    ReshuffleTimeout timeout;
+
+    @BeforeEach
+    void setUp() {
+        Properties properties = new Properties();
+        properties.put("AdaptiveTurnTimeout", "True");
+        properties.put("TurnTimeoutSeconds", "60");
+        properties.put("TurnTimeoutMinSeconds", "5");
+        properties.put("TurnTimeoutMaxSeconds", "120");
+        timeout = new ReshuffleTimeout(new Config(new TableTest.MockLogger(), properties));
+        timeout.start(0);
+    }
+
+    @Test
+    void millis_StartsAtTurnTimeout() {
+        assertEquals(60000, timeout.millis());
+    }
+
+    @Test
+    void millis_ShrinksWhenSetsAreFoundQuickly() {
+        long before = timeout.millis();
+        timeout.setFound(1000);
+        assertTrue(timeout.millis() < before);
+    }
+
+    @Test
+    void millis_StaysWithinBounds() {
+        for (int i = 1; i <= 100; ++i)
+            timeout.setFound(i * 10L);
+        assertEquals(5000, timeout.millis());
+
+        for (int i = 1; i <= 100; ++i)
+            timeout.timedOut(1000 + i * 1000000L);
+        assertEquals(120000, timeout.millis());
+    }
+}
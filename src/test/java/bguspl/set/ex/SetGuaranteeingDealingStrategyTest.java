@@ -0,0 +1,71 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import bguspl.set.Util;
+import bguspl.set.UtilImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SetGuaranteeingDealingStrategyTest {
+
+    private Config config;
+    private Env env;
+    private Util util;
+    private DealingStrategy strategy;
+
+    @BeforeEach
+    void setUp() {
+        TableTest.MockLogger logger = new TableTest.MockLogger();
+        config = new Config(logger, new Properties());
+        util = new UtilImpl(config);
+        env = new Env(logger, config, new TableTest.MockUserInterface(), util);
+        strategy = new SetGuaranteeingDealingStrategy(env, 1);
+    }
+
+    private List<Integer> fullDeck() {
+        return IntStream.range(0, config.deckSize).boxed().collect(Collectors.toList());
+    }
+
+    @Test
+    void deal_AlwaysLeavesASet() {
+        for (int i = 0; i < 100; ++i) {
+            List<Integer> deck = fullDeck();
+            List<Integer> dealt = strategy.deal(deck, new int[0], config.tableSize);
+            assertFalse(util.findSets(dealt, 1).isEmpty());
+        }
+    }
+
+    @Test
+    void deal_KeepsDeckConsistent() {
+        List<Integer> deck = fullDeck();
+        List<Integer> dealt = strategy.deal(deck, new int[0], config.tableSize);
+
+        assertEquals(config.tableSize, new HashSet<>(dealt).size());
+        assertEquals(config.deckSize - config.tableSize, deck.size());
+        for (int card : dealt)
+            assertFalse(deck.contains(card));
+        assertTrue(deck.size() + dealt.size() == config.deckSize);
+    }
+
+    @Test
+    void deal_SameSeedDealsTheSameCards() {
+        List<Integer> first = new SetGuaranteeingDealingStrategy(env, 1, new Random(7)).deal(fullDeck(), new int[0],
+                config.tableSize);
+        List<Integer> second = new SetGuaranteeingDealingStrategy(env, 1, new Random(7)).deal(fullDeck(), new int[0],
+                config.tableSize);
+
+        assertEquals(first, second);
+    }
+}
@@ -4,6 +4,7 @@ import bguspl.set.Config;
 import bguspl.set.Env;
 import bguspl.set.UserInterface;
 import bguspl.set.Util;
+import bguspl.set.UtilImpl;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -12,12 +13,15 @@ import java.util.Properties;
 import java.util.logging.Logger;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class TableTest {
 
     Table table;
     private Integer[] slotToCard;
     private Integer[] cardToSlot;
+    private Config config;
 
     @BeforeEach
     void setUp() {
@@ -31,7 +35,7 @@ class TableTest {
         properties.put("PlayerKeys1", "81,87,69,82");
         properties.put("PlayerKeys2", "85,73,79,80");
         MockLogger logger = new MockLogger();
-        Config config = new Config(logger, properties);
+        config = new Config(logger, properties);
         slotToCard = new Integer[config.tableSize];
         cardToSlot = new Integer[config.deckSize];
 
@@ -115,6 +119,54 @@ class TableTest {
         removeSomeCardsAndAssert();
     }
 
+    private Table tableWithCards(int... cards) {
+        Env env = new Env(new MockLogger(), config, new MockUserInterface(), new UtilImpl(config));
+        Table t = new Table(env, new Integer[config.tableSize], new Integer[config.deckSize]);
+        for (int i = 0; i < cards.length; ++i) {
+            t.slotToCard[i] = cards[i];
+            t.cardToSlot[cards[i]] = i;
+        }
+        return t;
+    }
+
+    @Test
+    void hasSet_SetOnTable() {
+        // 0000, 0001, 0002 differ only in the last feature
+        assertTrue(tableWithCards(0, 1, 2, 4).hasSet());
+    }
+
+    @Test
+    void hasSet_NoSetOnTable() {
+        // 0000, 0001, 0010, 0011 have no three cards forming a set
+        assertFalse(tableWithCards(0, 1, 3, 4).hasSet());
+    }
+
+    @Test
+    void snapshot_PublishesEveryChange() throws InterruptedException {
+        TableSnapshot before = table.snapshot();
+        table.placeCard(8, 2);
+        table.placeToken(1, 2);
+
+        TableSnapshot after = table.snapshot();
+        assertEquals(before.version + 2, after.version);
+        assertEquals(8, after.card(2));
+        assertTrue(after.hasToken(1, 2));
+        assertFalse(after.hasToken(0, 2));
+        assertEquals(-1, before.card(2));
+    }
+
+    @Test
+    void awaitSnapshot_ReturnsNewerVersion() throws InterruptedException {
+        long version = table.snapshot().version;
+        Thread dealer = new Thread(() -> table.placeCard(8, 2));
+        dealer.start();
+
+        TableSnapshot snapshot = table.awaitSnapshot(version, 5000);
+        dealer.join();
+        assertTrue(snapshot.version > version);
+        assertEquals(8, snapshot.card(2));
+    }
+
     static class MockUserInterface implements UserInterface {
         @Override
         public void dispose() {
@@ -186,6 +238,11 @@ class TableTest {
             return null;
         }
 
+        @Override
+        public int completeSet(int[] cards) {
+            return -1;
+        }
+
         @Override
         public void spin() {
         }
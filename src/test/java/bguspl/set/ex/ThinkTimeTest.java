@@ -0,0 +1,70 @@
+package bguspl.set.ex;
+
+import bguspl.set.journal.Journal;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ThinkTimeTest {
+
+    @Test
+    void parse_FixedAndExponential() {
+        Random random = new Random(7);
+        assertEquals(2500000, ThinkTime.parse("fixed:2.5", 0).nextNanos(random));
+
+        ThinkTime exponential = ThinkTime.parse(" exponential : 10", 0);
+        long sum = 0;
+        int n = 100000;
+        for (int i = 0; i < n; ++i) {
+            long nanos = exponential.nextNanos(random);
+            assertTrue(nanos >= 0);
+            sum += nanos;
+        }
+        assertEquals(10000000, (double) sum / n, 10000000 * 0.02);
+    }
+
+    @Test
+    void parse_RejectsInvalidSpecifications() {
+        for (String spec : new String[]{"", "fixed", "fixed:x", "fixed:-1", "uniform:5", "recorded:/no/such/journal"})
+            assertThrows(IllegalArgumentException.class, () -> ThinkTime.parse(spec, 0), spec);
+    }
+
+    @Test
+    void replay_RepeatsTheGapsInOrder() {
+        ThinkTime replay = ThinkTime.replay(new long[]{1, 2, 3});
+        long[] drawn = new long[7];
+        for (int i = 0; i < drawn.length; ++i)
+            drawn[i] = replay.nextNanos(null);
+
+        assertEquals("[1, 2, 3, 1, 2, 3, 1]", Arrays.toString(drawn));
+    }
+
+    @Test
+    void parse_RecordedReplaysThePlayersGaps() throws IOException, InterruptedException {
+        Path file = Files.createTempFile("think-time", ".journal");
+        try {
+            Journal journal = new Journal(file, 1 << 16);
+            journal.record(Journal.Type.KEY, 0, 1, 3, -1, 0);
+            journal.record(Journal.Type.KEY, 0, 0, 3, -1, 0);
+            Thread.sleep(20);
+            journal.record(Journal.Type.KEY, 0, 1, 4, -1, 0);
+            journal.record(Journal.Type.CLAIM, 0, 1, -1, -1, 0);
+            journal.close();
+
+            long gap = ThinkTime.parse("recorded:" + file, 1).nextNanos(null);
+            assertTrue(gap >= 20000000, "gap " + gap);
+            assertEquals(gap, ThinkTime.parse("recorded:" + file, 1).nextNanos(null));
+            assertTrue(ThinkTime.parse("recorded:" + file, 0).nextNanos(null) > 0); // falls back to player 1's gap
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
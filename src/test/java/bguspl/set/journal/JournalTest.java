@@ -0,0 +1,48 @@
+package bguspl.set.journal;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class JournalTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void close_DropsLaterRecordsAndTrimsTheFile() throws IOException {
+        Path path = dir.resolve("journal");
+        Journal journal = new Journal(path, 2 * Journal.RECORD_BYTES); // small segments, so the writes map new ones
+        for (int slot = 0; slot < 5; ++slot)
+            journal.record(Journal.Type.DEAL, 0, -1, slot, slot + 10, 0);
+        journal.close();
+        journal.record(Journal.Type.KEY, 0, 1, 2, -1, 0);
+        journal.close();
+
+        assertEquals(6 * Journal.RECORD_BYTES, Files.size(path));
+        List<Integer> cards = new ArrayList<>();
+        assertEquals(5, new JournalReader(path).scan(r -> cards.add(r.card)));
+        assertEquals(14, (int) cards.get(4));
+    }
+
+    @Test
+    void scan_ReadsAcrossSegments() throws IOException {
+        Path path = dir.resolve("journal");
+        Journal journal = new Journal(path, 1 << 20);
+        for (int slot = 0; slot < 7; ++slot)
+            journal.record(Journal.Type.DEAL, 0, -1, slot, slot + 10, 0);
+        journal.close();
+
+        List<Integer> cards = new ArrayList<>();
+        assertEquals(7, new JournalReader(path, 3 * Journal.RECORD_BYTES).scan(r -> cards.add(r.card)));
+        for (int slot = 0; slot < 7; ++slot)
+            assertEquals(slot + 10, (int) cards.get(slot));
+    }
+}
@@ -0,0 +1,69 @@
+package bguspl.set.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HistogramTest {
+
+    @Test
+    void buckets_CoverEveryValueWithinThreePercent() {
+        int previous = -1;
+        for (long value = 0; value < 1 << 20; value += 1 + value / 1000) {
+            int index = Histogram.index(value);
+            assertTrue(index == previous || index == previous + 1, "bucket gap at " + value);
+            long highest = Histogram.highestValue(index);
+            assertTrue(highest >= value && highest - value <= value / 32, "value " + value + " reported as " + highest);
+            previous = index;
+        }
+        assertEquals(Histogram.highestValue(Histogram.index(Histogram.MAX_VALUE)), Histogram.MAX_VALUE);
+    }
+
+    @Test
+    void percentiles_OfUniformValues() {
+        Histogram histogram = new Histogram();
+        for (int value = 1; value <= 100000; ++value)
+            histogram.record(value * 1000L);
+
+        assertEquals(100000, histogram.count());
+        assertEquals(50000500, histogram.mean(), 1);
+        assertEquals(100000000, histogram.max());
+        for (double quantile : new double[]{0.5, 0.9, 0.99, 0.999}) {
+            double expected = quantile * 100000000;
+            assertEquals(expected, histogram.percentile(quantile), expected / 32);
+        }
+        assertEquals(100000000, histogram.percentile(1));
+
+        double[] quantiles = {0.1, 0.5, 0.5, 0.99, 1};
+        long[] values = new long[quantiles.length];
+        histogram.percentiles(quantiles, values);
+        for (int i = 0; i < quantiles.length; ++i)
+            assertEquals(histogram.percentile(quantiles[i]), values[i]);
+    }
+
+    @Test
+    void add_MergesCountsAndMax() throws InterruptedException {
+        Histogram first = new Histogram();
+        Histogram second = new Histogram();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; ++t) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 10000; ++i)
+                    first.record(i);
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+        second.record(-5);
+        second.record(Long.MAX_VALUE);
+
+        second.add(first);
+
+        assertEquals(40002, second.count());
+        assertEquals(Histogram.MAX_VALUE, second.max());
+        assertEquals(0, second.percentile(0));
+        assertEquals(9999, first.max());
+    }
+}
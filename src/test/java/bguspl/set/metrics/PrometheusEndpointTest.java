@@ -0,0 +1,78 @@
+package bguspl.set.metrics;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PrometheusEndpointTest {
+
+    private Metrics metrics;
+    private TableMetrics table;
+    private PrometheusEndpoint endpoint;
+
+    @BeforeEach
+    void setUp() {
+        metrics = new Metrics(Logger.getLogger("PrometheusEndpointTest"), false);
+        table = new TableMetrics(7, 4);
+        metrics.register(table);
+        endpoint = new PrometheusEndpoint(Logger.getLogger("PrometheusEndpointTest"), metrics);
+    }
+
+    @AfterEach
+    void tearDown() {
+        endpoint.stop();
+    }
+
+    @Test
+    void text_ExportsCountersAndSummaries() {
+        table.claims.add(3);
+        table.validClaims.increment();
+        table.invalidClaims.add(2);
+        table.claimLatency.record(1500);
+        table.claimLatency.record(2000000000L);
+
+        String text = endpoint.text();
+
+        assertTrue(text.contains("# TYPE bguspl_set_claims_total counter\nbguspl_set_claims_total{table=\"7\"} 3\n"));
+        assertTrue(text.contains("bguspl_set_verdicts_total{table=\"7\",verdict=\"valid\"} 1\n"));
+        assertTrue(text.contains("bguspl_set_verdicts_total{table=\"7\",verdict=\"invalid\"} 2\n"));
+        assertTrue(text.contains("bguspl_set_players{table=\"7\"} 4\n"));
+        assertTrue(text.contains("bguspl_set_tables 1\n"));
+        assertTrue(text.contains("bguspl_set_claim_latency_seconds{table=\"7\",quantile=\"0.5\"} 0.000001503\n"));
+        assertTrue(text.contains("bguspl_set_claim_latency_seconds_sum{table=\"7\"} 2.000001500\n"));
+        assertTrue(text.contains("bguspl_set_claim_latency_seconds_count{table=\"7\"} 2\n"));
+        for (String line : text.split("\n"))
+            assertTrue(line.startsWith("# ") || line.matches("[a-z_]+(\\{[^}]*\\})? [0-9.]+"), line);
+    }
+
+    @Test
+    void start_ServesTheMetrics() throws IOException {
+        int port = endpoint.start(0, "/metrics");
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + port + "/metrics")
+                .openConnection();
+
+        assertEquals(200, connection.getResponseCode());
+        assertEquals(PrometheusEndpoint.CONTENT_TYPE, connection.getContentType());
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        try (InputStream in = connection.getInputStream()) {
+            byte[] buffer = new byte[4096];
+            for (int n; (n = in.read(buffer)) > 0; )
+                body.write(buffer, 0, n);
+        }
+        String text = new String(body.toByteArray(), StandardCharsets.UTF_8);
+        assertTrue(text.startsWith("# HELP bguspl_set_tables "));
+        assertTrue(text.contains("bguspl_set_claims_total{table=\"7\"} 0\n"));
+        assertTrue(text.contains("bguspl_set_jvm_threads "));
+    }
+}
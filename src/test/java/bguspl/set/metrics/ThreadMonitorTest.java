@@ -0,0 +1,117 @@
+package bguspl.set.metrics;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ThreadMonitorTest {
+
+    private ThreadMonitor monitor;
+    private volatile boolean stop;
+    private final Object lock = new Object();
+
+    @BeforeEach
+    void setUp() {
+        Metrics metrics = new Metrics(Logger.getLogger("ThreadMonitorTest"), false);
+        metrics.register(new TableMetrics(9, 2));
+        monitor = new ThreadMonitor(Logger.getLogger("ThreadMonitorTest"), metrics, 1000, 1000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        stop = true;
+    }
+
+    @Test
+    void sample_AttributesCpuAndContention() throws InterruptedException {
+        CountDownLatch spinning = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch sampled = new CountDownLatch(1);
+        Thread spinner = new Thread(() -> {
+            ThreadMonitor.attribute(9, "computer", 1);
+            spinning.countDown();
+            long x = 0;
+            while (!stop)
+                x += System.nanoTime() & 1;
+        }, "spinner");
+        Thread blocked = new Thread(() -> {
+            ThreadMonitor.attribute(9, "player", 0);
+            started.countDown();
+            synchronized (lock) {
+                lock.notifyAll();
+            }
+            try {
+                sampled.await();
+            } catch (InterruptedException ignored) {
+            }
+        }, "blocked");
+
+        monitor.sample();
+        spinner.start();
+        spinning.await(); // so the threads do not contend while attributing themselves
+        synchronized (lock) {
+            blocked.start();
+            started.await();
+            Thread.sleep(300);
+        }
+        while (blocked.getState() != Thread.State.WAITING)
+            Thread.sleep(1);
+        List<ThreadMonitor.Stats> all = monitor.sample();
+        stop = true;
+        sampled.countDown();
+        spinner.join();
+        blocked.join();
+
+        // other tests' threads may be attributed too, so look only at this test's threads
+        List<ThreadMonitor.Stats> stats = all.stream().filter(s -> s.threadId == spinner.getId()
+                || s.threadId == blocked.getId()).collect(Collectors.toList());
+        assertEquals(2, stats.size());
+        ThreadMonitor.Stats busiest = stats.get(0);
+        assertEquals("spinner", busiest.name);
+        assertEquals(9, busiest.table);
+        assertEquals("computer", busiest.role);
+        assertTrue(busiest.cpuNanos > 0);
+        ThreadMonitor.Stats waiting = stats.get(1);
+        assertEquals("player", waiting.role);
+        assertTrue(waiting.blockedCount >= 1);
+
+        String report = monitor.report(all);
+        assertTrue(report.contains("table 9 computer 1 (spinner)"), report);
+        assertTrue(report.contains("table 9: cpu"), report);
+        assertTrue(report.contains(", 0 sets"), report);
+    }
+
+    @Test
+    void sample_ForgetsFinishedThreads() throws InterruptedException {
+        Thread finished = new Thread(() -> ThreadMonitor.attribute(9, "dealer", -1), "finished");
+        finished.start();
+        finished.join();
+
+        assertTrue(monitor.sample().stream().noneMatch(s -> s.name.equals("finished")));
+    }
+
+    @Test
+    void charge_ReportsSharedThreadWorkUnderItsTable() {
+        monitor.sample();
+        long cpu = ThreadMonitor.cpuTime();
+        long x = 0;
+        for (long end = System.nanoTime() + 50000000L; System.nanoTime() < end; )
+            x += System.nanoTime() & 1;
+        ThreadMonitor.charge(9, 1, cpu);
+
+        List<ThreadMonitor.Stats> stats = monitor.sample();
+        ThreadMonitor.Stats charged = stats.stream().filter(s -> s.threadId == -1 && s.table == 9 && s.player == 1)
+                .findFirst().get();
+        assertEquals("computer", charged.role);
+        assertTrue(charged.cpuNanos > 0, "spun " + x);
+        assertTrue(monitor.report(stats).contains("table 9 computer 1 (scheduled)"));
+    }
+}
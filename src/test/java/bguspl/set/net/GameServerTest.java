@@ -0,0 +1,162 @@
+package bguspl.set.net;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import bguspl.set.EventBus;
+import bguspl.set.UtilImpl;
+import bguspl.set.ex.Dealer;
+import bguspl.set.ex.Player;
+import bguspl.set.ex.Table;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class GameServerTest {
+
+    private Config config;
+    private EventBus eventBus;
+    private GameServer server;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Logger logger = Logger.getLogger("GameServerTest");
+        logger.setLevel(Level.OFF);
+        Properties properties = new Properties();
+        properties.put("HumanPlayers", "1");
+        properties.put("ComputerPlayers", "0");
+        properties.put("RemotePlayers", "1");
+        properties.put("ServerPort", "0"); // any free port
+        properties.put("TableDelaySeconds", "0");
+        config = new Config(logger, properties);
+        eventBus = new EventBus(logger, config);
+        Env env = new Env(logger, config, eventBus, new UtilImpl(config));
+        Table table = new Table(env);
+        Player[] players = new Player[config.players];
+        Dealer dealer = new Dealer(env, table, players);
+        for (int i = 0; i < players.length; ++i)
+            players[i] = new Player(env, dealer, table, i, true);
+
+        table.placeCard(5, 0);
+        table.placeCard(7, 1);
+        server = new GameServer(logger, config, table, players);
+        server.setScore(0, 4);
+        eventBus.subscribe("server", server);
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.dispose();
+        eventBus.dispose();
+    }
+
+    /**
+     * A blocking test client.
+     */
+    private class Client implements AutoCloseable {
+        final Socket socket;
+        final DataInputStream in;
+        final DataOutputStream out;
+
+        Client() throws IOException {
+            socket = new Socket(InetAddress.getLoopbackAddress(), server.port());
+            socket.setSoTimeout(5000);
+            in = new DataInputStream(socket.getInputStream());
+            out = new DataOutputStream(socket.getOutputStream());
+        }
+
+        void send(byte type, byte... payload) throws IOException {
+            out.write(payload.length + 1);
+            out.write(type);
+            out.write(payload);
+            out.flush();
+        }
+
+        /**
+         * @return - the next frame of one of the types, without its length byte (the frames before it are skipped).
+         */
+        ByteBuffer next(byte... types) throws IOException {
+            while (true) {
+                byte[] frame = new byte[in.readUnsignedByte()];
+                in.readFully(frame);
+                for (byte type : types)
+                    if (frame[0] == type)
+                        return ByteBuffer.wrap(frame);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+
+    @Test
+    void connect_SendsTheTableState() throws IOException {
+        try (Client client = new Client()) {
+            int[] cards = new int[config.tableSize];
+            for (int i = 0; i < config.tableSize; ++i) {
+                ByteBuffer card = client.next(Protocol.CARD);
+                cards[card.get(1)] = card.getInt(2);
+            }
+            assertEquals(5, cards[0]);
+            assertEquals(7, cards[1]);
+            assertEquals(-1, cards[2]);
+
+            ByteBuffer score = client.next(Protocol.SCORE);
+            assertEquals(0, score.get(1));
+            assertEquals(4, score.getInt(2));
+        }
+    }
+
+    @Test
+    void join_PlaysAndAnswersPings() throws IOException {
+        try (Client client = new Client()) {
+            client.send(Protocol.JOIN);
+            ByteBuffer welcome = client.next(Protocol.WELCOME);
+            int player = welcome.get(1);
+            assertEquals(config.humanPlayers, player);
+
+            client.send(Protocol.PRESS, (byte) 1);
+            ByteBuffer token = client.next(Protocol.TOKEN);
+            assertEquals(player, token.get(1));
+            assertEquals(1, token.get(2));
+            assertEquals(1, token.get(3));
+
+            client.send(Protocol.PING, ByteBuffer.allocate(8).putLong(123456789L).array());
+            assertEquals(123456789L, client.next(Protocol.PONG).getLong(1));
+        }
+    }
+
+    @Test
+    void disconnect_FreesTheSeat() throws IOException, InterruptedException {
+        Client first = new Client();
+        first.send(Protocol.JOIN);
+        first.next(Protocol.WELCOME);
+        try (Client second = new Client()) {
+            second.send(Protocol.JOIN);
+            second.next(Protocol.FULL);
+
+            first.close();
+            byte answer = Protocol.FULL;
+            for (int attempt = 0; attempt < 100 && answer == Protocol.FULL; ++attempt) { // until the server notices
+                Thread.sleep(20);
+                second.send(Protocol.JOIN);
+                answer = second.next(Protocol.FULL, Protocol.WELCOME).get(0);
+            }
+            assertEquals(Protocol.WELCOME, answer);
+        }
+    }
+}
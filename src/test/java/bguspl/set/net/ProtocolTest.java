@@ -0,0 +1,32 @@
+package bguspl.set.net;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ProtocolTest {
+
+    @Test
+    void frame_CompleteAndIncomplete() {
+        ByteBuffer buffer = ByteBuffer.allocate(Protocol.MAX_FRAME);
+        int start = Protocol.begin(buffer, Protocol.PRESS);
+        buffer.put((byte) 5);
+        Protocol.end(buffer, start);
+
+        buffer.flip();
+        assertEquals(3, Protocol.frame(buffer));
+        buffer.limit(2);
+        assertEquals(0, Protocol.frame(buffer));
+    }
+
+    @Test
+    void frame_RejectsFramesWithoutAType() {
+        ByteBuffer buffer = ByteBuffer.allocate(Protocol.MAX_FRAME);
+        buffer.put((byte) 0).put(Protocol.PING);
+
+        buffer.flip();
+        assertEquals(Protocol.MALFORMED, Protocol.frame(buffer));
+    }
+}
@@ -0,0 +1,93 @@
+package bguspl.set.net;
+
+import bguspl.set.Config;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SpectatorBroadcasterTest {
+
+    private SpectatorBroadcaster broadcaster;
+
+    @BeforeEach
+    void setUp() {
+        Logger logger = Logger.getLogger("SpectatorBroadcasterTest");
+        logger.setLevel(Level.OFF);
+        Properties properties = new Properties();
+        properties.put("SpectatorRingSize", "64");
+        properties.put("SpectatorMaxLag", "16");
+        properties.put("SpectatorKeyframeSeconds", "10");
+        broadcaster = new SpectatorBroadcaster(logger, new Config(logger, properties));
+    }
+
+    @AfterEach
+    void tearDown() {
+        broadcaster.dispose();
+    }
+
+    /**
+     * Applies the subscriber's frames to a view until the view shows the expected cards (or a few seconds pass).
+     */
+    private static SpectatorView follow(SpectatorBroadcaster.QueueSubscriber subscriber, int[] expectedCards)
+            throws InterruptedException {
+        SpectatorView view = new SpectatorView();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (System.currentTimeMillis() < deadline) {
+            byte[] frame = subscriber.frames.poll(10, TimeUnit.MILLISECONDS);
+            if (frame != null)
+                view.apply(frame);
+            else if (Arrays.equals(view.cards(), expectedCards))
+                break;
+        }
+        return view;
+    }
+
+    @Test
+    void subscriber_FollowsTheTable() throws InterruptedException {
+        SpectatorBroadcaster.QueueSubscriber subscriber = new SpectatorBroadcaster.QueueSubscriber(1024);
+        broadcaster.subscribe(subscriber);
+        broadcaster.placeCard(7, 0);
+        broadcaster.placeCard(9, 1);
+        broadcaster.placeToken(1, 0);
+        broadcaster.placeToken(2, 0);
+        broadcaster.removeToken(1, 0);
+        broadcaster.setScore(3, 2);
+        broadcaster.removeCard(1);
+
+        int[] expected = new int[12];
+        Arrays.fill(expected, -1);
+        expected[0] = 7;
+        SpectatorView view = follow(subscriber, expected);
+        assertArrayEquals(expected, view.cards());
+        assertEquals(1L << 2, view.tokens(0));
+        assertEquals(2, view.scores()[3]);
+        assertEquals(0, subscriber.skipped());
+    }
+
+    @Test
+    void laggingSubscriber_SkipsToKeyframe() throws InterruptedException {
+        SpectatorBroadcaster.QueueSubscriber subscriber = new SpectatorBroadcaster.QueueSubscriber(4);
+        broadcaster.subscribe(subscriber);
+        while (subscriber.frames.isEmpty()) // the pump has placed it at the keyframe, so it can lag from here
+            Thread.sleep(1);
+        int[] expected = new int[12];
+        for (int i = 0; i < 200; ++i) {
+            broadcaster.placeCard(i % 81, i % 12);
+            expected[i % 12] = i % 81;
+        }
+
+        SpectatorView view = follow(subscriber, expected);
+        assertArrayEquals(expected, view.cards());
+        assertTrue(subscriber.skipped() > 0);
+    }
+}
@@ -0,0 +1,75 @@
+package bguspl.set.tournament;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TournamentStatsTest {
+
+    @Test
+    void runningStats_MatchATwoPassComputationAndMerge() {
+        Random random = new Random(11);
+        double[] values = new double[10001];
+        RunningStats all = new RunningStats();
+        RunningStats first = new RunningStats();
+        RunningStats second = new RunningStats();
+        for (int i = 0; i < values.length; ++i) {
+            values[i] = 1e6 + random.nextGaussian() * 3; // a large mean, to expose a naive sum of squares
+            all.add(values[i]);
+            (i < 3000 ? first : second).add(values[i]);
+        }
+        double mean = 0;
+        for (double value : values)
+            mean += value / values.length;
+        double squares = 0;
+        for (double value : values)
+            squares += (value - mean) * (value - mean);
+
+        assertEquals(mean, all.mean(), 1e-6);
+        assertEquals(squares / (values.length - 1), all.variance(), 1e-6);
+        first.add(second);
+        assertEquals(values.length, first.count());
+        assertEquals(all.mean(), first.mean(), 1e-6);
+        assertEquals(all.variance(), first.variance(), 1e-6);
+        assertEquals(all.min(), first.min());
+        assertEquals(all.max(), first.max());
+        assertEquals(1.96 * all.stddev() / Math.sqrt(values.length), all.confidence95(), 1e-12);
+    }
+
+    @Test
+    void add_SplitsTiesAndMergesWorkers() {
+        TournamentStats worker1 = new TournamentStats(new String[]{"greedy:100", "random"});
+        TournamentStats worker2 = new TournamentStats(new String[]{"greedy:100", "random"});
+        worker1.add(new int[]{0, 1, 0, 1}, new int[]{5, 1, 3, 0}, 60_000_000_000L, false);
+        worker2.add(new int[]{1, 0, 1, 0}, new int[]{2, 2, 0, 40}, 120_000_000_000L, true);
+
+        worker1.add(worker2);
+
+        assertEquals(2, worker1.games());
+        TournamentStats.Entrant greedy = worker1.entrants[0];
+        TournamentStats.Entrant random = worker1.entrants[1];
+        assertEquals(4, greedy.scores.count());
+        assertEquals(0.5, greedy.wins.mean(), 1e-9); // seats: won, lost, lost, won
+        assertEquals(0, random.wins.mean(), 1e-9);
+        assertEquals(12.5, greedy.scores.mean(), 1e-9);
+        assertEquals((5 + 3 + 1 + 20) / 4.0, greedy.setsPerMinute.mean(), 1e-9);
+        assertEquals(1, greedy.scoreCounts[40]);
+        assertEquals(2, random.scoreCounts[0]);
+
+        String report = worker1.report();
+        assertTrue(report.contains("2 games (1 stopped at the time limit)"), report);
+        assertTrue(report.contains("greedy:100               2:1 3:1 5:1 40:1"), report);
+    }
+
+    @Test
+    void add_SharesATieBetweenTheWinners() {
+        TournamentStats stats = new TournamentStats(new String[]{"a", "b"});
+        stats.add(new int[]{0, 1, 1}, new int[]{4, 4, 1}, 60_000_000_000L, false);
+
+        assertEquals(0.5, stats.entrants[0].wins.mean(), 1e-9);
+        assertEquals(0.25, stats.entrants[1].wins.mean(), 1e-9);
+    }
+}